@@ -0,0 +1,37 @@
+package org.adridadou.ethereum;
+
+import org.adridadou.ethereum.event.EventCheckpointStore;
+import org.adridadou.ethereum.event.EventCursor;
+
+/**
+ * Created by davidroon on 15.04.17.
+ * This code is released under Apache 2 license
+ *
+ * An event given to a named consumer. Calling ack saves the position of the consumer: after a restart,
+ * the events up to this one are not delivered again
+ */
+public class ConsumedEvent<T> {
+    private final T event;
+    private final EventCursor cursor;
+    private final String consumer;
+    private final EventCheckpointStore store;
+
+    ConsumedEvent(T event, EventCursor cursor, String consumer, EventCheckpointStore store) {
+        this.event = event;
+        this.cursor = cursor;
+        this.consumer = consumer;
+        this.store = store;
+    }
+
+    public T getEvent() {
+        return event;
+    }
+
+    public EventCursor getCursor() {
+        return cursor;
+    }
+
+    public void ack() {
+        store.ack(consumer, cursor);
+    }
+}
@@ -0,0 +1,168 @@
+package org.adridadou.ethereum;
+
+import org.adridadou.ethereum.abi.AbiEncoder;
+import org.adridadou.ethereum.converters.input.InputTypeHandler;
+import org.adridadou.ethereum.values.*;
+import org.adridadou.exception.EthereumApiException;
+import org.ethereum.core.CallTransaction;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Created by davidroon on 08.04.17.
+ * This code is released under Apache 2 license
+ *
+ * The functions of a contract indexed once by 4 bytes selector, by signature and by name + arity.
+ * When a function is overloaded with the same arity, the overload is chosen with the parameter types: the types known
+ * by the library are matched against the solidity types, any other type is accepted if the input type handler has a converter for it.
+ * A type made for the solidity type (String for string, EthAddress for address ...) is a better match than a type that can also be
+ * converted into it (String for address or bytes ...). When several overloads match equally well, the call is ambiguous and fails
+ * The encoder of each function is created with the table
+ */
+class ContractFunctions {
+    private static final int NO_MATCH = 0;
+    private static final int COMPATIBLE = 1;
+    private static final int EXACT = 2;
+
+    private final Map<Integer, CallTransaction.Function> bySelector = new HashMap<>();
+    private final Map<String, CallTransaction.Function> bySignature = new HashMap<>();
+    private final Map<String, List<CallTransaction.Function>> byNameAndArity = new HashMap<>();
+    private final Map<CallTransaction.Function, AbiEncoder> encoders = new IdentityHashMap<>();
+    private final InputTypeHandler inputTypeHandler;
+
+    ContractFunctions(CallTransaction.Function[] functions, InputTypeHandler inputTypeHandler) {
+        this.inputTypeHandler = inputTypeHandler;
+        for (CallTransaction.Function func : functions) {
+            if (func == null || (func.type != null && func.type != CallTransaction.FunctionType.function)) {
+                continue;
+            }
+            bySelector.put(selector(func.encodeSignature()), func);
+            bySignature.put(func.formatSignature(), func);
+            byNameAndArity.computeIfAbsent(nameAndArity(func.name, func.inputs.length), key -> new ArrayList<>()).add(func);
+            encoders.put(func, AbiEncoder.forFunction(func));
+        }
+    }
+
+    AbiEncoder encoder(CallTransaction.Function func) {
+        AbiEncoder encoder = encoders.get(func);
+        return encoder != null ? encoder : AbiEncoder.forFunction(func);
+    }
+
+    Optional<CallTransaction.Function> bySelector(byte[] selector) {
+        return selector.length < 4 ? Optional.empty() : Optional.ofNullable(bySelector.get(selector(selector)));
+    }
+
+    /**
+     * @param signature canonical signature, for example transfer(address,uint256)
+     */
+    Optional<CallTransaction.Function> bySignature(String signature) {
+        return Optional.ofNullable(bySignature.get(signature));
+    }
+
+    /**
+     * the overload is resolved with the declared types of the java method
+     * @throws EthereumApiException if several overloads match the types equally well
+     */
+    Optional<CallTransaction.Function> find(String name, Class<?>[] parameterTypes) {
+        List<CallTransaction.Function> candidates = byNameAndArity.getOrDefault(nameAndArity(name, parameterTypes.length), Collections.emptyList());
+        if (candidates.size() <= 1) {
+            return candidates.stream().findFirst();
+        }
+        List<CallTransaction.Function> best = new ArrayList<>();
+        int bestScore = 0;
+        for (CallTransaction.Function func : candidates) {
+            int score = score(func, parameterTypes);
+            if (score > bestScore) {
+                best.clear();
+                bestScore = score;
+            }
+            if (score == bestScore && score > 0) {
+                best.add(func);
+            }
+        }
+        if (best.size() > 1) {
+            throw new EthereumApiException("the call of " + name + " with " + Arrays.toString(parameterTypes) + " is ambiguous, it matches "
+                    + best.stream().map(CallTransaction.Function::formatSignature).collect(Collectors.joining(", ")) + ". Use types that match only one of them");
+        }
+        return best.stream().findFirst();
+    }
+
+    /**
+     * the overload is resolved with the types of the arguments
+     */
+    Optional<CallTransaction.Function> find(String name, Object[] args) {
+        Class<?>[] parameterTypes = new Class<?>[args.length];
+        for (int i = 0; i < args.length; i++) {
+            parameterTypes[i] = args[i] == null ? Object.class : args[i].getClass();
+        }
+        return find(name, parameterTypes);
+    }
+
+    /**
+     * @return 0 if a parameter type does not match, the higher the better otherwise
+     */
+    private int score(CallTransaction.Function func, Class<?>[] parameterTypes) {
+        int score = 0;
+        for (int i = 0; i < parameterTypes.length; i++) {
+            int match = match(func.inputs[i].type.getCanonicalName(), parameterTypes[i]);
+            if (match == NO_MATCH) {
+                return 0;
+            }
+            score += match;
+        }
+        return score + 1;
+    }
+
+    private int match(String solidityType, Class<?> type) {
+        if (type.equals(Object.class)) {
+            return COMPATIBLE;
+        }
+        if (solidityType.endsWith("]")) {
+            return type.isArray() || Collection.class.isAssignableFrom(type) ? EXACT : NO_MATCH;
+        }
+        if (!isKnownType(type)) {
+            //converted by a converter added to the input type handler, it knows what it converts into
+            return inputTypeHandler.getConverter(type).isPresent() ? COMPATIBLE : NO_MATCH;
+        }
+        if (solidityType.equals("address")) {
+            if (EthAddress.class.equals(type) || EthAccount.class.equals(type)) {
+                return EXACT;
+            }
+            return String.class.equals(type) || byte[].class.equals(type) ? COMPATIBLE : NO_MATCH;
+        }
+        if (solidityType.equals("bool")) {
+            return Boolean.class.equals(type) || boolean.class.equals(type) ? EXACT : NO_MATCH;
+        }
+        if (solidityType.equals("string")) {
+            return String.class.equals(type) ? EXACT : NO_MATCH;
+        }
+        if (solidityType.startsWith("bytes")) {
+            if (byte[].class.equals(type) || EthData.class.equals(type)) {
+                return EXACT;
+            }
+            return String.class.equals(type) ? COMPATIBLE : NO_MATCH;
+        }
+        if (solidityType.startsWith("int") || solidityType.startsWith("uint")) {
+            return Number.class.isAssignableFrom(type) || (type.isPrimitive() && !boolean.class.equals(type))
+                    || EthValue.class.equals(type) || type.isEnum() || Date.class.isAssignableFrom(type) ? EXACT : NO_MATCH;
+        }
+        //unknown type, let the encoder decide
+        return COMPATIBLE;
+    }
+
+    private static boolean isKnownType(Class<?> type) {
+        return type.isPrimitive() || type.isEnum() || type.isArray()
+                || Number.class.isAssignableFrom(type) || Date.class.isAssignableFrom(type) || Collection.class.isAssignableFrom(type)
+                || Boolean.class.equals(type) || String.class.equals(type)
+                || EthAddress.class.equals(type) || EthAccount.class.equals(type) || EthData.class.equals(type) || EthValue.class.equals(type);
+    }
+
+    private static String nameAndArity(String name, int arity) {
+        return name + "/" + arity;
+    }
+
+    private static int selector(byte[] signature) {
+        return (signature[0] & 0xFF) << 24 | (signature[1] & 0xFF) << 16 | (signature[2] & 0xFF) << 8 | (signature[3] & 0xFF);
+    }
+}
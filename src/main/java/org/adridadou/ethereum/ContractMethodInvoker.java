@@ -0,0 +1,193 @@
+package org.adridadou.ethereum;
+
+import org.adridadou.ethereum.abi.AbiArrayDecoder;
+import org.adridadou.ethereum.converters.future.FutureConverter;
+import org.adridadou.ethereum.converters.input.InputTypeHandler;
+import org.adridadou.exception.EthereumApiException;
+import org.ethereum.core.CallTransaction;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+
+import static org.adridadou.ethereum.values.EthValue.wei;
+
+/**
+ * Created by davidroon on 05.04.17.
+ * This code is released under Apache 2 license
+ *
+ * Everything needed to call one function of one contract from a proxy method, resolved once when the proxy is created:
+ * the solidity function, how each argument is converted and how the call is made and its result converted.
+ * Large arrays returned as long[], int[], EthAddress[] ... are decoded directly from the returned bytes, see {@link AbiArrayDecoder}.
+ * The future converter is picked at that time too: a {@link FutureConverter} added later is only used by the proxies created after it.
+ * A reflective proxy goes through {@link #invoke(Object[])}. A generated {@link ContractStub} keeps the argument converters of its
+ * method and calls the entry point of its kind ({@link #constant(Object...)}, {@link #future(Object...)} ...) with the converted arguments
+ */
+public final class ContractMethodInvoker {
+    private static final Object[] NO_ARGUMENTS = new Object[0];
+
+    enum Kind {
+        CONSTANT, TRANSACTION, FUTURE, PAYABLE
+    }
+
+    private final SmartContract contract;
+    private final CallTransaction.Function function;
+    private final Method method;
+    private final Kind kind;
+    private final FutureConverter futureConverter;
+    private final Function<Object, Object>[] argumentConverters;
+    private final Function<Object[], Object> resultConverter;
+    private final EthereumContractInvocationHandler handler;
+    private final AbiArrayDecoder arrayDecoder;
+
+    ContractMethodInvoker(SmartContract contract, CallTransaction.Function function, Method method, Optional<FutureConverter> futureConverter, InputTypeHandler inputTypeHandler, EthereumContractInvocationHandler handler) {
+        this.contract = contract;
+        this.function = function;
+        this.method = method;
+        this.handler = handler;
+        this.futureConverter = futureConverter.orElse(null);
+        this.kind = kind(method, this.futureConverter);
+        this.argumentConverters = argumentConverters(method, inputTypeHandler);
+        this.resultConverter = handler.resultConverter(method);
+        this.arrayDecoder = arrayDecoder(function, method, kind).orElse(null);
+    }
+
+    private static Optional<AbiArrayDecoder> arrayDecoder(CallTransaction.Function function, Method method, Kind kind) {
+        if (kind == Kind.CONSTANT) {
+            return AbiArrayDecoder.of(function, method.getReturnType(), method.getGenericReturnType());
+        }
+        Type returnType = method.getGenericReturnType();
+        if (kind == Kind.FUTURE && returnType instanceof ParameterizedType) {
+            Type resultType = ((ParameterizedType) returnType).getActualTypeArguments()[0];
+            return AbiArrayDecoder.of(function, rawType(resultType), resultType);
+        }
+        return Optional.empty();
+    }
+
+    private static Class<?> rawType(Type type) {
+        if (type instanceof ParameterizedType) {
+            return rawType(((ParameterizedType) type).getRawType());
+        }
+        return type instanceof Class ? (Class<?>) type : Object.class;
+    }
+
+    private static Kind kind(Method method, FutureConverter futureConverter) {
+        if (method.getReturnType().equals(Void.TYPE)) {
+            return Kind.TRANSACTION;
+        }
+        if (futureConverter == null) {
+            return Kind.CONSTANT;
+        }
+        return futureConverter.isFutureType(method.getReturnType()) ? Kind.FUTURE : Kind.PAYABLE;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Function<Object, Object>[] argumentConverters(Method method, InputTypeHandler inputTypeHandler) {
+        Type[] parameterTypes = method.getGenericParameterTypes();
+        Function<Object, Object>[] converters = new Function[parameterTypes.length];
+        for (int i = 0; i < parameterTypes.length; i++) {
+            converters[i] = inputTypeHandler.getMarshaller(parameterTypes[i]);
+        }
+        return converters;
+    }
+
+    CallTransaction.Function getFunction() {
+        return function;
+    }
+
+    /**
+     * the conversion of the argument at this index, from the declared java type to what the encoder takes
+     */
+    public Function<Object, Object> argumentConverter(int index) {
+        return argumentConverters[index];
+    }
+
+    Object invoke(Object[] args) throws Throwable {
+        Object[] arguments = prepareArguments(args);
+        if (kind == Kind.TRANSACTION) {
+            sendAndWait(arguments);
+            return Void.TYPE;
+        }
+        return call(arguments);
+    }
+
+    /**
+     * calls a function with a return type that is neither a future nor Payable, the arguments are already converted.
+     * If a future converter has been added for the return type, the call is made the way this converter needs
+     */
+    public Object constant(Object... arguments) {
+        if (kind != Kind.CONSTANT) {
+            return call(arguments);
+        }
+        if (arrayDecoder != null) {
+            return arrayDecoder.decode(contract.callConstFunctionRaw(function, wei(0), arguments).data);
+        }
+        return resultConverter.apply(contract.callConstFunction(function, wei(0), arguments));
+    }
+
+    /**
+     * sends a transaction for a method returning a CompletableFuture, the arguments are already converted
+     */
+    public Object future(Object... arguments) {
+        if (arrayDecoder != null) {
+            return futureConverter.convert(contract.callFunctionRaw(function, wei(0), arguments).thenApply(result -> arrayDecoder.decode(result.data)));
+        }
+        return futureConverter.convert(contract.callFunction(function, wei(0), arguments).thenApply(resultConverter));
+    }
+
+    /**
+     * the Payable of a method returning one, the arguments are already converted
+     */
+    public Object payable(Object... arguments) {
+        return futureConverter.getPayable(contract, function, arguments, method, handler);
+    }
+
+    /**
+     * sends a transaction for a method returning void and waits for it, the arguments are already converted
+     */
+    public void transaction(Object... arguments) {
+        try {
+            sendAndWait(arguments);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new EthereumApiException("error while calling " + function.name, e);
+        }
+    }
+
+    private Object call(Object[] arguments) {
+        switch (kind) {
+            case CONSTANT:
+                return constant(arguments);
+            case FUTURE:
+                return future(arguments);
+            case PAYABLE:
+                return payable(arguments);
+            default:
+                transaction(arguments);
+                return Void.TYPE;
+        }
+    }
+
+    private void sendAndWait(Object[] arguments) throws Throwable {
+        try {
+            contract.callFunction(function, wei(0), arguments).get();
+        } catch (ExecutionException e) {
+            throw e.getCause();
+        }
+    }
+
+    private Object[] prepareArguments(Object[] args) {
+        if (args == null) {
+            return NO_ARGUMENTS;
+        }
+        Object[] arguments = new Object[args.length];
+        for (int i = 0; i < args.length; i++) {
+            arguments[i] = argumentConverters[i].apply(args[i]);
+        }
+        return arguments;
+    }
+}
@@ -0,0 +1,52 @@
+package org.adridadou.ethereum;
+
+import org.adridadou.ethereum.values.EthAddress;
+import org.adridadou.exception.EthereumApiException;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.util.Map;
+
+/**
+ * Created by davidroon on 06.04.17.
+ * This code is released under Apache 2 license
+ *
+ * The invocation handler of one contract proxy. It holds the invokers of the proxy, so there is no shared registry
+ * to look the proxy up in and the invokers go away with the proxy
+ */
+class ContractProxyHandler implements InvocationHandler {
+    private final Class<?> contractInterface;
+    private final EthAddress address;
+    private final Map<Method, ContractMethodInvoker> invokers;
+
+    ContractProxyHandler(Class<?> contractInterface, EthAddress address, Map<Method, ContractMethodInvoker> invokers) {
+        this.contractInterface = contractInterface;
+        this.address = address;
+        this.invokers = invokers;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        ContractMethodInvoker invoker = invokers.get(method);
+        if (invoker != null) {
+            return invoker.invoke(args);
+        }
+        if (method.getDeclaringClass().equals(Object.class)) {
+            return invokeObjectMethod(proxy, method, args);
+        }
+        throw new EthereumApiException("function " + method.getName() + " with " + method.getParameterCount() + " parameters cannot be found in the contract");
+    }
+
+    private Object invokeObjectMethod(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return contractInterface.getSimpleName() + " proxy for contract " + address.withLeading0x();
+            default:
+                throw new EthereumApiException("method " + method.getName() + " is not supported by the contract proxy");
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package org.adridadou.ethereum;
+
+import org.adridadou.exception.EthereumApiException;
+
+/**
+ * Created by davidroon on 07.04.17.
+ * This code is released under Apache 2 license
+ *
+ * Base class of the contract stubs generated by {@link org.adridadou.ethereum.codegen.ContractStubProcessor}.
+ * A generated stub keeps the invoker and the argument converters of each of its methods in fields, so each method converts
+ * its arguments and calls the entry point of its kind directly, without java.lang.reflect.Proxy, a Method lookup or a switch on the kind
+ */
+public abstract class ContractStub {
+    public static final String SUFFIX = "ContractStub";
+
+    private final ContractMethodInvoker[] invokers;
+
+    protected ContractStub(Invokers invokers) {
+        this.invokers = invokers.invokers;
+    }
+
+    /**
+     * the invoker of the method at this index in the METHODS of the generated stub
+     */
+    protected final ContractMethodInvoker invoker(int index) {
+        ContractMethodInvoker invoker = invokers[index];
+        if (invoker == null) {
+            throw new EthereumApiException("the function of method #" + index + " of " + getClass().getSimpleName() + " cannot be found in the contract");
+        }
+        return invoker;
+    }
+
+    /**
+     * the name of the stub generated for a contract interface
+     */
+    public static String stubName(Class<?> contractInterface) {
+        String packagePrefix = contractInterface.getPackage() == null ? "" : contractInterface.getPackage().getName() + ".";
+        return packagePrefix + contractInterface.getName().substring(packagePrefix.length()).replace('$', '_') + SUFFIX;
+    }
+
+    public static final class Invokers {
+        private final ContractMethodInvoker[] invokers;
+
+        Invokers(ContractMethodInvoker[] invokers) {
+            this.invokers = invokers;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package org.adridadou.ethereum;
+
+import org.adridadou.exception.EthereumApiException;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Created by davidroon on 07.04.17.
+ * This code is released under Apache 2 license
+ *
+ * The generated stub of a contract interface, if there is one in the class path. It is looked up once per interface
+ */
+class ContractStubType {
+    private static final ClassValue<Optional<ContractStubType>> types = new ClassValue<Optional<ContractStubType>>() {
+        @Override
+        protected Optional<ContractStubType> computeValue(Class<?> contractInterface) {
+            return find(contractInterface);
+        }
+    };
+
+    private final Constructor<?> constructor;
+    private final String[] methods;
+
+    private ContractStubType(Constructor<?> constructor, String[] methods) {
+        this.constructor = constructor;
+        this.methods = methods;
+    }
+
+    static Optional<ContractStubType> of(Class<?> contractInterface) {
+        return types.get(contractInterface);
+    }
+
+    private static Optional<ContractStubType> find(Class<?> contractInterface) {
+        try {
+            Class<?> stubClass = Class.forName(ContractStub.stubName(contractInterface), true, contractInterface.getClassLoader());
+            if (!contractInterface.isAssignableFrom(stubClass) || !ContractStub.class.isAssignableFrom(stubClass)) {
+                return Optional.empty();
+            }
+            String[] methods = (String[]) stubClass.getField("METHODS").get(null);
+            return Optional.of(new ContractStubType(stubClass.getConstructor(ContractStub.Invokers.class), methods));
+        } catch (ClassNotFoundException e) {
+            return Optional.empty();
+        } catch (ReflectiveOperationException e) {
+            throw new EthereumApiException("invalid contract stub for " + contractInterface.getName(), e);
+        }
+    }
+
+    Object create(Map<Method, ContractMethodInvoker> invokers) {
+        Map<String, ContractMethodInvoker> invokersByKey = invokers.entrySet().stream()
+                .collect(Collectors.toMap(entry -> key(entry.getKey()), Map.Entry::getValue, (first, second) -> first));
+        ContractMethodInvoker[] stubInvokers = Arrays.stream(methods)
+                .map(invokersByKey::get)
+                .toArray(ContractMethodInvoker[]::new);
+        try {
+            return constructor.newInstance(new ContractStub.Invokers(stubInvokers));
+        } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
+            throw new EthereumApiException("error while creating the contract stub " + constructor.getDeclaringClass().getName(), e);
+        }
+    }
+
+    private static String key(Method method) {
+        return method.getName() + "(" + Arrays.stream(method.getParameterTypes())
+                .map(Class::getCanonicalName)
+                .collect(Collectors.joining(",")) + ")";
+    }
+}
@@ -1,9 +1,15 @@
 package org.adridadou.ethereum;
 
 import org.adridadou.ethereum.event.EthereumEventHandler;
+import org.adridadou.ethereum.event.LogEntry;
 import org.adridadou.ethereum.values.*;
+import org.ethereum.core.Transaction;
 
 import java.math.BigInteger;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Created by davidroon on 20.01.17.
@@ -14,12 +20,32 @@ public interface EthereumBackend {
 
     EthValue getBalance(EthAddress address);
 
+    /**
+     * @return the balance of each address, in the order of the addresses
+     */
+    Map<EthAddress, EthValue> getBalances(Collection<EthAddress> addresses);
+
     boolean addressExists(EthAddress address);
 
-    EthHash submit(final EthAccount account, final EthAddress address,final EthValue value, final EthData data, final BigInteger nonce, final BigInteger gasLimit);
+    EthHash submit(final EthAccount account, final EthAddress address,final EthValue value, final EthData data, final BigInteger nonce, final BigInteger gasPrice, final BigInteger gasLimit);
+
+    /**
+     * signs a transaction without sending it, its hash is known before the node sees it. See {@link #submit(EthAccount, Transaction)}
+     */
+    Transaction sign(final EthAccount account, final EthAddress address, final EthValue value, final EthData data, final BigInteger nonce, final BigInteger gasPrice, final BigInteger gasLimit);
+
+    EthHash submit(final EthAccount account, final Transaction signedTransaction);
+
+    /**
+     * signs every request up front, with contiguous nonces starting at firstNonce, and submits them together.
+     * Each request needs its gas limit set
+     */
+    List<CompletableFuture<EthHash>> submit(final EthAccount account, final List<TransactionRequest> requests, final BigInteger gasPrice, final BigInteger firstNonce);
 
     BigInteger estimateGas(final EthAccount account, final EthAddress address, final EthValue value, final EthData data);
 
+    List<BigInteger> estimateGas(final EthAccount account, final List<TransactionRequest> requests);
+
     BigInteger getNonce(EthAddress currentAddress);
 
     long getCurrentBlockNumber();
@@ -28,5 +54,16 @@ public interface EthereumBackend {
 
     EthData constantCall(final EthAccount account, final EthAddress address, final EthValue value, final EthData data);
 
+    /**
+     * the logs emitted by the address with one of the topics as topic0, in block order
+     * @throws org.adridadou.exception.LogRangeTooLargeException if the range has too many logs to be returned at once
+     */
+    List<LogEntry> getLogs(final EthAddress address, final List<EthData> topics, final long fromBlock, final long toBlock);
+
     void register(EthereumEventHandler eventHandler);
+
+    /**
+     * the transaction with this hash is not followed anymore (included, replaced, dropped or timed out), its receipt is not needed
+     */
+    void unwatch(EthHash hash);
 }
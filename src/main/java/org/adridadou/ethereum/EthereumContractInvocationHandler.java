@@ -10,11 +10,13 @@ import org.adridadou.exception.EthereumApiException;
 import org.ethereum.core.CallTransaction;
 
 import java.lang.reflect.*;
+import java.math.BigInteger;
 import java.util.*;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
-import static org.adridadou.ethereum.values.EthValue.wei;
+import static java.lang.reflect.Proxy.newProxyInstance;
 
 
 /**
@@ -23,12 +25,10 @@ import static org.adridadou.ethereum.values.EthValue.wei;
  */
 public class EthereumContractInvocationHandler implements InvocationHandler {
 
-    private final Map<EthAddress, Map<EthAccount, SmartContract>> contracts = new HashMap<>();
     private final EthereumProxy ethereumProxy;
     private final InputTypeHandler inputTypeHandler;
     private final OutputTypeHandler outputTypeHandler;
-    private final Map<ProxyWrapper, SmartContractInfo> info = new HashMap<>();
-    private final List<FutureConverter> futureConverters = new ArrayList<>();
+    private final List<FutureConverter> futureConverters = new CopyOnWriteArrayList<>();
 
 
     EthereumContractInvocationHandler(EthereumProxy ethereumProxy, InputTypeHandler inputTypeHandler, OutputTypeHandler outputTypeHandler) {
@@ -38,29 +38,20 @@ public class EthereumContractInvocationHandler implements InvocationHandler {
         this.futureConverters.add(new CompletableFutureConverter());
     }
 
+    /**
+     * @deprecated each contract proxy has its own invocation handler now, this only forwards the call to the proxy
+     */
+    @Deprecated
     @Override
     public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-        final String methodName = method.getName();
-        SmartContractInfo contractInfo = info.get(new ProxyWrapper(proxy));
-        SmartContract contract = contracts.get(contractInfo.getAddress()).get(contractInfo.getAccount());
-        Object[] arguments = Optional.ofNullable(args).map(this::prepareArguments).orElse(new Object[0]);
-
-        if (method.getReturnType().equals(Void.TYPE)) {
-            try {
-                contract.callFunction(methodName, arguments).get();
-            }
-            catch (ExecutionException e) {
-                throw e.getCause();
-            }
-
-            return Void.TYPE;
-        } else {
-            return findConverter(method.getReturnType()).map(converter -> {
-                if (converter.isFutureType(method.getReturnType())) {
-                    return converter.convert(contract.callFunction(methodName, arguments).thenApply(result -> convertResult(result, method)));
-                }
-                return converter.getPayable(contract, methodName, arguments, method, this);
-            }).orElseGet(() -> convertResult(contract.callConstFunction(methodName, wei(0), arguments), method));
+        if (Proxy.isProxyClass(proxy.getClass())) {
+            return Proxy.getInvocationHandler(proxy).invoke(proxy, method, args);
+        }
+        //a generated stub
+        try {
+            return method.invoke(proxy, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
         }
     }
 
@@ -68,10 +59,21 @@ public class EthereumContractInvocationHandler implements InvocationHandler {
         return futureConverters.stream().filter(converter -> converter.isFutureType(type) || converter.isPayableType(type)).findFirst();
     }
 
-    private Object[] prepareArguments(Object[] args) {
-        return Arrays.stream(args)
-                .map(inputTypeHandler::convert)
-                .toArray();
+    /**
+     * the conversion done by {@link #convertResult(Object[], Method)}, resolved once for the method
+     */
+    Function<Object[], Object> resultConverter(Method method) {
+        Class<?> returnType = method.getReturnType();
+        Function<Object, Object> converter = outputTypeHandler.getResultConverter(returnType, method.getGenericReturnType());
+        return result -> {
+            if (result.length == 0) {
+                return converter.apply(null);
+            }
+            if (result.length == 1) {
+                return converter.apply(result[0]);
+            }
+            return outputTypeHandler.convertSpecificType(result, returnType);
+        };
     }
 
     public Object convertResult(Object[] result, Method method) {
@@ -84,17 +86,39 @@ public class EthereumContractInvocationHandler implements InvocationHandler {
         return outputTypeHandler.convertSpecificType(result, method.getReturnType());
     }
 
-    protected <T> void register(T proxy, Class<T> contractInterface, ContractAbi abi, EthAddress address, EthAccount account) {
+    /**
+     * uses the stub generated for the interface if there is one (see {@link org.adridadou.ethereum.codegen.GenerateContractStub}),
+     * a java.lang.reflect.Proxy otherwise. Each proxy gets its own invocation handler, nothing is kept here once the proxy is not used anymore
+     */
+    protected <T> T createProxy(Class<T> contractInterface, ContractAbi abi, EthAddress address, EthAccount account) {
         if(address.isEmpty()) {
             throw new EthereumApiException("the contract address cannot be empty");
         }
         SmartContract smartContract = ethereumProxy.mapFromAbi(abi, address, account);
+        //a generated stub is checked too: the compiler only knows the names and the number of parameters, overloads are resolved here by type
         verifyContract(smartContract, contractInterface);
+        registerGasLimits(smartContract, contractInterface);
+
+        Map<Method, ContractMethodInvoker> invokers = createInvokers(smartContract, contractInterface);
+        Optional<ContractStubType> stubType = ContractStubType.of(contractInterface);
+        if (stubType.isPresent()) {
+            return contractInterface.cast(stubType.get().create(invokers));
+        }
+        ContractProxyHandler proxyHandler = new ContractProxyHandler(contractInterface, address, invokers);
+        return contractInterface.cast(newProxyInstance(contractInterface.getClassLoader(), new Class[]{contractInterface}, proxyHandler));
+    }
+
+    private Map<Method, ContractMethodInvoker> createInvokers(SmartContract smartContract, Class<?> contractInterface) {
+        Map<Method, ContractMethodInvoker> result = new HashMap<>();
+        for (Method method : contractInterface.getMethods()) {
+            findFunction(smartContract, method).ifPresent(func ->
+                    result.put(method, new ContractMethodInvoker(smartContract, func, method, findConverter(method.getReturnType()), inputTypeHandler, this)));
+        }
+        return result;
+    }
 
-        info.put(new ProxyWrapper(proxy), new SmartContractInfo(address, account));
-        Map<EthAccount, SmartContract> proxies = contracts.getOrDefault(address, new HashMap<>());
-        proxies.put(account, smartContract);
-        contracts.put(address, proxies);
+    private Optional<CallTransaction.Function> findFunction(SmartContract smartContract, Method method) {
+        return smartContract.getFunction(method.getName(), method.getParameterTypes());
     }
 
     private void verifyContract(SmartContract smartContract, Class<?> contractInterface) {
@@ -110,35 +134,36 @@ public class EthereumContractInvocationHandler implements InvocationHandler {
             throw new EthereumApiException("The contract " + contractInterface.getName() + " does not have the function(s) " + superfluous.toString() + ". Add this function(s) to the smart contract or remove it fromSeed your interface");
         }
 
-        Map<String, List<Method>> methods = interfaceMethods.stream().collect(Collectors.groupingBy(Method::getName));
+        for (Method method : interfaceMethods) {
+            //the same lookup as the invokers, overloads with the same number of parameters are told apart by their types
+            CallTransaction.Function func = findFunction(smartContract, method)
+                    .orElseThrow(() -> new EthereumApiException("No function " + method.getName() + " found with " + method.getParameterCount() + " parameters matching " + Arrays.toString(method.getParameterTypes()) + " on contract " + contractInterface.getName()));
+            boolean isPayableType = findConverter(method.getReturnType()).map(converter -> converter.isPayableType(method.getReturnType())).orElse(false);
+            boolean isFutureType = findConverter(method.getReturnType()).map(converter -> converter.isFutureType(method.getReturnType())).orElse(false);
+            if(func.payable != isPayableType) {
+                throw new EthereumApiException("ABI definition of " + func.name + " for payable is " + func.payable + " but return type is " + method.getReturnType().getSimpleName() + ". Return type should be Payable if and only if the function is payable");
+            }
 
-        for (CallTransaction.Function func : solidityMethods) {
+            if(func.constant && isFutureType) {
+                throw new EthereumApiException( func.name + " is defined as constant but return type is CompletableFuture. This is only for non constant functions");
+            }
 
-            if(func.name == null || func.name.isEmpty()){
-                continue;
+            if(!func.constant && !(isFutureType || isPayableType)) {
+                throw new EthereumApiException( func.name + " is not defined as constant but return type is " + method.getReturnType().getSimpleName()+ ". non constant function return type should be CompletableFuture<" + method.getReturnType().getSimpleName()+ "> instead.");
             }
+        }
+    }
 
-            Optional.ofNullable(methods.get(func.name)).ifPresent(methodList -> {
-                Method method = methodList.stream().filter(m -> m.getParameterCount() == func.inputs.length)
-                        .findFirst()
-                        .orElseThrow(() -> new EthereumApiException("No function " + func.name + " found with " + func.inputs.length + " parameters on contract " + contractInterface.getName()));
-                boolean isPayableType = findConverter(method.getReturnType()).map(converter -> converter.isPayableType(method.getReturnType())).orElse(false);
-                boolean isFutureType = findConverter(method.getReturnType()).map(converter -> converter.isFutureType(method.getReturnType())).orElse(false);
-                if(func.payable != isPayableType) {
-                    throw new EthereumApiException("ABI definition of " + func.name + " for payable is " + func.payable + " but return type is " + method.getReturnType().getSimpleName() + ". Return type should be Payable if and only if the function is payable");
-                }
-
-                if(func.constant && isFutureType) {
-                    throw new EthereumApiException( func.name + " is defined as constant but return type is CompletableFuture. This is only for non constant functions");
-                }
-
-                if(!func.constant && !(isFutureType || isPayableType)) {
-                    throw new EthereumApiException( func.name + " is not defined as constant but return type is " + method.getReturnType().getSimpleName()+ ". non constant function return type should be CompletableFuture<" + method.getReturnType().getSimpleName()+ "> instead.");
-                }
-            });
+    private void registerGasLimits(SmartContract smartContract, Class<?> contractInterface) {
+        for (Method method : contractInterface.getMethods()) {
+            Optional.ofNullable(method.getAnnotation(GasLimit.class)).ifPresent(gasLimit -> findFunction(smartContract, method)
+                    .ifPresent(func -> ethereumProxy.gasEstimates().override(smartContract.getAddress(), func.encodeSignature(), BigInteger.valueOf(gasLimit.value()))));
         }
     }
 
+    /**
+     * only used by the proxies registered after this call, see {@link ContractMethodInvoker}
+     */
     public void addFutureConverter(final FutureConverter futureConverter) {
         futureConverters.add(futureConverter);
     }
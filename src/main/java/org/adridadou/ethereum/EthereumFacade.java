@@ -1,10 +1,9 @@
 package org.adridadou.ethereum;
 
-import static java.lang.reflect.Proxy.newProxyInstance;
-
 import java.io.IOException;
 import java.math.BigInteger;
 import java.nio.charset.Charset;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
@@ -17,6 +16,8 @@ import org.adridadou.ethereum.converters.input.InputTypeHandler;
 import org.adridadou.ethereum.converters.output.OutputTypeConverter;
 import org.adridadou.ethereum.converters.output.OutputTypeHandler;
 import org.adridadou.ethereum.event.EthereumEventHandler;
+import org.adridadou.ethereum.event.EventCheckpointStore;
+import org.adridadou.ethereum.gasprice.GasPriceOracle;
 import org.adridadou.ethereum.swarm.SwarmHash;
 import org.adridadou.ethereum.swarm.SwarmService;
 import org.adridadou.ethereum.values.*;
@@ -58,6 +59,9 @@ public class EthereumFacade {
         return this;
     }
 
+    /**
+     * the converter is used by the contract proxies created from now on, the existing proxies keep the converters they were created with
+     */
     public EthereumFacade addFutureConverter(final FutureConverter futureConverter) {
         handler.addFutureConverter(futureConverter);
         return this;
@@ -72,9 +76,7 @@ public class EthereumFacade {
     }
 
     public <T> T createContractProxy(ContractAbi abi, EthAddress address, EthAccount account, Class<T> contractInterface) {
-        T proxy = (T) newProxyInstance(contractInterface.getClassLoader(), new Class[]{contractInterface}, handler);
-        handler.register(proxy, contractInterface, abi, address, account);
-        return proxy;
+        return handler.createProxy(contractInterface, abi, address, account);
     }
 
     public <T> Builder<T> createContractProxy(EthAddress address, Class<T> contractInterface) {
@@ -115,6 +117,13 @@ public class EthereumFacade {
         return ethereumProxy.getBalance(account.getAddress());
     }
 
+    /**
+     * with a remote node, all the balances are read in one JSON-RPC batch
+     */
+    public Map<EthAddress, EthValue> getBalances(final Collection<EthAddress> addresses) {
+        return ethereumProxy.getBalances(addresses);
+    }
+
     public EthereumEventHandler events() {
         return ethereumProxy.events();
     }
@@ -123,6 +132,44 @@ public class EthereumFacade {
         return ethereumProxy.sendTx(value, EthData.empty(), fromAccount, to);
     }
 
+    public List<CompletableFuture<EthExecutionResult>> sendBatch(EthAccount fromAccount, List<TransactionRequest> requests) {
+        return ethereumProxy.sendBatch(fromAccount, requests);
+    }
+
+    public TransactionBatch batch(EthAccount fromAccount) {
+        return ethereumProxy.batch(fromAccount);
+    }
+
+    public GasEstimateCache gasEstimates() {
+        return ethereumProxy.gasEstimates();
+    }
+
+    public GasPriceOracle gasPrices() {
+        return ethereumProxy.gasPrices();
+    }
+
+    /**
+     * limits the number of transactions in flight per account, see {@link TransactionWindow}
+     */
+    public TransactionWindow transactionWindow() {
+        return ethereumProxy.transactionWindow();
+    }
+
+    /**
+     * re-sends the transactions stuck in the pool with a higher gas price, see {@link ReplacementPolicy}
+     */
+    public EthereumFacade replacementPolicy(ReplacementPolicy policy) {
+        ethereumProxy.replacementPolicy(policy);
+        return this;
+    }
+
+    /**
+     * the gas price used for the next transactions. No request is sent to the node
+     */
+    public EthValue getGasPrice() {
+        return EthValue.wei(ethereumProxy.gasPrices().getGasPrice());
+    }
+
     public BigInteger getNonce(EthAddress address) {
         return ethereumProxy.getNonce(address);
     }
@@ -189,6 +236,20 @@ public class EthereumFacade {
         return ethereumProxy.observeEvents(abi, address, eventName, cls);
     }
 
+    /**
+     * reads the past events, see {@link EventBackfill} for the block range, chunk size and parallelism
+     */
+    public <T> EventBackfill<T> backfillEvents(ContractAbi abi, EthAddress address, String eventName, Class<T> cls) {
+        return ethereumProxy.backfillEvents(abi, address, eventName, cls);
+    }
+
+    /**
+     * a durable subscription, it resumes after the last event acked with this name, see {@link EventConsumer}
+     */
+    public <T> EventConsumer<T> eventConsumer(String name, EventCheckpointStore store, ContractAbi abi, EthAddress address, String eventName, Class<T> cls) {
+        return ethereumProxy.eventConsumer(name, store, abi, address, eventName, cls);
+    }
+
     public class Builder<T> {
         private final Class<T> contractInterface;
         private final EthAddress address;
@@ -201,9 +262,7 @@ public class EthereumFacade {
         }
 
         public T forAccount(final EthAccount account) {
-            T proxy = (T) newProxyInstance(contractInterface.getClassLoader(), new Class[]{contractInterface}, handler);
-            EthereumFacade.this.handler.register(proxy, contractInterface, abi, address, account);
-            return proxy;
+            return handler.createProxy(contractInterface, abi, address, account);
         }
     }
 }
@@ -8,19 +8,25 @@ import org.adridadou.ethereum.ethj.EthereumReal;
 import org.adridadou.ethereum.ethj.EthereumTest;
 import org.adridadou.ethereum.ethj.TestConfig;
 import org.adridadou.ethereum.event.EthereumEventHandler;
-import org.adridadou.ethereum.rpc.EthereumRPC;
-import org.adridadou.ethereum.rpc.EthereumRpcEventGenerator;
-import org.adridadou.ethereum.rpc.Web3JFacade;
+import org.adridadou.ethereum.rpc.*;
 import org.adridadou.ethereum.swarm.SwarmService;
 import org.adridadou.ethereum.values.config.ChainId;
 import org.adridadou.ethereum.values.config.InfuraKey;
+import org.adridadou.exception.EthereumApiException;
 import org.ethereum.config.SystemProperties;
 import org.ethereum.facade.EthereumFactory;
 import org.ethereum.solidity.compiler.SolidityCompiler;
 import org.springframework.context.annotation.Bean;
 import org.web3j.protocol.Web3j;
+import org.web3j.protocol.Web3jService;
 import org.web3j.protocol.http.HttpService;
 
+import java.io.IOException;
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
 
 /**
  * Created by davidroon on 27.04.16.
@@ -45,13 +51,84 @@ public class EthereumFacadeProvider {
     }
 
     public static EthereumFacade forRemoteNode(final String url, final ChainId chainId) {
-        Web3JFacade web3j = new Web3JFacade(Web3j.build(new HttpService(url)), new OutputTypeHandler(), chainId);
-        EthereumRPC ethRpc = new EthereumRPC(web3j, new EthereumRpcEventGenerator(web3j));
+        return forRemoteNode(url, chainId, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param executor runs the continuations of the transaction futures, see {@link EthereumProxy}, and signs the batches in parallel
+     */
+    public static EthereumFacade forRemoteNode(final String url, final ChainId chainId, final Executor executor) {
+        return forRemoteService(new HttpService(url), new JsonRpcBatchService(url), chainId, executor);
+    }
+
+    /**
+     * each request goes to the fastest healthy node, see {@link RpcEndpointPool}
+     */
+    public static EthereumFacade forRemoteNodes(final List<String> urls, final ChainId chainId) {
+        return forRemoteNodes(urls, chainId, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param executor runs the continuations of the transaction futures, see {@link EthereumProxy}, and signs the batches in parallel
+     */
+    public static EthereumFacade forRemoteNodes(final List<String> urls, final ChainId chainId, final Executor executor) {
+        RpcEndpointPool pool = RpcEndpointPool.forUrls(urls);
+        return forRemoteService(pool, pool.batchService(), chainId, executor);
+    }
+
+    /**
+     * the node pushes the new blocks and the logs through a WebSocket (ws:// or wss://) instead of being polled.
+     * The connection is opened again when it is lost
+     */
+    public static EthereumFacade forWebSocketNode(final String url, final ChainId chainId) {
+        return forWebSocketNode(url, chainId, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param executor runs the continuations of the transaction futures, see {@link EthereumProxy}, and signs the batches in parallel
+     */
+    public static EthereumFacade forWebSocketNode(final String url, final ChainId chainId, final Executor executor) {
+        try {
+            return forPushService(new JsonRpcPushService(() -> new WebSocketTransport(URI.create(url))), chainId, executor);
+        } catch (IOException e) {
+            throw new EthereumApiException("error while connecting to " + url, e);
+        }
+    }
+
+    /**
+     * the node pushes the new blocks and the logs through its IPC socket (geth.ipc) instead of being polled.
+     * The connection is opened again when it is lost
+     */
+    public static EthereumFacade forIpcNode(final String path, final ChainId chainId) {
+        return forIpcNode(path, chainId, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param executor runs the continuations of the transaction futures, see {@link EthereumProxy}, and signs the batches in parallel
+     */
+    public static EthereumFacade forIpcNode(final String path, final ChainId chainId, final Executor executor) {
+        try {
+            return forPushService(new JsonRpcPushService(() -> new IpcTransport(path)), chainId, executor);
+        } catch (IOException e) {
+            throw new EthereumApiException("error while connecting to " + path, e);
+        }
+    }
+
+    private static EthereumFacade forPushService(final JsonRpcPushService pushService, final ChainId chainId, final Executor executor) {
+        return forWeb3JFacade(new Web3JFacade(Web3j.build(pushService), new OutputTypeHandler(), chainId, null, pushService), executor);
+    }
+
+    private static EthereumFacade forRemoteService(final Web3jService service, final JsonRpcBatchService batchService, final ChainId chainId, final Executor executor) {
+        return forWeb3JFacade(new Web3JFacade(Web3j.build(service), new OutputTypeHandler(), chainId, batchService), executor);
+    }
+
+    private static EthereumFacade forWeb3JFacade(final Web3JFacade web3j, final Executor executor) {
+        EthereumRPC ethRpc = new EthereumRPC(web3j, new EthereumRpcEventGenerator(web3j), executor);
         InputTypeHandler inputTypeHandler = new InputTypeHandler();
         OutputTypeHandler outputTypeHandler = new OutputTypeHandler();
         EthereumEventHandler ethereumListener = new EthereumEventHandler();        
         web3j.observeBlocks().take(1).subscribe(b-> ethereumListener.onReady());
-        return new EthereumFacade(new EthereumProxy(ethRpc, ethereumListener, inputTypeHandler, outputTypeHandler), inputTypeHandler, outputTypeHandler, new SwarmService(SwarmService.PUBLIC_HOST),SolidityCompiler.getInstance());
+        return new EthereumFacade(new EthereumProxy(ethRpc, ethereumListener, inputTypeHandler, outputTypeHandler, executor), inputTypeHandler, outputTypeHandler, new SwarmService(SwarmService.PUBLIC_HOST),SolidityCompiler.getInstance());
     }
 
     public static InfuraBuilder forInfura(final InfuraKey key)  {
@@ -60,23 +137,30 @@ public class EthereumFacadeProvider {
 
     public static class InfuraBuilder {
         private final InfuraKey key;
+        private Executor executor = ForkJoinPool.commonPool();
 
         public InfuraBuilder(InfuraKey key) {
             this.key = key;
         }
 
+        public InfuraBuilder executor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
         public EthereumFacade createMain() {
-            return forRemoteNode("https://main.infura.io/" + key.key, EthereumFacadeProvider.MAIN_CHAIN_ID);
+            return forRemoteNode("https://main.infura.io/" + key.key, EthereumFacadeProvider.MAIN_CHAIN_ID, executor);
         }
 
         public EthereumFacade createRopsten() {
-            return forRemoteNode("https://ropsten.infura.io/" + key.key, EthereumFacadeProvider.ROPSTEN_CHAIN_ID);
+            return forRemoteNode("https://ropsten.infura.io/" + key.key, EthereumFacadeProvider.ROPSTEN_CHAIN_ID, executor);
         }
     }
 
     public static class Builder {
 
         private final BlockchainConfig configBuilder;
+        private Executor executor = ForkJoinPool.commonPool();
 
         public Builder(BlockchainConfig configBuilder) {
             this.configBuilder = configBuilder;
@@ -86,6 +170,11 @@ public class EthereumFacadeProvider {
             return configBuilder;
         }
 
+        public Builder executor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
         public EthereumFacade create(){
             GenericConfig.config = configBuilder.toString();
             EthereumReal ethereum = new EthereumReal(EthereumFactory.createEthereum(GenericConfig.class));
@@ -95,7 +184,7 @@ public class EthereumFacadeProvider {
         public EthereumFacade create(EthereumBackend ethereum, EthereumEventHandler ethereumListener) {
             InputTypeHandler inputTypeHandler = new InputTypeHandler();
             OutputTypeHandler outputTypeHandler = new OutputTypeHandler();
-            return new EthereumFacade(new EthereumProxy(ethereum, ethereumListener,inputTypeHandler, outputTypeHandler),inputTypeHandler, outputTypeHandler, SwarmService.from(SwarmService.PUBLIC_HOST), SolidityCompiler.getInstance());
+            return new EthereumFacade(new EthereumProxy(ethereum, ethereumListener,inputTypeHandler, outputTypeHandler, executor),inputTypeHandler, outputTypeHandler, SwarmService.from(SwarmService.PUBLIC_HOST), SolidityCompiler.getInstance());
         }
     }
 
@@ -2,18 +2,25 @@ package org.adridadou.ethereum;
 
 import static org.adridadou.ethereum.values.EthValue.wei;
 
+import java.io.IOError;
 import java.math.BigInteger;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
 
+import org.adridadou.ethereum.abi.AbiEncoder;
 import org.adridadou.ethereum.converters.input.InputTypeHandler;
 import org.adridadou.ethereum.converters.output.OutputTypeHandler;
 import org.adridadou.ethereum.event.*;
+import org.adridadou.ethereum.gasprice.GasPriceOracle;
 import org.adridadou.ethereum.values.*;
 import org.adridadou.exception.EthereumApiException;
+import org.adridadou.exception.TransactionTimeoutException;
 import org.ethereum.core.CallTransaction;
-import org.ethereum.util.ByteUtil;
 import rx.Observable;
 
 /**
@@ -27,22 +34,42 @@ public class EthereumProxy {
 
     private final EthereumBackend ethereum;
     private final EthereumEventHandler eventHandler;
-    private final Map<EthAddress, Set<EthHash>> pendingTransactions = new ConcurrentHashMap<>();
-    private final Map<EthAddress, BigInteger> nonces = new ConcurrentHashMap<>();
+    private final PendingTransactionRegistry transactionRegistry;
+    private final NonceManager nonceManager;
+    private final GasEstimateCache gasEstimates = new GasEstimateCache();
+    private final GasPriceOracle gasPriceOracle;
+    private final TransactionWindow transactionWindow = new TransactionWindow();
+    private final TransactionReplacer transactionReplacer;
+    private final EventDispatcher eventDispatcher;
+    private final Map<String, CallTransaction.Contract> contracts = new ConcurrentHashMap<>();
     private final InputTypeHandler inputTypeHandler;
     private final OutputTypeHandler outputTypeHandler;
+    private final Executor executor;
 
     public EthereumProxy(EthereumBackend ethereum, EthereumEventHandler eventHandler, InputTypeHandler inputTypeHandler, OutputTypeHandler outputTypeHandler) {
+        this(ethereum, eventHandler, inputTypeHandler, outputTypeHandler, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param executor runs the continuations of the transaction futures. Receipts are matched on the event thread,
+     *                 nothing waits on a thread while a transaction is pending
+     */
+    public EthereumProxy(EthereumBackend ethereum, EthereumEventHandler eventHandler, InputTypeHandler inputTypeHandler, OutputTypeHandler outputTypeHandler, Executor executor) {
         this.ethereum = ethereum;
         this.eventHandler = eventHandler;
         this.inputTypeHandler = inputTypeHandler;
         this.outputTypeHandler = outputTypeHandler;
-        updateNonce();
+        this.executor = executor;
+        this.transactionRegistry = new PendingTransactionRegistry(eventHandler, BLOCK_WAIT_LIMIT, ethereum::unwatch);
+        this.eventDispatcher = new EventDispatcher(eventHandler);
+        this.nonceManager = new NonceManager(ethereum);
+        this.gasPriceOracle = new GasPriceOracle(ethereum, eventHandler, executor);
+        this.transactionReplacer = new TransactionReplacer(ethereum, eventHandler, transactionRegistry, gasPriceOracle, executor);
         ethereum.register(eventHandler);
     }
 
     public SmartContract mapFromAbi(ContractAbi abi, EthAddress address, EthAccount account) {
-        return new SmartContract(new CallTransaction.Contract(abi.getAbi()), account, address, this, ethereum);
+        return new SmartContract(new CallTransaction.Contract(abi.getAbi()), account, address, this, ethereum, inputTypeHandler);
     }
 
     public CompletableFuture<EthAddress> publish(CompiledContract contract, EthAccount account, Object... constructorArgs) {
@@ -55,8 +82,9 @@ public class EthereumProxy {
         if (constructor == null && constructorArgs.length > 0) {
             throw new EthereumApiException("No constructor with params found");
         }
-        byte[] argsEncoded = constructor == null ? new byte[0] : constructor.encodeArguments(prepareArguments(constructorArgs));
-        return publishContract(wei(0), EthData.of(ByteUtil.merge(contract.getBinary().data, argsEncoded)), account);
+        byte[] code = contract.getBinary().data;
+        byte[] deployment = constructor == null ? code : AbiEncoder.forConstructor(constructor).encode(code, prepareArguments(constructorArgs));
+        return publishContract(wei(0), EthData.of(deployment), account);
     }
 
     public Object[] prepareArguments(Object[] args) {
@@ -66,9 +94,7 @@ public class EthereumProxy {
     }
 
     public BigInteger getNonce(final EthAddress address) {
-        nonces.computeIfAbsent(address, ethereum::getNonce);
-        Integer offset = Optional.ofNullable(pendingTransactions.get(address)).map(Set::size).orElse(0);
-        return nonces.get(address).add(BigInteger.valueOf(offset));
+        return nonceManager.getNonce(address);
     }
 
     public SmartContractByteCode getCode(EthAddress address) {
@@ -76,13 +102,30 @@ public class EthereumProxy {
     }
 
     public <T> Observable<T> observeEvents(ContractAbi abi, EthAddress contractAddress, String eventName, Class<T> cls) {
-        CallTransaction.Contract contract = new CallTransaction.Contract(abi.getAbi());
-        return eventHandler.observeTransactions()
-                .filter(params -> contractAddress.equals(params.receipt.receiveAddress))
-                .flatMap(params -> Observable.from(params.logs))
-                .map(contract::parseEvent)
-                .filter(invocation -> invocation != null && eventName.equals(invocation.function.name))
-                .map(invocation -> outputTypeHandler.convertSpecificType(invocation.args, cls));
+        List<Observable<Object[]>> events = findEvents(abi, eventName).stream()
+                .map(event -> eventDispatcher.observe(contractAddress, event))
+                .collect(Collectors.toList());
+        return Observable.merge(events)
+                .map(args -> outputTypeHandler.convertSpecificType(args, cls));
+    }
+
+    public <T> EventBackfill<T> backfillEvents(ContractAbi abi, EthAddress contractAddress, String eventName, Class<T> cls) {
+        return new EventBackfill<>(ethereum, outputTypeHandler, contractAddress, findEvents(abi, eventName), cls);
+    }
+
+    public <T> EventConsumer<T> eventConsumer(String name, EventCheckpointStore store, ContractAbi abi, EthAddress contractAddress, String eventName, Class<T> cls) {
+        return new EventConsumer<>(name, store, backfillEvents(abi, contractAddress, eventName, cls), ethereum, eventHandler);
+    }
+
+    private List<CallTransaction.Function> findEvents(ContractAbi abi, String eventName) {
+        CallTransaction.Contract contract = contracts.computeIfAbsent(abi.getAbi(), CallTransaction.Contract::new);
+        List<CallTransaction.Function> events = Arrays.stream(contract.functions)
+                .filter(func -> func.type == CallTransaction.FunctionType.event && eventName.equals(func.name))
+                .collect(Collectors.toList());
+        if (events.isEmpty()) {
+            throw new EthereumApiException("the event " + eventName + " cannot be found in the ABI");
+        }
+        return events;
     }
 
     public CompletableFuture<EthAddress> publishContract(EthValue ethValue, EthData data, EthAccount account) {
@@ -95,44 +138,197 @@ public class EthereumProxy {
                 .thenApply(receipt -> new EthExecutionResult(receipt.executionResult));
     }
 
+    public List<CompletableFuture<EthExecutionResult>> sendBatch(EthAccount account, List<TransactionRequest> requests) {
+        return sendBatchInternal(account, requests).stream()
+                .map(result -> result.thenApply(receipt -> new EthExecutionResult(receipt.executionResult)))
+                .collect(Collectors.toList());
+    }
+
+    public TransactionBatch batch(EthAccount account) {
+        return new TransactionBatch(this, account);
+    }
+
     private CompletableFuture<TransactionReceipt> sendTxInternal(EthValue value, EthData data, EthAccount account, EthAddress toAddress) {
-        return eventHandler.ready().thenCompose((v) -> {
-            BigInteger gasLimit = estimateGas(value, data, account, toAddress);
-            EthHash txHash = ethereum.submit(account, toAddress, value, data, getNonce(account.getAddress()), gasLimit);
-
-            long currentBlock = eventHandler.getCurrentBlockNumber();
-
-            CompletableFuture<TransactionReceipt> result = CompletableFuture.supplyAsync(() -> {
-                Observable<OnTransactionParameters> droppedTxs = eventHandler.observeTransactions()
-                        .filter(params -> params.receipt != null && Objects.equals(params.receipt.hash, txHash) && params.status == TransactionStatus.Dropped);
-                Observable<OnTransactionParameters> timeoutBlock = eventHandler.observeBlocks()
-                        .filter(blockParams -> blockParams.blockNumber > currentBlock + BLOCK_WAIT_LIMIT)
-                        .map(params -> null);
-                Observable<OnTransactionParameters> blockTxs = eventHandler.observeBlocks()
-                        .flatMap(params -> Observable.from(params.receipts))
-                        .filter(receipt -> Objects.equals(receipt.hash, txHash))
-                        .map(this::createTransactionParameters);
-
-                return Observable.merge(droppedTxs, blockTxs, timeoutBlock)
-                        .map(params -> {
-                            if (params == null) {
-                                throw new EthereumApiException("the transaction has not been included in the last " + BLOCK_WAIT_LIMIT + " blocks");
-                            }
-                            TransactionReceipt receipt = params.receipt;
-                            if (params.status == TransactionStatus.Dropped) {
-                                throw new EthereumApiException("the transaction has been dropped! - " + params.receipt.error);
-                            }
-                            return checkForErrors(receipt);
-                        }).toBlocking().first();
+        EthAddress sender = account.getAddress();
+        return eventHandler.ready()
+                .thenCompose((v) -> transactionWindow.acquire(sender, 1))
+                .thenCompose((v) -> {
+                    BigInteger gasLimit;
+                    BigInteger gasPrice = gasPriceOracle.getGasPrice();
+                    BigInteger nonce;
+                    EthHash txHash;
+                    try {
+                        gasLimit = estimateGas(value, data, account, toAddress);
+                        nonce = nonceManager.take(sender);
+                        try {
+                            txHash = ethereum.submit(account, toAddress, value, data, nonce, gasPrice, gasLimit);
+                        } catch (RuntimeException | IOError e) {
+                            releaseNonce(sender, nonce, e);
+                            throw e;
+                        }
+                    } catch (RuntimeException | IOError e) {
+                        transactionWindow.release(sender, 1);
+                        throw e;
+                    }
+
+                    return track(account, nonce, txHash, new TransactionRequest(toAddress, value, data).withGasLimit(gasLimit), gasPrice);
+                });
+    }
+
+    private List<CompletableFuture<TransactionReceipt>> sendBatchInternal(EthAccount account, List<TransactionRequest> requests) {
+        List<CompletableFuture<TransactionReceipt>> results = requests.stream()
+                .map(request -> new CompletableFuture<TransactionReceipt>())
+                .collect(Collectors.toList());
+        if (requests.isEmpty()) {
+            return results;
+        }
+
+        EthAddress sender = account.getAddress();
+        eventHandler.ready()
+                .thenCompose((v) -> transactionWindow.acquire(sender, requests.size()))
+                .thenRun(() -> submitBatch(account, sender, requests, results))
+                .exceptionally(error -> {
+                    results.forEach(result -> result.completeExceptionally(error));
+                    return null;
+                });
+
+        return results;
+    }
 
+    private void submitBatch(EthAccount account, EthAddress sender, List<TransactionRequest> requests, List<CompletableFuture<TransactionReceipt>> results) {
+        List<TransactionRequest> preparedRequests;
+        BigInteger gasPrice = gasPriceOracle.getGasPrice();
+        BigInteger firstNonce;
+        List<CompletableFuture<EthHash>> hashes;
+        try {
+            preparedRequests = estimateGas(account, requests);
+            firstNonce = nonceManager.take(sender, requests.size());
+            try {
+                hashes = ethereum.submit(account, preparedRequests, gasPrice, firstNonce);
+            } catch (RuntimeException | IOError e) {
+                //the batch may have reached the node, none of its nonces can be handed out again
+                nonceManager.resync(sender, requests.size());
+                throw e;
+            }
+        } catch (RuntimeException | IOError e) {
+            transactionWindow.release(sender, requests.size());
+            throw e;
+        }
+        for (int i = 0; i < hashes.size(); i++) {
+            BigInteger nonce = firstNonce.add(BigInteger.valueOf(i));
+            TransactionRequest request = preparedRequests.get(i);
+            CompletableFuture<TransactionReceipt> result = results.get(i);
+            hashes.get(i).whenComplete((txHash, error) -> {
+                if (error == null) {
+                    track(account, nonce, txHash, request, gasPrice).whenComplete((receipt, trackError) -> complete(result, receipt, trackError));
+                } else {
+                    releaseNonce(sender, nonce, error);
+                    transactionWindow.release(sender, 1);
+                    result.completeExceptionally(error);
+                }
             });
-            increasePendingTransactionCounter(account.getAddress(), txHash);
-            return result;
-        });
+        }
+    }
+
+    private CompletableFuture<TransactionReceipt> track(EthAccount account, BigInteger nonce, EthHash txHash, TransactionRequest request, BigInteger gasPrice) {
+        EthAddress sender = account.getAddress();
+        long currentBlockNumber = eventHandler.getCurrentBlockNumber();
+        CompletableFuture<TransactionReceipt> result = transactionRegistry.register(txHash, currentBlockNumber);
+        transactionReplacer.watch(account, nonce, request, gasPrice, txHash, currentBlockNumber);
+        result.whenCompleteAsync((receipt, error) -> {
+            transactionWindow.release(sender, 1);
+            if (error == null) {
+                nonceManager.confirm(sender);
+                learnGasUsed(sender, request, receipt);
+            } else {
+                releaseNonce(sender, nonce, error);
+            }
+        }, executor);
+        return result.thenApplyAsync(this::checkForErrors, executor);
+    }
+
+    /**
+     * the nonce is only reused when the transaction can never be included: the node answered with an error or dropped it.
+     * Otherwise (timeout, IO error after sending) the transaction may still be in the pool of the node
+     */
+    private void releaseNonce(EthAddress sender, BigInteger nonce, Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof EthereumApiException && !(cause instanceof TransactionTimeoutException)) {
+            nonceManager.giveBack(sender, nonce);
+        } else {
+            nonceManager.resync(sender);
+        }
+    }
+
+    private void complete(CompletableFuture<TransactionReceipt> result, TransactionReceipt receipt, Throwable error) {
+        if (error == null) {
+            result.complete(receipt);
+        } else {
+            result.completeExceptionally(error);
+        }
+    }
+
+    private void learnGasUsed(EthAddress sender, TransactionRequest request, TransactionReceipt receipt) {
+        if (receipt.isSuccessful && receipt.gasUsed.signum() > 0) {
+            gasEstimates.record(sender, request.getAddress(), request.getValue(), request.getData(), receipt.gasUsed);
+        } else if (receipt.gasUsed.compareTo(request.getGasLimit()) >= 0) {
+            gasEstimates.invalidate(request.getAddress(), request.getData());
+        }
     }
 
     private BigInteger estimateGas(EthValue value, EthData data, EthAccount account, EthAddress toAddress) {
-        BigInteger gasLimit = ethereum.estimateGas(account, toAddress, value, data);
+        return gasEstimates.get(account.getAddress(), toAddress, value, data)
+                .orElseGet(() -> addAdditionalGas(ethereum.estimateGas(account, toAddress, value, data), toAddress));
+    }
+
+    private List<TransactionRequest> estimateGas(EthAccount account, List<TransactionRequest> requests) {
+        List<TransactionRequest> result = new ArrayList<>(requests);
+        List<Integer> toEstimate = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            TransactionRequest request = requests.get(i);
+            Optional<BigInteger> gasLimit = gasEstimates.get(account.getAddress(), request.getAddress(), request.getValue(), request.getData());
+            if (gasLimit.isPresent()) {
+                result.set(i, request.withGasLimit(gasLimit.get()));
+            } else {
+                toEstimate.add(i);
+            }
+        }
+
+        if (!toEstimate.isEmpty()) {
+            List<BigInteger> gasLimits = ethereum.estimateGas(account, toEstimate.stream().map(requests::get).collect(Collectors.toList()));
+            for (int i = 0; i < toEstimate.size(); i++) {
+                TransactionRequest request = requests.get(toEstimate.get(i));
+                result.set(toEstimate.get(i), request.withGasLimit(addAdditionalGas(gasLimits.get(i), request.getAddress())));
+            }
+        }
+        return result;
+    }
+
+    public GasEstimateCache gasEstimates() {
+        return gasEstimates;
+    }
+
+    public GasPriceOracle gasPrices() {
+        return gasPriceOracle;
+    }
+
+    public TransactionWindow transactionWindow() {
+        return transactionWindow;
+    }
+
+    /**
+     * @param policy null to never replace a transaction (the default)
+     */
+    public void replacementPolicy(ReplacementPolicy policy) {
+        transactionReplacer.policy(policy);
+    }
+
+    public ReplacementPolicy getReplacementPolicy() {
+        return transactionReplacer.getPolicy();
+    }
+
+    private BigInteger addAdditionalGas(BigInteger estimatedGas, EthAddress toAddress) {
+        BigInteger gasLimit = estimatedGas;
         //if it is a contract creation
         if (toAddress.isEmpty()) {
             gasLimit = gasLimit.add(BigInteger.valueOf(ADDITIONAL_GAS_FOR_CONTRACT_CREATION));
@@ -140,10 +336,6 @@ public class EthereumProxy {
         return gasLimit.add(BigInteger.valueOf(ADDITIONAL_GAS_DIRTY_FIX));
     }
 
-    private OnTransactionParameters createTransactionParameters(TransactionReceipt receipt) {
-        return new OnTransactionParameters(receipt, TransactionStatus.Executed, new ArrayList<>());
-    }
-
     private TransactionReceipt checkForErrors(final TransactionReceipt receipt) {
         if (receipt.isSuccessful) {
             return receipt;
@@ -152,26 +344,6 @@ public class EthereumProxy {
         }
     }
 
-    private void updateNonce() {
-        eventHandler.observeTransactions()
-                .filter(tx -> tx.status == TransactionStatus.Dropped)
-                .forEach(params -> {
-                    EthAddress currentAddress = params.receipt.sender;
-                    EthHash hash = params.receipt.hash;
-                    Optional.ofNullable(pendingTransactions.get(currentAddress)).ifPresent(hashes -> {
-                        hashes.remove(hash);
-                        nonces.put(currentAddress, ethereum.getNonce(currentAddress));
-                    });
-                });
-        eventHandler.observeBlocks()
-                .forEach(params -> params.receipts
-                        .forEach(receipt -> Optional.ofNullable(pendingTransactions.get(receipt.sender))
-                                .ifPresent(hashes -> {
-                                    hashes.remove(receipt.hash);
-                                    nonces.put(receipt.sender, ethereum.getNonce(receipt.sender));
-                                })));
-    }
-
     public EthereumEventHandler events() {
         return eventHandler;
     }
@@ -184,9 +356,7 @@ public class EthereumProxy {
         return ethereum.getBalance(address);
     }
 
-    private void increasePendingTransactionCounter(EthAddress address, EthHash hash) {
-        Set<EthHash> hashes = pendingTransactions.computeIfAbsent(address, (key) -> Collections.synchronizedSet(new HashSet<>()));
-        hashes.add(hash);
-        pendingTransactions.put(address, hashes);
+    public Map<EthAddress, EthValue> getBalances(Collection<EthAddress> addresses) {
+        return ethereum.getBalances(addresses);
     }
 }
@@ -0,0 +1,121 @@
+package org.adridadou.ethereum;
+
+import org.adridadou.ethereum.converters.output.OutputTypeHandler;
+import org.adridadou.ethereum.event.LogEntry;
+import org.adridadou.ethereum.values.EthAddress;
+import org.adridadou.ethereum.values.EthData;
+import org.adridadou.exception.EthereumApiException;
+import org.adridadou.exception.LogRangeTooLargeException;
+import org.ethereum.core.CallTransaction;
+import org.ethereum.vm.LogInfo;
+import rx.Observable;
+import rx.schedulers.Schedulers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Created by davidroon on 14.04.17.
+ * This code is released under Apache 2 license
+ *
+ * Reads the past events of a contract. The block range is split in chunks read concurrently with eth_getLogs,
+ * a chunk with too many logs for the node is halved until it can be read. The events are emitted in block order
+ */
+public class EventBackfill<T> {
+    public static final long DEFAULT_CHUNK_SIZE = 10_000;
+    public static final int DEFAULT_PARALLELISM = 4;
+
+    private final EthereumBackend ethereum;
+    private final OutputTypeHandler outputTypeHandler;
+    private final EthAddress address;
+    private final List<EthData> topics;
+    private final Map<String, CallTransaction.Function> eventByTopic;
+    private final Class<T> cls;
+    private long fromBlock = 0;
+    private Long toBlock;
+    private long chunkSize = DEFAULT_CHUNK_SIZE;
+    private int parallelism = DEFAULT_PARALLELISM;
+
+    EventBackfill(EthereumBackend ethereum, OutputTypeHandler outputTypeHandler, EthAddress address, List<CallTransaction.Function> events, Class<T> cls) {
+        this.ethereum = ethereum;
+        this.outputTypeHandler = outputTypeHandler;
+        this.address = address;
+        this.topics = events.stream().map(event -> EthData.of(event.encodeSignatureLong())).collect(Collectors.toList());
+        this.eventByTopic = events.stream().collect(Collectors.toMap(event -> EthData.of(event.encodeSignatureLong()).toString(), event -> event, (a, b) -> a));
+        this.cls = cls;
+    }
+
+    public EventBackfill<T> fromBlock(long fromBlock) {
+        this.fromBlock = fromBlock;
+        return this;
+    }
+
+    /**
+     * by default, the current block when the backfill starts
+     */
+    public EventBackfill<T> toBlock(long toBlock) {
+        this.toBlock = toBlock;
+        return this;
+    }
+
+    public EventBackfill<T> chunkSize(long chunkSize) {
+        if (chunkSize < 1) {
+            throw new EthereumApiException("the chunk size should be at least 1");
+        }
+        this.chunkSize = chunkSize;
+        return this;
+    }
+
+    public EventBackfill<T> parallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new EthereumApiException("the parallelism should be at least 1");
+        }
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * nothing is read before the subscription
+     */
+    public Observable<T> observe() {
+        return Observable.defer(() -> observeLogs(fromBlock, toBlock != null ? toBlock : ethereum.getCurrentBlockNumber()))
+                .map(this::decode);
+    }
+
+    Observable<LogEntry> observeLogs(long firstBlock, long lastBlock) {
+        List<long[]> chunks = new ArrayList<>();
+        for (long start = firstBlock; start <= lastBlock; start += chunkSize) {
+            chunks.add(new long[]{start, Math.min(lastBlock, start + chunkSize - 1)});
+        }
+        return Observable.from(chunks)
+                .concatMapEager(chunk -> Observable.fromCallable(() -> getLogs(chunk[0], chunk[1]))
+                        .subscribeOn(Schedulers.io()), parallelism, parallelism)
+                .concatMapIterable(logs -> logs);
+    }
+
+    private List<LogEntry> getLogs(long from, long to) {
+        try {
+            return ethereum.getLogs(address, topics, from, to);
+        } catch (LogRangeTooLargeException e) {
+            if (from == to) {
+                throw e;
+            }
+            long middle = from + (to - from) / 2;
+            List<LogEntry> result = new ArrayList<>(getLogs(from, middle));
+            result.addAll(getLogs(middle + 1, to));
+            return result;
+        }
+    }
+
+    T decode(LogEntry entry) {
+        LogInfo log = entry.log;
+        String topic = EthData.of(log.getTopics().get(0).getData()).toString();
+        CallTransaction.Function event = eventByTopic.get(topic);
+        if (event == null) {
+            throw new EthereumApiException("unexpected log with topic " + topic);
+        }
+        return outputTypeHandler.convertSpecificType(event.decodeEventData(log.getData()), cls);
+    }
+}
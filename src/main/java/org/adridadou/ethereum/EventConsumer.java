@@ -0,0 +1,67 @@
+package org.adridadou.ethereum;
+
+import org.adridadou.ethereum.event.EthereumEventHandler;
+import org.adridadou.ethereum.event.EventCheckpointStore;
+import org.adridadou.ethereum.event.EventCursor;
+
+import rx.Observable;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Created by davidroon on 15.04.17.
+ * This code is released under Apache 2 license
+ *
+ * A named and durable subscription to the events of a contract. It starts after the last event acked by this consumer
+ * (see {@link EventCheckpointStore}), reads what has been missed with an {@link EventBackfill} and then reads each new block.
+ * The delivery is at least once: the events after the last ack are delivered again after a restart
+ */
+public class EventConsumer<T> {
+    private final String name;
+    private final EventCheckpointStore store;
+    private final EventBackfill<T> backfill;
+    private final EthereumBackend ethereum;
+    private final EthereumEventHandler eventHandler;
+    private long fromBlock = 0;
+
+    EventConsumer(String name, EventCheckpointStore store, EventBackfill<T> backfill, EthereumBackend ethereum, EthereumEventHandler eventHandler) {
+        this.name = name;
+        this.store = store;
+        this.backfill = backfill;
+        this.ethereum = ethereum;
+        this.eventHandler = eventHandler;
+    }
+
+    /**
+     * where to start when the consumer has never acked anything
+     */
+    public EventConsumer<T> fromBlock(long fromBlock) {
+        this.fromBlock = fromBlock;
+        return this;
+    }
+
+    public EventBackfill<T> backfill() {
+        return backfill;
+    }
+
+    public Observable<ConsumedEvent<T>> observe() {
+        return Observable.defer(() -> {
+            Optional<EventCursor> checkpoint = store.get(name);
+            AtomicLong nextBlock = new AtomicLong(checkpoint.map(cursor -> cursor.blockNumber).orElse(fromBlock));
+            Observable<Long> heads = Observable.just(ethereum.getCurrentBlockNumber())
+                    .concatWith(eventHandler.observeBlocks().map(block -> block.blockNumber))
+                    .onBackpressureLatest();
+            return heads.concatMap(head -> {
+                long from = nextBlock.get();
+                if (head < from) {
+                    return Observable.empty();
+                }
+                nextBlock.set(head + 1);
+                return backfill.observeLogs(from, head);
+            })
+                    .filter(entry -> checkpoint.map(cursor -> entry.getCursor().isAfter(cursor)).orElse(true))
+                    .map(entry -> new ConsumedEvent<>(backfill.decode(entry), entry.getCursor(), name, store));
+        });
+    }
+}
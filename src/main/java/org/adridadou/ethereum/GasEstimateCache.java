@@ -0,0 +1,182 @@
+package org.adridadou.ethereum;
+
+import org.adridadou.ethereum.values.EthAddress;
+import org.adridadou.ethereum.values.EthData;
+import org.adridadou.ethereum.values.EthValue;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Created by davidroon on 29.03.17.
+ * This code is released under Apache 2 license
+ *
+ * Learns the gas used by each function (contract address + 4 bytes selector) from the receipts.
+ * Once enough samples have been seen, the gas limit is the configured percentile of the observed gas used plus a headroom
+ * and no estimation is done anymore. A fixed gas limit can be set per function, see {@link org.adridadou.ethereum.values.GasLimit}
+ *
+ * The samples are kept per function, sender and whether ether is sent, since a contract often takes another path
+ * for its owner or for a payment. The arguments are not part of the key: the gas used by the same function with other arguments
+ * is covered by the percentile and the headroom, and a transaction running out of gas drops the samples of the function.
+ * A function whose gas depends a lot on its arguments (loops over an input array) should get a {@link org.adridadou.ethereum.values.GasLimit}
+ * or a higher headroom
+ */
+public class GasEstimateCache {
+    public static final int SELECTOR_SIZE = 4;
+    public static final int MAX_SAMPLES = 32;
+    public static final int DEFAULT_MIN_SAMPLES = 3;
+    public static final double DEFAULT_PERCENTILE = 0.95;
+    public static final double DEFAULT_HEADROOM = 0.2;
+
+    private final Map<FunctionKey, BigInteger> overrides = new ConcurrentHashMap<>();
+    private final Map<SampleKey, Samples> samples = new ConcurrentHashMap<>();
+    private volatile int minSamples = DEFAULT_MIN_SAMPLES;
+    private volatile double percentile = DEFAULT_PERCENTILE;
+    private volatile double headroom = DEFAULT_HEADROOM;
+
+    public GasEstimateCache minSamples(int minSamples) {
+        this.minSamples = Math.max(1, Math.min(minSamples, MAX_SAMPLES));
+        return this;
+    }
+
+    /**
+     * @param percentile between 0 and 1
+     */
+    public GasEstimateCache percentile(double percentile) {
+        this.percentile = Math.max(0, Math.min(percentile, 1));
+        return this;
+    }
+
+    /**
+     * @param headroom ratio added on top of the percentile, 0.2 means +20%
+     */
+    public GasEstimateCache headroom(double headroom) {
+        this.headroom = Math.max(0, headroom);
+        return this;
+    }
+
+    public GasEstimateCache override(EthAddress address, byte[] selector, BigInteger gasLimit) {
+        overrides.put(new FunctionKey(address, selector), gasLimit);
+        return this;
+    }
+
+    public Optional<BigInteger> get(EthAddress sender, EthAddress address, EthValue value, EthData data) {
+        return key(address, data).flatMap(key -> {
+            BigInteger override = overrides.get(key);
+            if (override != null) {
+                return Optional.of(override);
+            }
+            return Optional.ofNullable(samples.get(new SampleKey(key, sender, value))).flatMap(this::estimate);
+        });
+    }
+
+    public void record(EthAddress sender, EthAddress address, EthValue value, EthData data, BigInteger gasUsed) {
+        key(address, data).ifPresent(key -> samples.computeIfAbsent(new SampleKey(key, sender, value), k -> new Samples()).add(gasUsed.longValue()));
+    }
+
+    /**
+     * the learned values are not good anymore for this function, for example when a transaction ran out of gas.
+     * The samples of every sender are dropped
+     */
+    public void invalidate(EthAddress address, EthData data) {
+        key(address, data).ifPresent(key -> samples.keySet().removeIf(sampleKey -> sampleKey.function.equals(key)));
+    }
+
+    private Optional<BigInteger> estimate(Samples functionSamples) {
+        long[] values = functionSamples.values();
+        if (values.length < minSamples) {
+            return Optional.empty();
+        }
+        Arrays.sort(values);
+        int index = (int) Math.ceil(percentile * values.length) - 1;
+        long value = values[Math.max(0, Math.min(index, values.length - 1))];
+        return Optional.of(BigDecimal.valueOf(value)
+                .multiply(BigDecimal.valueOf(1 + headroom))
+                .setScale(0, RoundingMode.CEILING)
+                .toBigInteger());
+    }
+
+    private Optional<FunctionKey> key(EthAddress address, EthData data) {
+        if (address.isEmpty() || data.data.length < SELECTOR_SIZE) {
+            return Optional.empty();
+        }
+        return Optional.of(new FunctionKey(address, Arrays.copyOf(data.data, SELECTOR_SIZE)));
+    }
+
+    private static class Samples {
+        private final long[] values = new long[MAX_SAMPLES];
+        private int count;
+        private int position;
+
+        private synchronized void add(long value) {
+            values[position] = value;
+            position = (position + 1) % MAX_SAMPLES;
+            count = Math.min(count + 1, MAX_SAMPLES);
+        }
+
+        private synchronized long[] values() {
+            return Arrays.copyOf(values, count);
+        }
+    }
+
+    private static class FunctionKey {
+        private final EthAddress address;
+        private final byte[] selector;
+
+        private FunctionKey(EthAddress address, byte[] selector) {
+            this.address = address;
+            this.selector = selector;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            FunctionKey that = (FunctionKey) o;
+            return address.equals(that.address) && Arrays.equals(selector, that.selector);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * address.hashCode() + Arrays.hashCode(selector);
+        }
+    }
+
+    private static class SampleKey {
+        private final FunctionKey function;
+        private final EthAddress sender;
+        private final boolean withValue;
+
+        private SampleKey(FunctionKey function, EthAddress sender, EthValue value) {
+            this.function = function;
+            this.sender = sender;
+            this.withValue = !value.isZero();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            SampleKey that = (SampleKey) o;
+            return withValue == that.withValue && function.equals(that.function) && sender.equals(that.sender);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * function.hashCode() + sender.hashCode()) + (withValue ? 1 : 0);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package org.adridadou.ethereum;
+
+import org.adridadou.ethereum.values.EthAddress;
+
+import java.math.BigInteger;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Created by davidroon on 24.03.17.
+ * This code is released under Apache 2 license
+ *
+ * Hands out nonces per account without going to the chain on every transaction.
+ * The chain is only read when an account is seen for the first time and when a nonce is given back or resynced.
+ * A nonce is given back only when its transaction can never be included (rejected by the node, dropped), it is then handed out again first
+ * so the gap gets filled. When the fate of a transaction is unknown (timeout, connection lost after sending), its nonce is never reused:
+ * the account only moves forward to the nonce of the chain.
+ * An account is forgotten when it has no pending transaction anymore, unless a resynced nonce may still be in the pool of the node:
+ * it is then kept until the chain has moved past all the nonces handed out.
+ */
+public class NonceManager {
+    private final EthereumBackend ethereum;
+    private final Map<EthAddress, AccountNonce> accounts = new ConcurrentHashMap<>();
+
+    public NonceManager(EthereumBackend ethereum) {
+        this.ethereum = ethereum;
+    }
+
+    public BigInteger take(final EthAddress address) {
+        AccountNonce nonce = acquire(address, 1);
+        return BigInteger.valueOf(nonce.take());
+    }
+
+    /**
+     * reserves count contiguous nonces. Each of them has to be confirmed, given back or resynced
+     * @return the first nonce of the range
+     */
+    public BigInteger take(final EthAddress address, final int count) {
+        AccountNonce nonce = acquire(address, count);
+        return BigInteger.valueOf(nonce.next.getAndAdd(count));
+    }
+
+    public BigInteger getNonce(final EthAddress address) {
+        return Optional.ofNullable(accounts.get(address))
+                .map(nonce -> BigInteger.valueOf(nonce.peek()))
+                .orElseGet(() -> ethereum.getNonce(address));
+    }
+
+    /**
+     * the transaction using this nonce has been included
+     */
+    public void confirm(final EthAddress address) {
+        Optional.ofNullable(accounts.get(address)).ifPresent(accountNonce -> release(address, accountNonce, 1, false));
+    }
+
+    /**
+     * the transaction using this nonce will never be included. The nonce is given back and the account is synced with the chain
+     */
+    public void giveBack(final EthAddress address, final BigInteger nonce) {
+        Optional.ofNullable(accounts.get(address)).ifPresent(accountNonce -> {
+            accountNonce.giveBack(nonce.longValue());
+            accountNonce.sync(ethereum.getNonce(address).longValue());
+            release(address, accountNonce, 1, true);
+        });
+    }
+
+    /**
+     * the transaction using this nonce may have reached the node. The nonce is not handed out again,
+     * the account only moves forward if the chain is already further
+     */
+    public void resync(final EthAddress address) {
+        resync(address, 1);
+    }
+
+    /**
+     * resync for count transactions, the chain is read once
+     */
+    public void resync(final EthAddress address, final int count) {
+        Optional.ofNullable(accounts.get(address)).ifPresent(accountNonce -> {
+            accountNonce.inDoubt = true;
+            accountNonce.sync(ethereum.getNonce(address).longValue());
+            release(address, accountNonce, count, true);
+        });
+    }
+
+    public int getPendingCount(final EthAddress address) {
+        return Optional.ofNullable(accounts.get(address)).map(nonce -> Math.max(nonce.pending.get(), 0)).orElse(0);
+    }
+
+    int getAccountCount() {
+        return accounts.size();
+    }
+
+    private AccountNonce acquire(final EthAddress address, final int count) {
+        while (true) {
+            AccountNonce nonce = accounts.computeIfAbsent(address, key -> new AccountNonce(ethereum.getNonce(key).longValue()));
+            if (nonce.tryAcquire(count)) {
+                return nonce;
+            }
+            //the entry has just been closed, remove it and start with a fresh one
+            accounts.remove(address, nonce);
+        }
+    }
+
+    /**
+     * @param synced true if the account has just been synced with the chain
+     */
+    private void release(final EthAddress address, final AccountNonce nonce, final int count, final boolean synced) {
+        if (nonce.pending.addAndGet(-count) != 0) {
+            return;
+        }
+        if (nonce.inDoubt && !synced) {
+            //a resynced nonce may still be in the pool, the account is forgotten only once the chain is past it
+            nonce.sync(ethereum.getNonce(address).longValue());
+        }
+        if (!nonce.inDoubt && nonce.pending.compareAndSet(0, AccountNonce.CLOSED)) {
+            accounts.remove(address, nonce);
+        }
+    }
+
+    private static class AccountNonce {
+        private static final int CLOSED = Integer.MIN_VALUE;
+        private final AtomicLong next;
+        private final AtomicInteger pending = new AtomicInteger();
+        private final ConcurrentSkipListSet<Long> released = new ConcurrentSkipListSet<>();
+        private volatile boolean inDoubt;
+
+        private AccountNonce(long next) {
+            this.next = new AtomicLong(next);
+        }
+
+        private boolean tryAcquire(int count) {
+            int current;
+            do {
+                current = pending.get();
+                if (current == CLOSED) {
+                    return false;
+                }
+            } while (!pending.compareAndSet(current, current + count));
+            return true;
+        }
+
+        private long take() {
+            Long nonce = released.pollFirst();
+            return nonce != null ? nonce : next.getAndIncrement();
+        }
+
+        private long peek() {
+            return Optional.ofNullable(released.ceiling(Long.MIN_VALUE)).orElseGet(next::get);
+        }
+
+        private void giveBack(long nonce) {
+            released.add(nonce);
+        }
+
+        private void sync(long chainNonce) {
+            next.accumulateAndGet(chainNonce, Math::max);
+            released.headSet(chainNonce).clear();
+            if (chainNonce >= next.get()) {
+                inDoubt = false;
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package org.adridadou.ethereum;
+
+import org.adridadou.ethereum.values.EthValue;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+
+/**
+ * Created by davidroon on 04.04.17.
+ * This code is released under Apache 2 license
+ *
+ * When a transaction has not been included after some blocks, it is signed again with the same nonce and a higher gas price.
+ * Nodes only accept a replacement if the gas price is at least 10% higher, the default bump is 12.5%
+ */
+public class ReplacementPolicy {
+    public static final double DEFAULT_BUMP = 0.125;
+    public static final int DEFAULT_MAX_REPLACEMENTS = 3;
+
+    private final long afterBlocks;
+    private final double bump;
+    private final int maxReplacements;
+    private final BigInteger maxGasPrice;
+
+    private ReplacementPolicy(long afterBlocks, double bump, int maxReplacements, BigInteger maxGasPrice) {
+        this.afterBlocks = afterBlocks;
+        this.bump = bump;
+        this.maxReplacements = maxReplacements;
+        this.maxGasPrice = maxGasPrice;
+    }
+
+    public static ReplacementPolicy afterBlocks(long blocks) {
+        return new ReplacementPolicy(Math.max(1, blocks), DEFAULT_BUMP, DEFAULT_MAX_REPLACEMENTS, null);
+    }
+
+    /**
+     * @param bump ratio added to the previous gas price, 0.125 means +12.5%
+     */
+    public ReplacementPolicy bumpBy(double bump) {
+        return new ReplacementPolicy(afterBlocks, Math.max(0, bump), maxReplacements, maxGasPrice);
+    }
+
+    public ReplacementPolicy maxReplacements(int maxReplacements) {
+        return new ReplacementPolicy(afterBlocks, bump, Math.max(0, maxReplacements), maxGasPrice);
+    }
+
+    public ReplacementPolicy maxGasPrice(EthValue maxGasPrice) {
+        return new ReplacementPolicy(afterBlocks, bump, maxReplacements, maxGasPrice.inWei());
+    }
+
+    public long getAfterBlocks() {
+        return afterBlocks;
+    }
+
+    public int getMaxReplacements() {
+        return maxReplacements;
+    }
+
+    /**
+     * @return the gas price of the replacement, at least the current gas price and never above the max gas price
+     */
+    public BigInteger nextGasPrice(BigInteger previousGasPrice, BigInteger currentGasPrice) {
+        BigInteger bumped = new BigDecimal(previousGasPrice)
+                .multiply(BigDecimal.valueOf(1 + bump))
+                .setScale(0, RoundingMode.CEILING)
+                .toBigInteger()
+                .max(currentGasPrice);
+        return maxGasPrice == null ? bumped : bumped.min(maxGasPrice);
+    }
+
+    @Override
+    public String toString() {
+        return "ReplacementPolicy{" +
+                "afterBlocks=" + afterBlocks +
+                ", bump=" + bump +
+                ", maxReplacements=" + maxReplacements +
+                ", maxGasPrice=" + maxGasPrice +
+                '}';
+    }
+}
@@ -2,13 +2,16 @@ package org.adridadou.ethereum;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 import com.google.common.collect.Lists;
+import org.adridadou.ethereum.converters.input.InputTypeHandler;
 import org.adridadou.ethereum.values.EthAccount;
 import org.adridadou.ethereum.values.EthAddress;
 import org.adridadou.ethereum.values.EthData;
+import org.adridadou.ethereum.values.EthExecutionResult;
 import org.adridadou.ethereum.values.EthValue;
 import org.adridadou.exception.EthereumApiException;
 import org.ethereum.core.CallTransaction;
@@ -26,9 +29,18 @@ public class SmartContract {
     private final Contract contract;
     private final EthereumProxy proxy;
     private final EthAccount account;
+    private final ContractFunctions functions;
 
     public SmartContract(Contract contract, EthAccount account, EthAddress address, EthereumProxy proxy, EthereumBackend ethereum) {
+        this(contract, account, address, proxy, ethereum, new InputTypeHandler());
+    }
+
+    /**
+     * @param inputTypeHandler its converters are taken into account to choose between overloads
+     */
+    public SmartContract(Contract contract, EthAccount account, EthAddress address, EthereumProxy proxy, EthereumBackend ethereum, InputTypeHandler inputTypeHandler) {
         this.contract = contract;
+        this.functions = new ContractFunctions(contract.functions, inputTypeHandler);
         this.account = account;
         this.proxy = proxy;
         this.address = address;
@@ -39,10 +51,35 @@ public class SmartContract {
         return Lists.newArrayList(contract.functions);
     }
 
+    /**
+     * @param parameterTypes used to choose between overloads with the same number of parameters
+     */
+    public Optional<CallTransaction.Function> getFunction(String name, Class<?>... parameterTypes) {
+        return functions.find(name, parameterTypes);
+    }
+
+    public Optional<CallTransaction.Function> getFunctionBySelector(byte[] selector) {
+        return functions.bySelector(selector);
+    }
+
+    public Optional<CallTransaction.Function> getFunctionBySignature(String signature) {
+        return functions.bySignature(signature);
+    }
+
     public Object[] callConstFunction(String functionName, EthValue value, Object... args) {
-        CallTransaction.Function func = contract.getByName(functionName);
-        EthData data = EthData.of(func.encode(args));
-        return func.decodeResult(ethereum.constantCall(account,address,value,data).data);
+        return callConstFunction(findFunction(functionName, args), value, args);
+    }
+
+    public Object[] callConstFunction(CallTransaction.Function func, EthValue value, Object... args) {
+        return func.decodeResult(callConstFunctionRaw(func, value, args).data);
+    }
+
+    /**
+     * @return the returned bytes, not decoded
+     */
+    public EthData callConstFunctionRaw(CallTransaction.Function func, EthValue value, Object... args) {
+        EthData data = EthData.of(functions.encoder(func).encode(args));
+        return ethereum.constantCall(account,address,value,data);
     }
 
     public CompletableFuture<Object[]> callFunction(String functionName, Object... args) {
@@ -54,11 +91,25 @@ public class SmartContract {
     }
 
     public CompletableFuture<Object[]> callFunction(EthValue value, String functionName, Object... args) {
-        return Arrays.stream(contract.functions).filter(f-> f.name.equals(functionName) && f.inputs.length == args.length).findFirst().map((func) -> {
-            EthData functionCallBytes = EthData.of(func.encode(args));
-            return proxy.sendTx(value, functionCallBytes, account, address)
-                    .thenApply(receipt -> contract.getByName(functionName).decodeResult(receipt.getResult().data));
-        }).orElseThrow(() -> new EthereumApiException("function " + functionName + " cannot be found. available:" + getAvailableFunctions()));
+        return callFunction(findFunction(functionName, args), value, args);
+    }
+
+    private CallTransaction.Function findFunction(String functionName, Object[] args) {
+        return functions.find(functionName, args)
+                .orElseThrow(() -> new EthereumApiException("function " + functionName + " with " + args.length + " parameters cannot be found. available:" + getAvailableFunctions()));
+    }
+
+    public CompletableFuture<Object[]> callFunction(CallTransaction.Function func, EthValue value, Object... args) {
+        return callFunctionRaw(func, value, args).thenApply(result -> func.decodeResult(result.data));
+    }
+
+    /**
+     * @return the result of the transaction, not decoded
+     */
+    public CompletableFuture<EthData> callFunctionRaw(CallTransaction.Function func, EthValue value, Object... args) {
+        EthData functionCallBytes = EthData.of(functions.encoder(func).encode(args));
+        return proxy.sendTx(value, functionCallBytes, account, address)
+                .thenApply(EthExecutionResult::getResult);
     }
 
     private String getAvailableFunctions() {
@@ -0,0 +1,69 @@
+package org.adridadou.ethereum;
+
+import org.adridadou.ethereum.values.*;
+import org.adridadou.exception.EthereumApiException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Created by davidroon on 27.03.17.
+ * This code is released under Apache 2 license
+ *
+ * Collects transactions sent from one account. Nothing is sent before submit() is called,
+ * then all of them get contiguous nonces, are signed up front and submitted together.
+ */
+public class TransactionBatch {
+    private final EthereumProxy ethereumProxy;
+    private final EthAccount account;
+    private final List<TransactionRequest> requests = new ArrayList<>();
+    private final List<CompletableFuture<EthExecutionResult>> results = new ArrayList<>();
+    private boolean submitted;
+
+    TransactionBatch(EthereumProxy ethereumProxy, EthAccount account) {
+        this.ethereumProxy = ethereumProxy;
+        this.account = account;
+    }
+
+    public CompletableFuture<EthExecutionResult> sendEther(EthAddress to, EthValue value) {
+        return add(TransactionRequest.sendEther(to, value));
+    }
+
+    public CompletableFuture<EthExecutionResult> sendTx(EthValue value, EthData data, EthAddress to) {
+        return add(new TransactionRequest(to, value, data));
+    }
+
+    public synchronized CompletableFuture<EthExecutionResult> add(TransactionRequest request) {
+        if (submitted) {
+            throw new EthereumApiException("the batch has already been submitted");
+        }
+        CompletableFuture<EthExecutionResult> result = new CompletableFuture<>();
+        requests.add(request);
+        results.add(result);
+        return result;
+    }
+
+    public synchronized int size() {
+        return requests.size();
+    }
+
+    public synchronized List<CompletableFuture<EthExecutionResult>> submit() {
+        if (submitted) {
+            throw new EthereumApiException("the batch has already been submitted");
+        }
+        submitted = true;
+        List<CompletableFuture<EthExecutionResult>> submittedResults = ethereumProxy.sendBatch(account, requests);
+        for (int i = 0; i < submittedResults.size(); i++) {
+            CompletableFuture<EthExecutionResult> result = results.get(i);
+            submittedResults.get(i).whenComplete((executionResult, error) -> {
+                if (error == null) {
+                    result.complete(executionResult);
+                } else {
+                    result.completeExceptionally(error);
+                }
+            });
+        }
+        return results;
+    }
+}
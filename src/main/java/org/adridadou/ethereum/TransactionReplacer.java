@@ -0,0 +1,118 @@
+package org.adridadou.ethereum;
+
+import org.adridadou.ethereum.event.EthereumEventHandler;
+import org.adridadou.ethereum.event.OnBlockParameters;
+import org.adridadou.ethereum.event.PendingTransactionRegistry;
+import org.adridadou.ethereum.gasprice.GasPriceOracle;
+import org.adridadou.ethereum.values.EthAccount;
+import org.adridadou.ethereum.values.EthHash;
+import org.adridadou.ethereum.values.TransactionRequest;
+import org.ethereum.core.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigInteger;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executor;
+
+/**
+ * Created by davidroon on 04.04.17.
+ * This code is released under Apache 2 license
+ *
+ * Replaces the transactions that are still pending after the number of blocks set in the replacement policy.
+ * Nothing is replaced as long as no policy is set
+ */
+class TransactionReplacer {
+    private static final Logger log = LoggerFactory.getLogger(TransactionReplacer.class);
+
+    private final EthereumBackend ethereum;
+    private final PendingTransactionRegistry registry;
+    private final GasPriceOracle gasPriceOracle;
+    private final Executor executor;
+    private final ConcurrentSkipListMap<Long, Set<Replaceable>> due = new ConcurrentSkipListMap<>();
+    private volatile ReplacementPolicy policy;
+
+    TransactionReplacer(EthereumBackend ethereum, EthereumEventHandler eventHandler, PendingTransactionRegistry registry, GasPriceOracle gasPriceOracle, Executor executor) {
+        this.ethereum = ethereum;
+        this.registry = registry;
+        this.gasPriceOracle = gasPriceOracle;
+        this.executor = executor;
+        eventHandler.observeBlocks().subscribe(this::onBlock);
+    }
+
+    void policy(ReplacementPolicy policy) {
+        this.policy = policy;
+    }
+
+    ReplacementPolicy getPolicy() {
+        return policy;
+    }
+
+    void watch(EthAccount account, BigInteger nonce, TransactionRequest request, BigInteger gasPrice, EthHash hash, long currentBlockNumber) {
+        ReplacementPolicy current = policy;
+        if (current != null) {
+            schedule(new Replaceable(account, nonce, request, gasPrice, hash, 0), currentBlockNumber + current.getAfterBlocks());
+        }
+    }
+
+    private void schedule(Replaceable tx, long blockNumber) {
+        due.computeIfAbsent(blockNumber, key -> ConcurrentHashMap.newKeySet()).add(tx);
+    }
+
+    private void onBlock(OnBlockParameters block) {
+        ReplacementPolicy current = policy;
+        Map.Entry<Long, Set<Replaceable>> entry = due.firstEntry();
+        while (entry != null && entry.getKey() <= block.blockNumber) {
+            due.remove(entry.getKey());
+            if (current != null) {
+                entry.getValue().stream()
+                        .filter(tx -> registry.isPending(tx.hash))
+                        .forEach(tx -> executor.execute(() -> replace(tx, current, block.blockNumber)));
+            }
+            entry = due.firstEntry();
+        }
+    }
+
+    private void replace(Replaceable tx, ReplacementPolicy policy, long blockNumber) {
+        if (tx.replacements >= policy.getMaxReplacements()) {
+            return;
+        }
+        BigInteger gasPrice = policy.nextGasPrice(tx.gasPrice, gasPriceOracle.getGasPrice());
+        if (gasPrice.compareTo(tx.gasPrice) <= 0) {
+            return;
+        }
+        TransactionRequest request = tx.request;
+        try {
+            Transaction replacement = ethereum.sign(tx.account, request.getAddress(), request.getValue(), request.getData(), tx.nonce, gasPrice, request.getGasLimit());
+            EthHash hash = EthHash.of(replacement.getHash());
+            if (registry.replace(tx.hash, hash, blockNumber, () -> ethereum.submit(tx.account, replacement))) {
+                log.info("transaction " + tx.hash.withLeading0x() + " replaced by " + hash.withLeading0x() + " with gas price " + gasPrice);
+                schedule(new Replaceable(tx.account, tx.nonce, request, gasPrice, hash, tx.replacements + 1), blockNumber + policy.getAfterBlocks());
+            }
+        } catch (RuntimeException e) {
+            //most probably the original has been included in the meantime, it is still followed
+            log.warn("error while replacing the transaction " + tx.hash.withLeading0x(), e);
+        }
+    }
+
+    private static class Replaceable {
+        private final EthAccount account;
+        private final BigInteger nonce;
+        private final TransactionRequest request;
+        private final BigInteger gasPrice;
+        private final EthHash hash;
+        private final int replacements;
+
+        private Replaceable(EthAccount account, BigInteger nonce, TransactionRequest request, BigInteger gasPrice, EthHash hash, int replacements) {
+            this.account = account;
+            this.nonce = nonce;
+            this.request = request;
+            this.gasPrice = gasPrice;
+            this.hash = hash;
+            this.replacements = replacements;
+        }
+    }
+}
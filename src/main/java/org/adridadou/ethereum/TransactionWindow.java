@@ -0,0 +1,159 @@
+package org.adridadou.ethereum;
+
+import org.adridadou.ethereum.values.EthAddress;
+import org.adridadou.exception.EthereumApiException;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Created by davidroon on 03.04.17.
+ * This code is released under Apache 2 license
+ *
+ * Limits the number of transactions each account has in flight (submitted and not yet included or failed).
+ * When the window is full, the transaction either waits in a per account queue for a slot (the default)
+ * or fails right away if failFast is set. Nothing blocks a thread while waiting, the returned future completes once a slot is free.
+ * By default there is no limit. The window of an account is dropped as soon as it has nothing in flight nor queued
+ */
+public class TransactionWindow {
+    private final Map<EthAddress, AccountWindow> accounts = new ConcurrentHashMap<>();
+    private volatile int maxInFlight = Integer.MAX_VALUE;
+    private volatile boolean failFast;
+
+    public TransactionWindow maxInFlight(int maxInFlight) {
+        this.maxInFlight = Math.max(1, maxInFlight);
+        accounts.values().forEach(AccountWindow::drain);
+        return this;
+    }
+
+    public TransactionWindow failFast(boolean failFast) {
+        this.failFast = failFast;
+        return this;
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    /**
+     * asks for count slots, each of them has to be released once its transaction is done.
+     * A request bigger than the window is let through when nothing else is in flight
+     */
+    public CompletableFuture<Void> acquire(EthAddress address, int count) {
+        while (true) {
+            //a window evicted in the meantime does not take any request, a new one is created
+            CompletableFuture<Void> result = accounts.computeIfAbsent(address, key -> new AccountWindow(key)).acquire(count);
+            if (result != null) {
+                return result;
+            }
+        }
+    }
+
+    public void release(EthAddress address, int count) {
+        Optional.ofNullable(accounts.get(address)).ifPresent(window -> {
+            window.release(count);
+            accounts.computeIfPresent(address, (key, current) -> current.evictIfIdle() ? null : current);
+        });
+    }
+
+    public int getInFlight(EthAddress address) {
+        return Optional.ofNullable(accounts.get(address)).map(AccountWindow::getInFlight).orElse(0);
+    }
+
+    /**
+     * @return how many transactions are waiting for a slot
+     */
+    public int getQueueDepth(EthAddress address) {
+        return Optional.ofNullable(accounts.get(address)).map(AccountWindow::getQueueDepth).orElse(0);
+    }
+
+    int getAccountCount() {
+        return accounts.size();
+    }
+
+    private class AccountWindow {
+        private final EthAddress address;
+        private final Deque<Waiter> waiters = new ArrayDeque<>();
+        private int inFlight;
+        private int queued;
+        private boolean evicted;
+
+        private AccountWindow(EthAddress address) {
+            this.address = address;
+        }
+
+        private CompletableFuture<Void> acquire(int count) {
+            Waiter waiter = new Waiter(count);
+            synchronized (this) {
+                if (evicted) {
+                    return null;
+                }
+                if (waiters.isEmpty() && fits(count)) {
+                    inFlight += waiter.count;
+                    return CompletableFuture.completedFuture(null);
+                }
+                if (failFast) {
+                    CompletableFuture<Void> result = new CompletableFuture<>();
+                    result.completeExceptionally(new EthereumApiException("too many transactions in flight for " + address.withLeading0x() + ". max:" + maxInFlight));
+                    return result;
+                }
+                waiters.addLast(waiter);
+                queued += waiter.count;
+            }
+            return waiter.result;
+        }
+
+        private void release(int count) {
+            synchronized (this) {
+                inFlight = Math.max(0, inFlight - count);
+            }
+            drain();
+        }
+
+        private void drain() {
+            List<Waiter> ready = new ArrayList<>();
+            synchronized (this) {
+                while (!waiters.isEmpty() && fits(waiters.peekFirst().count)) {
+                    Waiter waiter = waiters.pollFirst();
+                    inFlight += waiter.count;
+                    queued -= waiter.count;
+                    ready.add(waiter);
+                }
+            }
+            //completed outside of the lock, the continuations submit the transactions
+            ready.forEach(waiter -> waiter.result.complete(null));
+        }
+
+        private synchronized boolean evictIfIdle() {
+            evicted = inFlight == 0 && waiters.isEmpty();
+            return evicted;
+        }
+
+        private boolean fits(int count) {
+            return inFlight == 0 || inFlight + count <= maxInFlight;
+        }
+
+        private synchronized int getInFlight() {
+            return inFlight;
+        }
+
+        private synchronized int getQueueDepth() {
+            return queued;
+        }
+    }
+
+    private static class Waiter {
+        private final int count;
+        private final CompletableFuture<Void> result = new CompletableFuture<>();
+
+        private Waiter(int count) {
+            this.count = count;
+        }
+    }
+}
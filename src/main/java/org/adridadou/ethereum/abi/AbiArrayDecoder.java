@@ -0,0 +1,255 @@
+package org.adridadou.ethereum.abi;
+
+import org.adridadou.ethereum.values.EthAddress;
+import org.adridadou.exception.EthereumApiException;
+import org.ethereum.core.CallTransaction;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.math.BigInteger;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.RandomAccess;
+
+import static org.adridadou.ethereum.abi.AbiEncoder.WORD_SIZE;
+
+/**
+ * Created by davidroon on 10.04.17.
+ * This code is released under Apache 2 license
+ *
+ * Decodes a function returning a single dynamic array of static values (uint256[], address[], bytes32[], bool[] ...)
+ * straight from the returned bytes into the declared java type, without the Object[] of BigInteger created by ethereumj.
+ * Supported java types: long[], int[], boolean[], byte[][], EthAddress[] and List of Long, Integer, BigInteger, Boolean,
+ * EthAddress or byte[]. A List is a read only view on the returned bytes, each element is decoded when it is read.
+ * The values are the same as the ones given by the output converters (a long / int keeps the lowest bits of the word)
+ */
+public final class AbiArrayDecoder {
+    private static final int ADDRESS_SIZE = 20;
+
+    private enum Element {
+        INT, ADDRESS, BOOL, BYTES
+    }
+
+    private enum Target {
+        LONG_ARRAY, INT_ARRAY, BOOLEAN_ARRAY, BYTES_ARRAY, ADDRESS_ARRAY,
+        LONG_LIST, INTEGER_LIST, BIG_INTEGER_LIST, BOOLEAN_LIST, ADDRESS_LIST, BYTES_LIST
+    }
+
+    private final Element element;
+    private final Target target;
+    private final boolean signed;
+
+    private AbiArrayDecoder(Element element, Target target, boolean signed) {
+        this.element = element;
+        this.target = target;
+        this.signed = signed;
+    }
+
+    /**
+     * @return empty if the function output or the java type is not handled here, the output converters are used in this case
+     */
+    public static Optional<AbiArrayDecoder> of(CallTransaction.Function function, Class<?> returnType, Type genericReturnType) {
+        if (function.outputs == null || function.outputs.length != 1) {
+            return Optional.empty();
+        }
+        String type = function.outputs[0].type.getCanonicalName();
+        return element(type)
+                .flatMap(element -> target(element, returnType, genericReturnType)
+                        .map(target -> new AbiArrayDecoder(element, target, type.startsWith("int"))));
+    }
+
+    private static Optional<Element> element(String type) {
+        if (!type.endsWith("[]") || type.indexOf('[') != type.length() - 2) {
+            return Optional.empty();
+        }
+        String elementType = type.substring(0, type.length() - 2);
+        if (elementType.startsWith("int") || elementType.startsWith("uint")) {
+            return Optional.of(Element.INT);
+        }
+        if ("address".equals(elementType)) {
+            return Optional.of(Element.ADDRESS);
+        }
+        if ("bool".equals(elementType)) {
+            return Optional.of(Element.BOOL);
+        }
+        if (elementType.startsWith("bytes") && !"bytes".equals(elementType)) {
+            return Optional.of(Element.BYTES);
+        }
+        return Optional.empty();
+    }
+
+    private static Optional<Target> target(Element element, Class<?> returnType, Type genericReturnType) {
+        if (List.class.equals(returnType)) {
+            if (!(genericReturnType instanceof ParameterizedType)) {
+                return Optional.empty();
+            }
+            Type elementType = ((ParameterizedType) genericReturnType).getActualTypeArguments()[0];
+            return listTarget(element, elementType);
+        }
+        if (long[].class.equals(returnType) && element == Element.INT) {
+            return Optional.of(Target.LONG_ARRAY);
+        }
+        if (int[].class.equals(returnType) && element == Element.INT) {
+            return Optional.of(Target.INT_ARRAY);
+        }
+        if (boolean[].class.equals(returnType) && element == Element.BOOL) {
+            return Optional.of(Target.BOOLEAN_ARRAY);
+        }
+        if (byte[][].class.equals(returnType) && (element == Element.BYTES || element == Element.ADDRESS)) {
+            return Optional.of(Target.BYTES_ARRAY);
+        }
+        if (EthAddress[].class.equals(returnType) && element == Element.ADDRESS) {
+            return Optional.of(Target.ADDRESS_ARRAY);
+        }
+        return Optional.empty();
+    }
+
+    private static Optional<Target> listTarget(Element element, Type elementType) {
+        if (Long.class.equals(elementType) && element == Element.INT) {
+            return Optional.of(Target.LONG_LIST);
+        }
+        if (Integer.class.equals(elementType) && element == Element.INT) {
+            return Optional.of(Target.INTEGER_LIST);
+        }
+        if (BigInteger.class.equals(elementType) && element == Element.INT) {
+            return Optional.of(Target.BIG_INTEGER_LIST);
+        }
+        if (Boolean.class.equals(elementType) && element == Element.BOOL) {
+            return Optional.of(Target.BOOLEAN_LIST);
+        }
+        if (EthAddress.class.equals(elementType) && element == Element.ADDRESS) {
+            return Optional.of(Target.ADDRESS_LIST);
+        }
+        if (byte[].class.equals(elementType) && (element == Element.BYTES || element == Element.ADDRESS)) {
+            return Optional.of(Target.BYTES_LIST);
+        }
+        return Optional.empty();
+    }
+
+    public Object decode(byte[] encoded) {
+        int offset = readLength(encoded, 0);
+        int length = readLength(encoded, offset);
+        int start = offset + WORD_SIZE;
+        if (length > (encoded.length - start) / WORD_SIZE) {
+            throw new EthereumApiException("the returned array has " + length + " elements but only " + encoded.length + " bytes");
+        }
+        switch (target) {
+            case LONG_ARRAY:
+                long[] longs = new long[length];
+                for (int i = 0; i < length; i++) {
+                    longs[i] = readLong(encoded, start + i * WORD_SIZE);
+                }
+                return longs;
+            case INT_ARRAY:
+                int[] ints = new int[length];
+                for (int i = 0; i < length; i++) {
+                    ints[i] = (int) readLong(encoded, start + i * WORD_SIZE);
+                }
+                return ints;
+            case BOOLEAN_ARRAY:
+                boolean[] booleans = new boolean[length];
+                for (int i = 0; i < length; i++) {
+                    booleans[i] = readBoolean(encoded, start + i * WORD_SIZE);
+                }
+                return booleans;
+            case BYTES_ARRAY:
+                byte[][] bytes = new byte[length][];
+                for (int i = 0; i < length; i++) {
+                    bytes[i] = readBytes(encoded, start + i * WORD_SIZE);
+                }
+                return bytes;
+            case ADDRESS_ARRAY:
+                EthAddress[] addresses = new EthAddress[length];
+                for (int i = 0; i < length; i++) {
+                    addresses[i] = EthAddress.of(readBytes(encoded, start + i * WORD_SIZE));
+                }
+                return addresses;
+            default:
+                return new LazyList(encoded, start, length);
+        }
+    }
+
+    private Object decodeElement(byte[] encoded, int position) {
+        switch (target) {
+            case LONG_LIST:
+                return readLong(encoded, position);
+            case INTEGER_LIST:
+                return (int) readLong(encoded, position);
+            case BIG_INTEGER_LIST:
+                byte[] word = Arrays.copyOfRange(encoded, position, position + WORD_SIZE);
+                return signed ? new BigInteger(word) : new BigInteger(1, word);
+            case BOOLEAN_LIST:
+                return readBoolean(encoded, position);
+            case ADDRESS_LIST:
+                return EthAddress.of(readBytes(encoded, position));
+            default:
+                return readBytes(encoded, position);
+        }
+    }
+
+    private byte[] readBytes(byte[] encoded, int position) {
+        if (element == Element.ADDRESS) {
+            return Arrays.copyOfRange(encoded, position + WORD_SIZE - ADDRESS_SIZE, position + WORD_SIZE);
+        }
+        //same as ethereumj, a bytesN value is always decoded with its 32 bytes
+        return Arrays.copyOfRange(encoded, position, position + WORD_SIZE);
+    }
+
+    private static boolean readBoolean(byte[] encoded, int position) {
+        return encoded[position + WORD_SIZE - 1] != 0;
+    }
+
+    /**
+     * the lowest 8 bytes of the word, like BigInteger.longValue
+     */
+    private static long readLong(byte[] encoded, int position) {
+        long result = 0;
+        for (int i = position + WORD_SIZE - Long.BYTES; i < position + WORD_SIZE; i++) {
+            result = result << Byte.SIZE | (encoded[i] & 0xFF);
+        }
+        return result;
+    }
+
+    private static int readLength(byte[] encoded, int position) {
+        if (position > encoded.length - WORD_SIZE) {
+            throw new EthereumApiException("the returned value is too short to be an array: " + encoded.length + " bytes");
+        }
+        long value = readLong(encoded, position);
+        for (int i = position; i < position + WORD_SIZE - Long.BYTES; i++) {
+            if (encoded[i] != 0) {
+                throw new EthereumApiException("invalid offset or length in the returned array");
+            }
+        }
+        if (value < 0 || value > Integer.MAX_VALUE) {
+            throw new EthereumApiException("invalid offset or length in the returned array");
+        }
+        return (int) value;
+    }
+
+    private class LazyList extends AbstractList<Object> implements RandomAccess {
+        private final byte[] encoded;
+        private final int start;
+        private final int length;
+
+        private LazyList(byte[] encoded, int start, int length) {
+            this.encoded = encoded;
+            this.start = start;
+            this.length = length;
+        }
+
+        @Override
+        public Object get(int index) {
+            if (index < 0 || index >= length) {
+                throw new IndexOutOfBoundsException("index " + index + ", size " + length);
+            }
+            return decodeElement(encoded, start + index * WORD_SIZE);
+        }
+
+        @Override
+        public int size() {
+            return length;
+        }
+    }
+}
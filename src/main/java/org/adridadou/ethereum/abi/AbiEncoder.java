@@ -0,0 +1,301 @@
+package org.adridadou.ethereum.abi;
+
+import org.adridadou.exception.EthereumApiException;
+import org.ethereum.core.CallTransaction;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+
+/**
+ * Created by davidroon on 09.04.17.
+ * This code is released under Apache 2 license
+ *
+ * Encodes the arguments of a function (or a constructor) straight into a ByteBuffer.
+ * The layout (static size, which parameter is dynamic) is computed once per function. The common types (int / uint, address,
+ * bool, bytes32, bytes and string) are written without any intermediate array for the usual java values,
+ * the others are encoded by ethereumj and copied. The result is the same as Function.encode / encodeArguments
+ */
+public class AbiEncoder {
+    public static final int WORD_SIZE = 32;
+    private static final byte[] NO_PREFIX = new byte[0];
+
+    private final byte[] selector;
+    private final CallTransaction.Param[] inputs;
+    private final Kind[] kinds;
+    private final boolean[] dynamic;
+    private final int[] fixedSizes;
+
+    private enum Kind {
+        INT, ADDRESS, BOOL, BYTES32, BYTES, STRING, OTHER
+    }
+
+    private AbiEncoder(byte[] selector, CallTransaction.Param[] inputs) {
+        this.selector = selector;
+        this.inputs = inputs;
+        this.kinds = new Kind[inputs.length];
+        this.dynamic = new boolean[inputs.length];
+        this.fixedSizes = new int[inputs.length];
+        for (int i = 0; i < inputs.length; i++) {
+            CallTransaction.Type type = inputs[i].type;
+            kinds[i] = kind(type.getCanonicalName());
+            dynamic[i] = type.isDynamicType();
+            fixedSizes[i] = type.getFixedSize();
+        }
+    }
+
+    /**
+     * encodes the selector followed by the arguments
+     */
+    public static AbiEncoder forFunction(CallTransaction.Function function) {
+        return new AbiEncoder(function.encodeSignature(), function.inputs);
+    }
+
+    /**
+     * encodes the arguments only, to be appended to the contract code
+     */
+    public static AbiEncoder forConstructor(CallTransaction.Function constructor) {
+        return new AbiEncoder(NO_PREFIX, constructor.inputs);
+    }
+
+    private static Kind kind(String type) {
+        if (type.endsWith("]")) {
+            return Kind.OTHER;
+        }
+        switch (type) {
+            case "address":
+                return Kind.ADDRESS;
+            case "bool":
+                return Kind.BOOL;
+            case "bytes32":
+                return Kind.BYTES32;
+            case "bytes":
+                return Kind.BYTES;
+            case "string":
+                return Kind.STRING;
+            default:
+                return type.startsWith("int") || type.startsWith("uint") ? Kind.INT : Kind.OTHER;
+        }
+    }
+
+    public byte[] encode(Object... args) {
+        return encode(NO_PREFIX, args);
+    }
+
+    /**
+     * @param prefix written before the encoded call, for example the contract code for a constructor
+     */
+    public byte[] encode(byte[] prefix, Object... args) {
+        byte[] result = new byte[prefix.length + encodedSize(args)];
+        ByteBuffer buffer = ByteBuffer.wrap(result);
+        buffer.put(prefix);
+        encode(buffer, args);
+        return result;
+    }
+
+    /**
+     * the exact number of bytes written by encode for these arguments
+     */
+    public int encodedSize(Object... args) {
+        checkArguments(args);
+        int size = selector.length;
+        for (int i = 0; i < args.length; i++) {
+            size += fixedSizes[i];
+            if (dynamic[i]) {
+                size += dynamicSize(i, args[i]);
+            }
+        }
+        return size;
+    }
+
+    /**
+     * writes the encoded call at the current position of the buffer, the buffer needs encodedSize(args) bytes remaining
+     */
+    public ByteBuffer encode(ByteBuffer buffer, Object... args) {
+        checkArguments(args);
+        buffer.put(selector);
+        int offset = 0;
+        for (int i = 0; i < args.length; i++) {
+            offset += fixedSizes[i];
+        }
+        //head: static values and the offsets of the dynamic ones
+        for (int i = 0; i < args.length; i++) {
+            if (dynamic[i]) {
+                putLong(buffer, offset);
+                offset += dynamicSize(i, args[i]);
+            } else {
+                putStatic(buffer, i, args[i]);
+            }
+        }
+        //tail: the dynamic values
+        for (int i = 0; i < args.length; i++) {
+            if (dynamic[i]) {
+                putDynamic(buffer, i, args[i]);
+            }
+        }
+        return buffer;
+    }
+
+    private void checkArguments(Object[] args) {
+        if (args.length > inputs.length) {
+            throw new EthereumApiException("Too many arguments: " + args.length + " > " + inputs.length);
+        }
+    }
+
+    private int dynamicSize(int index, Object value) {
+        if (kinds[index] == Kind.BYTES && value instanceof byte[]) {
+            return WORD_SIZE + padded(((byte[]) value).length);
+        }
+        if ((kinds[index] == Kind.STRING || kinds[index] == Kind.BYTES) && value instanceof String) {
+            return WORD_SIZE + padded(utf8Length((String) value));
+        }
+        return inputs[index].type.encode(value).length;
+    }
+
+    private void putStatic(ByteBuffer buffer, int index, Object value) {
+        switch (kinds[index]) {
+            case INT:
+                if (putInteger(buffer, value)) {
+                    return;
+                }
+                break;
+            case ADDRESS:
+                if (value instanceof byte[] && ((byte[]) value).length <= 20) {
+                    byte[] address = (byte[]) value;
+                    putZeros(buffer, WORD_SIZE - address.length);
+                    buffer.put(address);
+                    return;
+                }
+                break;
+            case BOOL:
+                if (value instanceof Boolean) {
+                    putLong(buffer, (Boolean) value ? 1 : 0);
+                    return;
+                }
+                break;
+            case BYTES32:
+                if (value instanceof byte[] && ((byte[]) value).length == WORD_SIZE) {
+                    buffer.put((byte[]) value);
+                    return;
+                }
+                break;
+            default:
+                break;
+        }
+        buffer.put(inputs[index].type.encode(value));
+    }
+
+    private void putDynamic(ByteBuffer buffer, int index, Object value) {
+        if (kinds[index] == Kind.BYTES && value instanceof byte[]) {
+            byte[] bytes = (byte[]) value;
+            putLong(buffer, bytes.length);
+            buffer.put(bytes);
+            putZeros(buffer, padded(bytes.length) - bytes.length);
+        } else if ((kinds[index] == Kind.STRING || kinds[index] == Kind.BYTES) && value instanceof String) {
+            String str = (String) value;
+            int length = utf8Length(str);
+            putLong(buffer, length);
+            putUtf8(buffer, str);
+            putZeros(buffer, padded(length) - length);
+        } else {
+            buffer.put(inputs[index].type.encode(value));
+        }
+    }
+
+    /**
+     * @return false if the value is not one of the types handled here
+     */
+    private static boolean putInteger(ByteBuffer buffer, Object value) {
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            putLong(buffer, ((Number) value).longValue());
+            return true;
+        }
+        if (value instanceof BigInteger) {
+            BigInteger bigInteger = (BigInteger) value;
+            if (bigInteger.bitLength() < Long.SIZE) {
+                putLong(buffer, bigInteger.longValue());
+                return true;
+            }
+            if (bigInteger.bitLength() < WORD_SIZE * Byte.SIZE) {
+                byte[] bytes = bigInteger.toByteArray();
+                byte fill = bigInteger.signum() < 0 ? (byte) 0xFF : 0;
+                for (int i = bytes.length; i < WORD_SIZE; i++) {
+                    buffer.put(fill);
+                }
+                buffer.put(bytes, Math.max(0, bytes.length - WORD_SIZE), Math.min(bytes.length, WORD_SIZE));
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * writes a 32 bytes two's complement word
+     */
+    private static void putLong(ByteBuffer buffer, long value) {
+        long fill = value < 0 ? -1L : 0L;
+        buffer.putLong(fill);
+        buffer.putLong(fill);
+        buffer.putLong(fill);
+        buffer.putLong(value);
+    }
+
+    private static void putZeros(ByteBuffer buffer, int count) {
+        for (int i = 0; i < count; i++) {
+            buffer.put((byte) 0);
+        }
+    }
+
+    /**
+     * same padding as ethereumj: an empty value still takes one word
+     */
+    private static int padded(int length) {
+        return ((length - 1) / WORD_SIZE + 1) * WORD_SIZE;
+    }
+
+    private static int utf8Length(String str) {
+        int length = 0;
+        for (int i = 0; i < str.length(); i++) {
+            char c = str.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < str.length() && Character.isLowSurrogate(str.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                length++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    private static void putUtf8(ByteBuffer buffer, String str) {
+        for (int i = 0; i < str.length(); i++) {
+            char c = str.charAt(i);
+            if (c < 0x80) {
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                buffer.put((byte) (0xC0 | c >> 6));
+                buffer.put((byte) (0x80 | c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < str.length() && Character.isLowSurrogate(str.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, str.charAt(++i));
+                buffer.put((byte) (0xF0 | codePoint >> 18));
+                buffer.put((byte) (0x80 | codePoint >> 12 & 0x3F));
+                buffer.put((byte) (0x80 | codePoint >> 6 & 0x3F));
+                buffer.put((byte) (0x80 | codePoint & 0x3F));
+            } else {
+                //lone surrogates are replaced by '?' like String.getBytes does
+                if (Character.isSurrogate(c)) {
+                    buffer.put((byte) '?');
+                    continue;
+                }
+                buffer.put((byte) (0xE0 | c >> 12));
+                buffer.put((byte) (0x80 | c >> 6 & 0x3F));
+                buffer.put((byte) (0x80 | c & 0x3F));
+            }
+        }
+    }
+}
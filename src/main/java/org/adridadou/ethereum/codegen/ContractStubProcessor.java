@@ -0,0 +1,281 @@
+package org.adridadou.ethereum.codegen;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.adridadou.ethereum.ContractMethodInvoker;
+import org.adridadou.ethereum.ContractStub;
+
+import javax.annotation.processing.*;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Created by davidroon on 07.04.17.
+ * This code is released under Apache 2 license
+ *
+ * Annotation processor generating a contract stub for each interface annotated with {@link GenerateContractStub}.
+ * The names, the number of parameters and the return types of the interface are checked against the ABI and the errors
+ * are reported by the compiler. The generated class is named after the interface with the suffix ContractStub
+ * and is used by EthereumFacade.createContractProxy instead of a reflective proxy. The interface is still checked at runtime,
+ * where overloads with the same number of parameters are told apart by their types and the return types of those overloads are checked.
+ * Each generated method converts its arguments with the converters kept in the stub fields and calls the entry point of its kind
+ * on the invoker ({@link org.adridadou.ethereum.ContractMethodInvoker#constant(Object...)} ...), the kind being known from the return type.
+ * It is registered in META-INF/services so it runs for every project having this library in its classpath
+ */
+@SupportedAnnotationTypes("org.adridadou.ethereum.codegen.GenerateContractStub")
+public class ContractStubProcessor extends AbstractProcessor {
+    private static final String FUTURE_TYPE = "java.util.concurrent.CompletableFuture";
+    private static final String PAYABLE_TYPE = "org.adridadou.ethereum.values.Payable";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(GenerateContractStub.class)) {
+            if (element.getKind() != ElementKind.INTERFACE) {
+                error(element, "@GenerateContractStub can only be used on an interface");
+                continue;
+            }
+            TypeElement contractInterface = (TypeElement) element;
+            String abiPath = contractInterface.getAnnotation(GenerateContractStub.class).abi();
+            try {
+                String abi = readAbi(abiPath);
+                List<AbiFunction> functions = parseAbi(abi);
+                List<ExecutableElement> methods = contractMethods(contractInterface);
+                if (verify(contractInterface, methods, functions)) {
+                    write(contractInterface, methods);
+                }
+            } catch (IOException e) {
+                error(element, "cannot read the ABI " + abiPath + ": " + e.getMessage());
+            }
+        }
+        return true;
+    }
+
+    private String readAbi(String path) throws IOException {
+        for (StandardLocation location : Arrays.asList(StandardLocation.CLASS_OUTPUT, StandardLocation.SOURCE_PATH, StandardLocation.CLASS_PATH)) {
+            try {
+                FileObject resource = processingEnv.getFiler().getResource(location, "", path);
+                try (InputStream input = resource.openInputStream()) {
+                    return readFully(input);
+                }
+            } catch (IOException | IllegalArgumentException e) {
+                //not in this location
+            }
+        }
+        return new String(Files.readAllBytes(new File(path).toPath()), StandardCharsets.UTF_8);
+    }
+
+    private String readFully(InputStream input) throws IOException {
+        StringBuilder result = new StringBuilder();
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = input.read(buffer)) > 0) {
+            result.append(new String(buffer, 0, read, StandardCharsets.UTF_8));
+        }
+        return result.toString();
+    }
+
+    private List<AbiFunction> parseAbi(String abi) throws IOException {
+        List<AbiFunction> result = new ArrayList<>();
+        for (JsonNode entry : objectMapper.readTree(abi)) {
+            String type = entry.path("type").asText("function");
+            if ("function".equals(type)) {
+                result.add(new AbiFunction(entry.path("name").asText(), entry.path("inputs").size(),
+                        entry.path("constant").asBoolean(false), entry.path("payable").asBoolean(false)));
+            }
+        }
+        return result;
+    }
+
+    private List<ExecutableElement> contractMethods(TypeElement contractInterface) {
+        return ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(contractInterface)).stream()
+                .filter(method -> method.getModifiers().contains(Modifier.ABSTRACT))
+                .filter(method -> method.getEnclosingElement().getKind() == ElementKind.INTERFACE)
+                .collect(Collectors.toList());
+    }
+
+    private boolean verify(TypeElement contractInterface, List<ExecutableElement> methods, List<AbiFunction> functions) {
+        boolean valid = true;
+        for (ExecutableElement method : methods) {
+            String name = method.getSimpleName().toString();
+            List<AbiFunction> candidates = functions.stream()
+                    .filter(func -> func.name.equals(name) && func.inputs == method.getParameters().size())
+                    .collect(Collectors.toList());
+            if (candidates.isEmpty()) {
+                error(method, "The contract " + contractInterface.getQualifiedName() + " does not have the function " + name + " with " + method.getParameters().size() + " parameters");
+                valid = false;
+                continue;
+            }
+            if (!method.getTypeParameters().isEmpty()) {
+                error(method, "generic methods are not supported in contract interfaces");
+                valid = false;
+                continue;
+            }
+            if (candidates.size() > 1) {
+                //the overload depends on the parameter types and the converters known at runtime, it is checked there
+                continue;
+            }
+            String returnType = erasure(method.getReturnType());
+            boolean isFutureType = FUTURE_TYPE.equals(returnType);
+            boolean isPayableType = PAYABLE_TYPE.equals(returnType);
+            AbiFunction func = candidates.get(0);
+            if (func.payable != isPayableType) {
+                error(method, "ABI definition of " + name + " for payable is " + func.payable + " but return type is " + returnType + ". Return type should be Payable if and only if the function is payable");
+                valid = false;
+            } else if (func.constant && isFutureType) {
+                error(method, name + " is defined as constant but return type is CompletableFuture. This is only for non constant functions");
+                valid = false;
+            } else if (!func.constant && !(isFutureType || isPayableType)) {
+                //other future types can be supported by a FutureConverter added at runtime
+                warning(method, name + " is not defined as constant but return type is " + returnType + ". It needs a FutureConverter for this type");
+            }
+        }
+        return valid;
+    }
+
+    private void write(TypeElement contractInterface, List<ExecutableElement> methods) throws IOException {
+        String packageName = processingEnv.getElementUtils().getPackageOf(contractInterface).getQualifiedName().toString();
+        String binaryName = processingEnv.getElementUtils().getBinaryName(contractInterface).toString();
+        String simpleName = (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1)).replace('$', '_') + ContractStub.SUFFIX;
+        String qualifiedName = packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+
+        StringBuilder code = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            code.append("package ").append(packageName).append(";\n\n");
+        }
+        code.append("/**\n * Generated by ").append(ContractStubProcessor.class.getName()).append(" from ").append(contractInterface.getQualifiedName()).append(". Do not edit\n */\n");
+        code.append("@SuppressWarnings(\"unchecked\")\n");
+        code.append("public final class ").append(simpleName).append(" extends ").append(ContractStub.class.getName())
+                .append(" implements ").append(contractInterface.getQualifiedName()).append(" {\n");
+        code.append("    public static final String[] METHODS = {");
+        code.append(methods.stream().map(method -> literal(methodKey(method))).collect(Collectors.joining(", ")));
+        code.append("};\n\n");
+
+        StringBuilder constructor = new StringBuilder();
+        for (int i = 0; i < methods.size(); i++) {
+            code.append("    private final ").append(ContractMethodInvoker.class.getName()).append(" invoker").append(i).append(";\n");
+            constructor.append("        invoker").append(i).append(" = invoker(").append(i).append(");\n");
+            for (int j = 0; j < methods.get(i).getParameters().size(); j++) {
+                code.append("    private final java.util.function.Function<Object, Object> argument").append(i).append("_").append(j).append(";\n");
+                constructor.append("        argument").append(i).append("_").append(j).append(" = invoker").append(i).append(".argumentConverter(").append(j).append(");\n");
+            }
+        }
+        code.append("\n    public ").append(simpleName).append("(").append(ContractStub.Invokers.class.getCanonicalName()).append(" invokers) {\n");
+        code.append("        super(invokers);\n").append(constructor).append("    }\n");
+
+        for (int i = 0; i < methods.size(); i++) {
+            ExecutableElement method = methods.get(i);
+            List<? extends VariableElement> parameters = method.getParameters();
+            code.append("\n    @Override\n    public ").append(method.getReturnType()).append(" ").append(method.getSimpleName()).append("(");
+            List<String> declarations = new ArrayList<>();
+            List<String> arguments = new ArrayList<>();
+            for (int j = 0; j < parameters.size(); j++) {
+                declarations.add(parameters.get(j).asType() + " arg" + j);
+                arguments.add("argument" + i + "_" + j + ".apply(arg" + j + ")");
+            }
+            code.append(String.join(", ", declarations)).append(") {\n        ");
+            String call = "invoker" + i + "." + entryPoint(method) + "(" + String.join(", ", arguments) + ")";
+            if (method.getReturnType().getKind() == TypeKind.VOID) {
+                code.append(call).append(";\n");
+            } else {
+                code.append("return (").append(method.getReturnType()).append(") ").append(call).append(";\n");
+            }
+            code.append("    }\n");
+        }
+        code.append("}\n");
+
+        JavaFileObject file = processingEnv.getFiler().createSourceFile(qualifiedName, contractInterface);
+        try (Writer writer = file.openWriter()) {
+            writer.write(code.toString());
+        }
+    }
+
+    /**
+     * the method of the invoker matching the kind the invoker finds at runtime for this return type.
+     * A return type claimed by a future converter added at runtime goes through constant, which then calls the function the right way
+     */
+    private String entryPoint(ExecutableElement method) {
+        if (method.getReturnType().getKind() == TypeKind.VOID) {
+            return "transaction";
+        }
+        String returnType = erasure(method.getReturnType());
+        if (FUTURE_TYPE.equals(returnType)) {
+            return "future";
+        }
+        if (PAYABLE_TYPE.equals(returnType)) {
+            return "payable";
+        }
+        return "constant";
+    }
+
+    /**
+     * same key as computed at runtime from the Method: name(canonical names of the erased parameter types)
+     */
+    private String methodKey(ExecutableElement method) {
+        return method.getSimpleName() + "(" + method.getParameters().stream()
+                .map(parameter -> erasure(parameter.asType()))
+                .collect(Collectors.joining(",")) + ")";
+    }
+
+    private String erasure(TypeMirror type) {
+        return processingEnv.getTypeUtils().erasure(type).toString();
+    }
+
+    private String literal(String value) {
+        StringBuilder result = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            switch (c) {
+                case '"': result.append("\\\""); break;
+                case '\\': result.append("\\\\"); break;
+                case '\n': result.append("\\n"); break;
+                case '\r': result.append("\\r"); break;
+                case '\t': result.append("\\t"); break;
+                default: result.append(c);
+            }
+        }
+        return result.append('"').toString();
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    private void warning(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, message, element);
+    }
+
+    private static class AbiFunction {
+        private final String name;
+        private final int inputs;
+        private final boolean constant;
+        private final boolean payable;
+
+        private AbiFunction(String name, int inputs, boolean constant, boolean payable) {
+            this.name = name;
+            this.inputs = inputs;
+            this.constant = constant;
+            this.payable = payable;
+        }
+    }
+}
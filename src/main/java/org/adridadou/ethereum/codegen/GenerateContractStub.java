@@ -0,0 +1,22 @@
+package org.adridadou.ethereum.codegen;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Created by davidroon on 07.04.17.
+ * This code is released under Apache 2 license
+ *
+ * Generates, at compile time, a class implementing the annotated contract interface (see {@link ContractStubProcessor}).
+ * The interface is checked against the ABI during the compilation
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface GenerateContractStub {
+    /**
+     * path of the ABI json (solc --abi output), looked up in the class output, the source path and then the class path
+     */
+    String abi();
+}
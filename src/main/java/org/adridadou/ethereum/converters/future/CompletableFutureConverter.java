@@ -2,6 +2,7 @@ package org.adridadou.ethereum.converters.future;
 
 import org.adridadou.ethereum.EthereumContractInvocationHandler;
 import org.adridadou.ethereum.SmartContract;
+import org.ethereum.core.CallTransaction;
 import org.adridadou.ethereum.values.Payable;
 
 import java.lang.reflect.Method;
@@ -28,7 +29,7 @@ public class CompletableFutureConverter implements FutureConverter {
     }
 
     @Override
-    public Payable getPayable(SmartContract smartContract, String methodName, Object[] arguments, Method method, EthereumContractInvocationHandler ethereumContractInvocationHandler) {
-        return new Payable(smartContract,methodName,arguments, method, ethereumContractInvocationHandler);
+    public Payable getPayable(SmartContract smartContract, CallTransaction.Function function, Object[] arguments, Method method, EthereumContractInvocationHandler ethereumContractInvocationHandler) {
+        return new Payable(smartContract, function, arguments, method, ethereumContractInvocationHandler);
     }
 }
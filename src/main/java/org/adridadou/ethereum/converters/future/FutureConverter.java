@@ -2,6 +2,7 @@ package org.adridadou.ethereum.converters.future;
 
 import org.adridadou.ethereum.EthereumContractInvocationHandler;
 import org.adridadou.ethereum.SmartContract;
+import org.ethereum.core.CallTransaction;
 
 import java.lang.reflect.Method;
 import java.util.concurrent.CompletableFuture;
@@ -17,5 +18,5 @@ public interface FutureConverter {
 
     boolean isPayableType(Class cls);
 
-    Object getPayable(SmartContract smartContract, String methodName, Object[] arguments, Method method, EthereumContractInvocationHandler ethereumContractInvocationHandler);
+    Object getPayable(SmartContract smartContract, CallTransaction.Function function, Object[] arguments, Method method, EthereumContractInvocationHandler ethereumContractInvocationHandler);
 }
@@ -3,14 +3,26 @@ package org.adridadou.ethereum.converters.input;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 
-import java.util.ArrayList;
+import java.lang.reflect.Array;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
 
 /**
  * Created by davidroon on 17.11.16.
  * This code is released under Apache 2 license
+ *
+ * A marshaller is resolved once per declared type, arrays and collections included: List<EthAddress> or EthAddress[]
+ * are converted element by element. When the declared type says nothing (Object, List<?> ...) the conversion
+ * is chosen with the class of the value, the converter of each class is looked up once
  */
 public class InputTypeHandler {
     public static final List<InputTypeConverter> JAVA_INPUT_CONVERTERS = ImmutableList.<InputTypeConverter>builder().add(
@@ -22,7 +34,11 @@ public class InputTypeHandler {
             new DateConverter()
     ).build();
 
-    private final List<InputTypeConverter> inputConverters = new ArrayList<>();
+    private static final Function<Object, Object> NO_CONVERSION = arg -> arg;
+
+    private final List<InputTypeConverter> inputConverters = new CopyOnWriteArrayList<>();
+    private final Map<Class<?>, Optional<InputTypeConverter>> converterByType = new ConcurrentHashMap<>();
+    private final Map<Type, Function<Object, Object>> marshallers = new ConcurrentHashMap<>();
 
     public InputTypeHandler() {
         addConverters(JAVA_INPUT_CONVERTERS);
@@ -34,15 +50,98 @@ public class InputTypeHandler {
 
     public void addConverters(final Collection<InputTypeConverter> converters) {
         inputConverters.addAll(converters);
+        converterByType.clear();
+        marshallers.clear();
     }
 
 
     public Optional<InputTypeConverter> getConverter(final Class<?> cls) {
-        return inputConverters.stream().filter(converter -> converter.isOfType(cls)).findFirst();
+        Optional<InputTypeConverter> converter = converterByType.get(cls);
+        if (converter == null) {
+            converter = inputConverters.stream().filter(c -> c.isOfType(cls)).findFirst();
+            converterByType.put(cls, converter);
+        }
+        return converter;
     }
 
     public Object convert(final Object arg) {
-        return getConverter(arg.getClass()).map(converter -> converter.convert(arg))
-                .orElse(arg);
+        if (arg == null) {
+            return null;
+        }
+        Optional<InputTypeConverter> converter = getConverter(arg.getClass());
+        if (converter.isPresent()) {
+            return converter.get().convert(arg);
+        }
+        if (arg instanceof Object[]) {
+            return convertElements((Object[]) arg, this::convert);
+        }
+        if (arg instanceof Collection) {
+            return convertElements(((Collection<?>) arg).toArray(), this::convert);
+        }
+        return arg;
+    }
+
+    /**
+     * @param type the declared type of the parameter, for example from Method.getGenericParameterTypes
+     * @return the function converting an argument of this type, arrays and collections are converted into Object[]
+     */
+    public Function<Object, Object> getMarshaller(final Type type) {
+        Function<Object, Object> marshaller = marshallers.get(type);
+        if (marshaller == null) {
+            marshaller = marshaller(type);
+            marshallers.put(type, marshaller);
+        }
+        return marshaller;
+    }
+
+    private Function<Object, Object> marshaller(final Type type) {
+        Class<?> cls = rawType(type);
+        if (cls == null || cls.equals(Object.class) || cls.isInterface() && !Collection.class.isAssignableFrom(cls)) {
+            return this::convert;
+        }
+        Optional<InputTypeConverter> converter = getConverter(cls);
+        if (converter.isPresent()) {
+            InputTypeConverter inputConverter = converter.get();
+            return arg -> arg == null ? null : inputConverter.convert(arg);
+        }
+        if (cls.isArray() && !cls.getComponentType().isPrimitive()) {
+            Type componentType = type instanceof GenericArrayType ? ((GenericArrayType) type).getGenericComponentType() : cls.getComponentType();
+            Function<Object, Object> element = getMarshaller(componentType);
+            return element == NO_CONVERSION ? NO_CONVERSION : arg -> arg == null ? null : convertElements((Object[]) arg, element);
+        }
+        if (Collection.class.isAssignableFrom(cls)) {
+            Function<Object, Object> element = type instanceof ParameterizedType
+                    ? getMarshaller(((ParameterizedType) type).getActualTypeArguments()[0])
+                    : this::convert;
+            return element == NO_CONVERSION ? NO_CONVERSION : arg -> arg == null ? null : convertElements(((Collection<?>) arg).toArray(), element);
+        }
+        //primitives, final classes and the JDK classes without converter (String, BigInteger, byte[] ...) are passed as they are
+        if (cls.isPrimitive() || Modifier.isFinal(cls.getModifiers()) || cls.getName().startsWith("java.")) {
+            return NO_CONVERSION;
+        }
+        return this::convert;
+    }
+
+    private static Class<?> rawType(final Type type) {
+        if (type instanceof Class) {
+            return (Class<?>) type;
+        }
+        if (type instanceof ParameterizedType) {
+            return rawType(((ParameterizedType) type).getRawType());
+        }
+        if (type instanceof GenericArrayType) {
+            Class<?> component = rawType(((GenericArrayType) type).getGenericComponentType());
+            return component == null ? null : Array.newInstance(component, 0).getClass();
+        }
+        //type variable or wildcard, only known at runtime
+        return null;
+    }
+
+    private static Object[] convertElements(final Object[] elements, final Function<Object, Object> element) {
+        Object[] result = new Object[elements.length];
+        for (int i = 0; i < elements.length; i++) {
+            result[i] = element.apply(elements[i]);
+        }
+        return result;
     }
 }
@@ -1,8 +1,6 @@
 package org.adridadou.ethereum.converters.output;
 
 import java.lang.reflect.Type;
-import java.util.Arrays;
-import java.util.stream.Collectors;
 
 import static java.lang.reflect.Array.newInstance;
 
@@ -27,11 +25,13 @@ public class ArrayConverter implements OutputTypeConverter {
     public Object convert(Object obj, Type genericType) {
         Object[] arr = (Object[]) obj;
 
-        return handler.getConverter(getGenericType(genericType))
-                .map(converter -> Arrays.stream(arr)
-                        .map(o -> converter.convert(o, genericType)).collect(Collectors.toList()))
-                .orElseThrow(() -> new IllegalArgumentException("no handler founds to convert " + genericType.getTypeName()))
-                .toArray((Object[]) newInstance(getGenericType(genericType), arr.length));
+        OutputTypeConverter converter = handler.getConverter(getGenericType(genericType))
+                .orElseThrow(() -> new IllegalArgumentException("no handler founds to convert " + genericType.getTypeName()));
+        Object[] result = (Object[]) newInstance(getGenericType(genericType), arr.length);
+        for (int i = 0; i < arr.length; i++) {
+            result[i] = converter.convert(arr[i], genericType);
+        }
+        return result;
     }
 
     private Class<?> getGenericType(Type genericType) {
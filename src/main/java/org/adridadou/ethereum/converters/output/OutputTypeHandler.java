@@ -2,14 +2,22 @@ package org.adridadou.ethereum.converters.output;
 
 import org.adridadou.exception.EthereumApiException;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Type;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
 
 /**
  * Created by davidroon on 17.11.16.
  * This code is released under Apache 2 license
+ *
+ * The converter of each type and the way to build each specific type (constructor + converter of each parameter)
+ * are looked up once and kept. Adding converters clears what has been kept
  */
 public class OutputTypeHandler {
 
@@ -25,7 +33,10 @@ public class OutputTypeHandler {
             new BigIntegerConverter()
     );
 
-    private final List<OutputTypeConverter> outputConverters = new ArrayList<>();
+    private final List<OutputTypeConverter> outputConverters = new CopyOnWriteArrayList<>();
+    private final Map<Class<?>, Optional<OutputTypeConverter>> converterByType = new ConcurrentHashMap<>();
+    private final Map<ResultKey, Function<Object, Object>> resultPlans = new ConcurrentHashMap<>();
+    private final Map<Class<?>, SpecificTypePlan> specificTypePlans = new ConcurrentHashMap<>();
 
     public OutputTypeHandler() {
         addConverters(JAVA_OUTPUT_CONVERTERS);
@@ -43,34 +54,46 @@ public class OutputTypeHandler {
 
     public void addConverters(final Collection<OutputTypeConverter> converters) {
         outputConverters.addAll(converters);
+        converterByType.clear();
+        resultPlans.clear();
+        specificTypePlans.clear();
     }
 
     public Optional<OutputTypeConverter> getConverter(final Class<?> cls) {
-        return outputConverters.stream().filter(converter -> converter.isOfType(cls)).findFirst();
+        Optional<OutputTypeConverter> converter = converterByType.get(cls);
+        if (converter == null) {
+            converter = outputConverters.stream().filter(c -> c.isOfType(cls)).findFirst();
+            converterByType.put(cls, converter);
+        }
+        return converter;
     }
 
+    @SuppressWarnings("unchecked")
     public <T> T convertSpecificType(Object[] result, Class<T> returnType) {
-        Object[] params = new Object[result.length];
-
-        Constructor constr = lookForNonEmptyConstructor(returnType, result);
+        return (T) specificTypePlans.computeIfAbsent(returnType, this::specificTypePlan).create(result);
+    }
 
-        for (int i = 0; i < result.length; i++) {
-            params[i] = convertResult(result[i], constr.getParameterTypes()[i], constr.getGenericParameterTypes()[i]);
+    private SpecificTypePlan specificTypePlan(Class<?> returnType) {
+        Constructor<?> constructor = lookForNonEmptyConstructor(returnType);
+        Class<?>[] parameterTypes = constructor.getParameterTypes();
+        Type[] genericParameterTypes = constructor.getGenericParameterTypes();
+        List<Function<Object, Object>> parameterPlans = new ArrayList<>();
+        for (int i = 0; i < parameterTypes.length; i++) {
+            parameterPlans.add(resultPlan(parameterTypes[i], genericParameterTypes[i]));
         }
-
         try {
-            return (T) constr.newInstance(params);
-        } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
+            MethodHandle handle = MethodHandles.lookup().unreflectConstructor(constructor)
+                    .asSpreader(Object[].class, parameterTypes.length)
+                    .asType(MethodType.methodType(Object.class, Object[].class));
+            return new SpecificTypePlan(returnType, handle, parameterPlans);
+        } catch (IllegalAccessException e) {
             throw new EthereumApiException("error while converting to a specific type", e);
         }
     }
 
-    private Constructor lookForNonEmptyConstructor(Class<?> returnType, Object[] result) {
-        for (Constructor constructor : returnType.getConstructors()) {
+    private Constructor<?> lookForNonEmptyConstructor(Class<?> returnType) {
+        for (Constructor<?> constructor : returnType.getConstructors()) {
             if (constructor.getParameterCount() > 0) {
-                if (constructor.getParameterCount() != result.length) {
-                    throw new IllegalArgumentException("the number of arguments don't match for type " + returnType.getSimpleName() + ". Constructor has " + constructor.getParameterCount() + " and result has " + result.length);
-                }
                 return constructor;
             }
         }
@@ -78,8 +101,76 @@ public class OutputTypeHandler {
     }
 
     public Object convertResult(Object result, Class<?> returnType, Type genericType) {
+        return getResultConverter(returnType, genericType).apply(result);
+    }
+
+    /**
+     * the conversion done by {@link #convertResult(Object, Class, Type)}, to be kept by a caller converting many results to the same type.
+     * A converter added afterwards is not used by it
+     */
+    public Function<Object, Object> getResultConverter(Class<?> returnType, Type genericType) {
+        return resultPlans.computeIfAbsent(new ResultKey(returnType, genericType), key -> resultPlan(returnType, genericType));
+    }
+
+    private Function<Object, Object> resultPlan(Class<?> returnType, Type genericType) {
+        Type converterType = returnType.isArray() ? returnType.getComponentType() : genericType;
         return getConverter(returnType)
-                .map(converter -> converter.convert(result, returnType.isArray() ? returnType.getComponentType() : genericType))
-                .orElseGet(() -> convertSpecificType(new Object[]{result}, returnType));
+                .<Function<Object, Object>>map(converter -> result -> converter.convert(result, converterType))
+                .orElseGet(() -> result -> convertSpecificType(new Object[]{result}, returnType));
+    }
+
+    private static final class SpecificTypePlan {
+        private final Class<?> type;
+        private final MethodHandle constructor;
+        private final Function<Object, Object>[] parameterPlans;
+
+        @SuppressWarnings("unchecked")
+        private SpecificTypePlan(Class<?> type, MethodHandle constructor, List<Function<Object, Object>> parameterPlans) {
+            this.type = type;
+            this.constructor = constructor;
+            this.parameterPlans = parameterPlans.toArray(new Function[parameterPlans.size()]);
+        }
+
+        private Object create(Object[] result) {
+            if (parameterPlans.length != result.length) {
+                throw new IllegalArgumentException("the number of arguments don't match for type " + type.getSimpleName() + ". Constructor has " + parameterPlans.length + " and result has " + result.length);
+            }
+            Object[] params = new Object[result.length];
+            for (int i = 0; i < result.length; i++) {
+                params[i] = parameterPlans[i].apply(result[i]);
+            }
+            try {
+                return (Object) constructor.invokeExact(params);
+            } catch (Throwable e) {
+                throw new EthereumApiException("error while converting to a specific type", e);
+            }
+        }
+    }
+
+    private static final class ResultKey {
+        private final Class<?> type;
+        private final Type genericType;
+
+        private ResultKey(Class<?> type, Type genericType) {
+            this.type = type;
+            this.genericType = genericType;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            ResultKey that = (ResultKey) o;
+            return type.equals(that.type) && Objects.equals(genericType, that.genericType);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * type.hashCode() + Objects.hashCode(genericType);
+        }
     }
 }
@@ -2,9 +2,8 @@ package org.adridadou.ethereum.converters.output;
 
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
-import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 /**
  * Created by davidroon on 18.11.16.
@@ -26,9 +25,14 @@ public class SetConverter implements OutputTypeConverter {
     @Override
     public Object convert(Object obj, Type genericType) {
         Object[] arr = (Object[]) obj;
-        return handler.getConverter(getGenericType(genericType)).map(converter -> Arrays.stream(arr)
-                .map(o -> converter.convert(o, getGenericType(genericType)))
-                .collect(Collectors.toSet())).orElseThrow(() -> new IllegalArgumentException("no handler founds to convert " + genericType.getTypeName()));
+        Class<?> elementType = getGenericType(genericType);
+        OutputTypeConverter converter = handler.getConverter(elementType)
+                .orElseThrow(() -> new IllegalArgumentException("no handler founds to convert " + genericType.getTypeName()));
+        Set<Object> result = new HashSet<>();
+        for (Object o : arr) {
+            result.add(converter.convert(o, elementType));
+        }
+        return result;
     }
 
     private Class<?> getGenericType(Type genericType) {
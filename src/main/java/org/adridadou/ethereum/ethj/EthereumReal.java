@@ -2,12 +2,18 @@ package org.adridadou.ethereum.ethj;
 
 import org.adridadou.ethereum.EthereumBackend;
 import org.adridadou.ethereum.event.EthereumEventHandler;
+import org.adridadou.ethereum.event.LogEntry;
 import org.adridadou.ethereum.values.*;
 import org.ethereum.core.*;
-import org.ethereum.crypto.ECKey;
 import org.ethereum.facade.Ethereum;
 
 import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import static org.adridadou.ethereum.values.EthValue.wei;
 
@@ -34,22 +40,48 @@ public class EthereumReal implements EthereumBackend {
         return wei(getRepository().getBalance(address.address));
     }
 
+    @Override
+    public Map<EthAddress, EthValue> getBalances(Collection<EthAddress> addresses) {
+        Map<EthAddress, EthValue> result = new LinkedHashMap<>();
+        addresses.forEach(address -> result.put(address, getBalance(address)));
+        return result;
+    }
+
     @Override
     public boolean addressExists(EthAddress address) {
         return getRepository().isExist(address.address);
     }
 
     @Override
-    public EthHash submit(EthAccount account, EthAddress address, EthValue value, EthData data, BigInteger nonce, BigInteger gasLimit) {
-        Transaction tx = ethereum.createTransaction(nonce, getGasPrice(), gasLimit, address.address, value.inWei(), data.data);
-        tx.sign(getKey(account));
-        ethereum.submitTransaction(tx);
+    public EthHash submit(EthAccount account, EthAddress address, EthValue value, EthData data, BigInteger nonce, BigInteger gasPrice, BigInteger gasLimit) {
+        return submit(account, sign(account, address, value, data, nonce, gasPrice, gasLimit));
+    }
 
-        return EthHash.of(tx.getHash());
+    @Override
+    public Transaction sign(EthAccount account, EthAddress address, EthValue value, EthData data, BigInteger nonce, BigInteger gasPrice, BigInteger gasLimit) {
+        return account.getSigner().sign(ethereum.createTransaction(nonce, gasPrice, gasLimit, address.address, value.inWei(), data.data));
     }
 
-    private ECKey getKey(EthAccount account) {
-        return ECKey.fromPrivate(account.getPrivateKey());
+    @Override
+    public EthHash submit(EthAccount account, Transaction signedTransaction) {
+        ethereum.submitTransaction(signedTransaction);
+        return EthHash.of(signedTransaction.getHash());
+    }
+
+    @Override
+    public List<CompletableFuture<EthHash>> submit(EthAccount account, List<TransactionRequest> requests, BigInteger gasPrice, BigInteger firstNonce) {
+        List<CompletableFuture<EthHash>> result = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            TransactionRequest request = requests.get(i);
+            CompletableFuture<EthHash> hash = new CompletableFuture<>();
+            try {
+                hash.complete(submit(account, request.getAddress(), request.getValue(), request.getData(), firstNonce.add(BigInteger.valueOf(i)), gasPrice, request.getGasLimit()));
+            } catch (RuntimeException e) {
+                hash.completeExceptionally(e);
+            }
+            result.add(hash);
+        }
+        return result;
     }
 
     @Override
@@ -72,11 +104,21 @@ public class EthereumReal implements EthereumBackend {
         return localExecutionService.executeLocally(account, address, value, data);
     }
 
+    @Override
+    public List<LogEntry> getLogs(final EthAddress address, final List<EthData> topics, final long fromBlock, final long toBlock) {
+        return localExecutionService.getLogs(address, topics, fromBlock, toBlock);
+    }
+
     @Override
     public void register(EthereumEventHandler eventHandler) {
         ethereum.addListener(new EthJEventListener(eventHandler));
     }
 
+    @Override
+    public void unwatch(EthHash hash) {
+        //every receipt is given with its block
+    }
+
     public BlockchainImpl getBlockchain() {
         return (BlockchainImpl) ethereum.getBlockchain();
     }
@@ -90,4 +132,9 @@ public class EthereumReal implements EthereumBackend {
         return localExecutionService.estimateGas(account, address, value, data);
     }
 
+    @Override
+    public List<BigInteger> estimateGas(final EthAccount account, final List<TransactionRequest> requests) {
+        return localExecutionService.estimateGas(account, requests);
+    }
+
 }
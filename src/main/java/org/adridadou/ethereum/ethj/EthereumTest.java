@@ -2,18 +2,23 @@ package org.adridadou.ethereum.ethj;
 
 import org.adridadou.ethereum.EthereumBackend;
 import org.adridadou.ethereum.event.EthereumEventHandler;
+import org.adridadou.ethereum.event.LogEntry;
 import org.adridadou.ethereum.keystore.AccountProvider;
 import org.adridadou.ethereum.values.*;
 import org.adridadou.exception.EthereumApiException;
 import org.ethereum.core.Transaction;
-import org.ethereum.crypto.ECKey;
 import org.ethereum.util.ByteUtil;
 import org.ethereum.util.blockchain.StandaloneBlockchain;
 
 import java.math.BigInteger;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 
 /**
  * Created by davidroon on 20.01.17.
@@ -22,7 +27,7 @@ import java.util.concurrent.CompletableFuture;
 public class EthereumTest implements EthereumBackend {
     private final StandaloneBlockchain blockchain;
     private final TestConfig testConfig;
-    private final BlockingQueue<Transaction> transactions = new ArrayBlockingQueue<>(100);
+    private final BlockingQueue<Transaction> transactions = new LinkedBlockingQueue<>();
     private final LocalExecutionService localExecutionService;
 
     public EthereumTest(TestConfig testConfig) {
@@ -37,7 +42,7 @@ public class EthereumTest implements EthereumBackend {
                 .forEach(entry -> blockchain.withAccountBalance(entry.getKey().getAddress().address, entry.getValue().inWei()));
 
         localExecutionService = new LocalExecutionService(blockchain.getBlockchain());
-        CompletableFuture.runAsync(() -> {
+        Thread blockCreator = new Thread(() -> {
             try {
                 while(true) {
                     blockchain.submitTransaction(transactions.take());
@@ -46,7 +51,9 @@ public class EthereumTest implements EthereumBackend {
             } catch (InterruptedException e) {
                 throw new EthereumApiException("error while polling transactions for test env", e);
             }
-        });
+        }, "ethereum-test-block-creator");
+        blockCreator.setDaemon(true);
+        blockCreator.start();
 
         this.testConfig = testConfig;
     }
@@ -65,23 +72,53 @@ public class EthereumTest implements EthereumBackend {
         return EthValue.wei(blockchain.getBlockchain().getRepository().getBalance(address.address));
     }
 
+    @Override
+    public Map<EthAddress, EthValue> getBalances(Collection<EthAddress> addresses) {
+        Map<EthAddress, EthValue> result = new LinkedHashMap<>();
+        addresses.forEach(address -> result.put(address, getBalance(address)));
+        return result;
+    }
+
     @Override
     public boolean addressExists(EthAddress address) {
         return blockchain.getBlockchain().getRepository().isExist(address.address);
     }
 
     @Override
-    public EthHash submit(EthAccount account, EthAddress address, EthValue value, EthData data, BigInteger nonce, BigInteger gasLimit) {
-        Transaction tx = createTransaction(account, nonce,gasLimit, address, value, data);
-        transactions.add(tx);
+    public EthHash submit(EthAccount account, EthAddress address, EthValue value, EthData data, BigInteger nonce, BigInteger gasPrice, BigInteger gasLimit) {
+        return submit(account, sign(account, address, value, data, nonce, gasPrice, gasLimit));
+    }
+
+    @Override
+    public Transaction sign(EthAccount account, EthAddress address, EthValue value, EthData data, BigInteger nonce, BigInteger gasPrice, BigInteger gasLimit) {
+        return createTransaction(account, nonce, gasLimit, address, value, data);
+    }
 
-        return EthHash.of(tx.getHash());
+    @Override
+    public EthHash submit(EthAccount account, Transaction signedTransaction) {
+        transactions.add(signedTransaction);
+        return EthHash.of(signedTransaction.getHash());
+    }
+
+    @Override
+    public List<CompletableFuture<EthHash>> submit(EthAccount account, List<TransactionRequest> requests, BigInteger gasPrice, BigInteger firstNonce) {
+        List<CompletableFuture<EthHash>> result = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            TransactionRequest request = requests.get(i);
+            CompletableFuture<EthHash> hash = new CompletableFuture<>();
+            try {
+                hash.complete(submit(account, request.getAddress(), request.getValue(), request.getData(), firstNonce.add(BigInteger.valueOf(i)), gasPrice, request.getGasLimit()));
+            } catch (RuntimeException e) {
+                hash.completeExceptionally(e);
+            }
+            result.add(hash);
+        }
+        return result;
     }
 
     private Transaction createTransaction(EthAccount account, BigInteger nonce, BigInteger gasLimit, EthAddress address, EthValue value, EthData data) {
         Transaction transaction = new Transaction(ByteUtil.bigIntegerToBytes(nonce), ByteUtil.bigIntegerToBytes(BigInteger.ZERO), ByteUtil.bigIntegerToBytes(gasLimit), address.address, ByteUtil.bigIntegerToBytes(value.inWei()), data.data, null);
-        transaction.sign(getKey(account));
-        return transaction;
+        return account.getSigner().sign(transaction);
     }
 
     @Override
@@ -89,6 +126,11 @@ public class EthereumTest implements EthereumBackend {
         return localExecutionService.estimateGas(account, address, value, data);
     }
 
+    @Override
+    public List<BigInteger> estimateGas(final EthAccount account, final List<TransactionRequest> requests) {
+        return localExecutionService.estimateGas(account, requests);
+    }
+
     @Override
     public BigInteger getNonce(EthAddress currentAddress) {
         return blockchain.getBlockchain().getRepository().getNonce(currentAddress.address);
@@ -109,12 +151,19 @@ public class EthereumTest implements EthereumBackend {
         return localExecutionService.executeLocally(account, address,value, data);
     }
 
+    @Override
+    public List<LogEntry> getLogs(final EthAddress address, final List<EthData> topics, final long fromBlock, final long toBlock) {
+        return localExecutionService.getLogs(address, topics, fromBlock, toBlock);
+    }
+
     @Override
     public void register(EthereumEventHandler eventHandler) {
         eventHandler.onReady();
         blockchain.addEthereumListener(new EthJEventListener(eventHandler));
     }
-    private ECKey getKey(EthAccount account) {
-        return ECKey.fromPrivate(account.getPrivateKey());
+
+    @Override
+    public void unwatch(EthHash hash) {
+        //every receipt is given with its block
     }
 }
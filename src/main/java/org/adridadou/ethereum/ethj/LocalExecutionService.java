@@ -1,14 +1,21 @@
 package org.adridadou.ethereum.ethj;
 
+import org.adridadou.ethereum.event.LogEntry;
 import org.adridadou.ethereum.values.EthAccount;
 import org.adridadou.ethereum.values.EthAddress;
 import org.adridadou.ethereum.values.EthData;
 import org.adridadou.ethereum.values.EthValue;
+import org.adridadou.ethereum.values.TransactionRequest;
 import org.adridadou.exception.EthereumApiException;
 import org.ethereum.core.*;
-import org.ethereum.crypto.ECKey;
+import org.ethereum.db.TransactionInfo;
+import org.ethereum.vm.LogInfo;
 
 import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
 
 /**
  * Created by davidroon on 30.01.17.
@@ -28,11 +35,51 @@ public class LocalExecutionService {
         return BigInteger.valueOf(execution.getGasUsed());
     }
 
+    public List<BigInteger> estimateGas(final EthAccount account, final List<TransactionRequest> requests) {
+        return requests.stream()
+                .map(request -> estimateGas(account, request.getAddress(), request.getValue(), request.getData()))
+                .collect(Collectors.toList());
+    }
+
     public EthData executeLocally(final EthAccount account, final EthAddress address, final EthValue value, final EthData data) {
         TransactionExecutor execution = execute(account, address, value, data);
         return EthData.of(execution.getResult().getHReturn());
     }
 
+    /**
+     * reads the receipts of every transaction in the range, the local blockchains have no log index
+     */
+    public List<LogEntry> getLogs(final EthAddress address, final List<EthData> topics, final long fromBlock, final long toBlock) {
+        List<LogEntry> result = new ArrayList<>();
+        long lastBlock = Math.min(toBlock, blockchain.getBestBlock().getNumber());
+        for (long number = Math.max(0, fromBlock); number <= lastBlock; number++) {
+            Block block = blockchain.getBlockByNumber(number);
+            if (block == null) {
+                continue;
+            }
+            int logIndex = 0;
+            for (Transaction tx : block.getTransactionsList()) {
+                TransactionInfo info = blockchain.getTransactionInfo(tx.getHash());
+                if (info == null) {
+                    continue;
+                }
+                for (LogInfo log : info.getReceipt().getLogInfoList()) {
+                    if (matches(log, address, topics)) {
+                        result.add(new LogEntry(log, number, logIndex));
+                    }
+                    logIndex++;
+                }
+            }
+        }
+        return result;
+    }
+
+    private static boolean matches(LogInfo log, EthAddress address, List<EthData> topics) {
+        return address.equals(EthAddress.of(log.getAddress()))
+                && !log.getTopics().isEmpty()
+                && topics.stream().anyMatch(topic -> Arrays.equals(topic.data, log.getTopics().get(0).getData()));
+    }
+
     private TransactionExecutor execute(final EthAccount account, final EthAddress address, final EthValue value, final EthData data) {
         Block callBlock = blockchain.getBestBlock();
         Repository repository = getRepository().getSnapshotTo(callBlock.getStateRoot()).startTracking();
@@ -60,11 +107,6 @@ public class LocalExecutionService {
 
     private Transaction createTransaction(EthAccount account, BigInteger nonce, BigInteger gasPrice, EthAddress address, EthValue value, EthData data) {
         Transaction tx = CallTransaction.createRawTransaction(nonce.longValue(), gasPrice.longValue(), GAS_LIMIT_FOR_LOCAL_EXECUTION, address.toString(), value.inWei().longValue(), data.data);
-        tx.sign(getKey(account));
-        return tx;
-    }
-
-    private ECKey getKey(EthAccount account) {
-        return ECKey.fromPrivate(account.getPrivateKey());
+        return account.getSigner().sign(tx);
     }
 }
@@ -0,0 +1,125 @@
+package org.adridadou.ethereum.event;
+
+import org.adridadou.exception.EthereumApiException;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Created by davidroon on 15.04.17.
+ * This code is released under Apache 2 license
+ *
+ * Keeps the position of named event consumers in a local file, one line "name blockNumber logIndex" appended per ack.
+ * The last line of each consumer wins. The file is rewritten with one line per consumer once it has grown enough.
+ * A line cut by a crash is ignored when the file is read again.
+ * By default each ack is flushed to the operating system, syncOnAck also forces it to the disk
+ */
+public class EventCheckpointStore implements AutoCloseable {
+    private static final int COMPACTION_THRESHOLD = 10_000;
+
+    private final Path file;
+    private final Map<String, EventCursor> cursors = new ConcurrentHashMap<>();
+    private FileOutputStream output;
+    private int lines;
+    private volatile boolean syncOnAck;
+
+    public EventCheckpointStore(Path file) {
+        this.file = file;
+        try {
+            byte[] content = Files.exists(file) ? Files.readAllBytes(file) : new byte[0];
+            load(new String(content, StandardCharsets.UTF_8).split("\n"));
+            output = new FileOutputStream(file.toFile(), true);
+            if (content.length > 0 && content[content.length - 1] != '\n') {
+                //ends with a line cut by a crash, the next one starts on a new line
+                output.write('\n');
+            }
+        } catch (IOException e) {
+            throw new EthereumApiException("error while opening the checkpoint file " + file, e);
+        }
+    }
+
+    public EventCheckpointStore syncOnAck(boolean syncOnAck) {
+        this.syncOnAck = syncOnAck;
+        return this;
+    }
+
+    public Optional<EventCursor> get(String consumer) {
+        return Optional.ofNullable(cursors.get(consumer));
+    }
+
+    /**
+     * moves the consumer forward, an older position is ignored
+     */
+    public synchronized void ack(String consumer, EventCursor cursor) {
+        if (consumer.isEmpty() || consumer.chars().anyMatch(Character::isWhitespace)) {
+            throw new EthereumApiException("the consumer name cannot be empty or contain whitespaces:'" + consumer + "'");
+        }
+        EventCursor current = cursors.get(consumer);
+        if (current != null && !cursor.isAfter(current)) {
+            return;
+        }
+        cursors.put(consumer, cursor);
+        try {
+            write(output, consumer, cursor);
+            if (syncOnAck) {
+                output.getFD().sync();
+            }
+            lines++;
+            if (lines > COMPACTION_THRESHOLD + cursors.size()) {
+                compact();
+            }
+        } catch (IOException e) {
+            throw new EthereumApiException("error while writing the checkpoint of " + consumer, e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            output.close();
+        } catch (IOException e) {
+            throw new EthereumApiException("error while closing the checkpoint file " + file, e);
+        }
+    }
+
+    private void load(String[] content) {
+        for (String line : content) {
+            String[] parts = line.split(" ");
+            if (parts.length != 3) {
+                continue;
+            }
+            try {
+                cursors.put(parts[0], new EventCursor(Long.parseLong(parts[1]), Integer.parseInt(parts[2])));
+                lines++;
+            } catch (NumberFormatException e) {
+                //incomplete line
+            }
+        }
+    }
+
+    private void compact() throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileOutputStream compacted = new FileOutputStream(tmp.toFile())) {
+            for (Map.Entry<String, EventCursor> entry : cursors.entrySet()) {
+                write(compacted, entry.getKey(), entry.getValue());
+            }
+            compacted.getFD().sync();
+        }
+        output.close();
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        output = new FileOutputStream(file.toFile(), true);
+        lines = cursors.size();
+    }
+
+    private static void write(OutputStream out, String consumer, EventCursor cursor) throws IOException {
+        out.write((consumer + " " + cursor.blockNumber + " " + cursor.logIndex + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+}
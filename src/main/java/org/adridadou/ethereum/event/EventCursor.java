@@ -0,0 +1,52 @@
+package org.adridadou.ethereum.event;
+
+/**
+ * Created by davidroon on 15.04.17.
+ * This code is released under Apache 2 license
+ *
+ * The position of a log in the chain: block number and index of the log in the block
+ */
+public class EventCursor implements Comparable<EventCursor> {
+    public final long blockNumber;
+    public final int logIndex;
+
+    public EventCursor(long blockNumber, int logIndex) {
+        this.blockNumber = blockNumber;
+        this.logIndex = logIndex;
+    }
+
+    public boolean isAfter(EventCursor other) {
+        return compareTo(other) > 0;
+    }
+
+    @Override
+    public int compareTo(EventCursor other) {
+        int result = Long.compare(blockNumber, other.blockNumber);
+        return result != 0 ? result : Integer.compare(logIndex, other.logIndex);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        EventCursor that = (EventCursor) o;
+        return blockNumber == that.blockNumber && logIndex == that.logIndex;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Long.hashCode(blockNumber) + logIndex;
+    }
+
+    @Override
+    public String toString() {
+        return "EventCursor{" +
+                "blockNumber=" + blockNumber +
+                ", logIndex=" + logIndex +
+                '}';
+    }
+}
@@ -0,0 +1,127 @@
+package org.adridadou.ethereum.event;
+
+import org.adridadou.ethereum.values.EthAddress;
+import org.ethereum.core.CallTransaction;
+import org.ethereum.vm.DataWord;
+import org.ethereum.vm.LogInfo;
+import rx.Observable;
+import rx.Subscriber;
+import rx.subscriptions.Subscriptions;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Created by davidroon on 13.04.17.
+ * This code is released under Apache 2 license
+ *
+ * Routes the logs of the executed transactions to the event observers, by emitting contract address and topic0 (the event signature hash).
+ * There is a single subscription to the transactions. A log is decoded at most once, and only if someone observes this event of this contract
+ */
+public class EventDispatcher {
+    private final Map<RouteKey, Route> routes = new ConcurrentHashMap<>();
+
+    public EventDispatcher(EthereumEventHandler eventHandler) {
+        eventHandler.observeTransactions().subscribe(this::dispatch);
+    }
+
+    /**
+     * @param event the event definition, its signature gives the topic0 of the logs
+     * @return the non indexed values of each event emitted by the contract
+     */
+    public Observable<Object[]> observe(EthAddress contractAddress, CallTransaction.Function event) {
+        RouteKey key = new RouteKey(contractAddress, event.encodeSignatureLong());
+        return Observable.unsafeCreate(subscriber -> {
+            routes.compute(key, (k, route) -> {
+                Route current = route != null ? route : new Route(event);
+                current.subscribers.add(subscriber);
+                return current;
+            });
+            subscriber.add(Subscriptions.create(() -> unsubscribe(key, subscriber)));
+        });
+    }
+
+    /**
+     * the route goes away with its last subscriber
+     */
+    private void unsubscribe(RouteKey key, Subscriber<? super Object[]> subscriber) {
+        routes.computeIfPresent(key, (k, route) -> {
+            route.subscribers.remove(subscriber);
+            return route.subscribers.isEmpty() ? null : route;
+        });
+    }
+
+    int getRouteCount() {
+        return routes.size();
+    }
+
+    private void dispatch(OnTransactionParameters params) {
+        if (routes.isEmpty() || params.logs == null) {
+            return;
+        }
+        for (LogInfo log : params.logs) {
+            List<DataWord> topics = log.getTopics();
+            if (topics == null || topics.isEmpty()) {
+                continue;
+            }
+            Route route = routes.get(new RouteKey(EthAddress.of(log.getAddress()), topics.get(0).getData()));
+            if (route != null) {
+                route.dispatch(log);
+            }
+        }
+    }
+
+    private static final class Route {
+        private final CallTransaction.Function event;
+        private final Set<Subscriber<? super Object[]>> subscribers = ConcurrentHashMap.newKeySet();
+
+        private Route(CallTransaction.Function event) {
+            this.event = event;
+        }
+
+        private void dispatch(LogInfo log) {
+            subscribers.removeIf(Subscriber::isUnsubscribed);
+            if (subscribers.isEmpty()) {
+                return;
+            }
+            Object[] values;
+            try {
+                values = event.decodeEventData(log.getData());
+            } catch (RuntimeException e) {
+                subscribers.forEach(subscriber -> subscriber.onError(e));
+                return;
+            }
+            subscribers.forEach(subscriber -> subscriber.onNext(values));
+        }
+    }
+
+    private static final class RouteKey {
+        private final EthAddress address;
+        private final byte[] topic;
+
+        private RouteKey(EthAddress address, byte[] topic) {
+            this.address = address;
+            this.topic = topic;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            RouteKey that = (RouteKey) o;
+            return address.equals(that.address) && Arrays.equals(topic, that.topic);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * address.hashCode() + Arrays.hashCode(topic);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package org.adridadou.ethereum.event;
+
+import org.ethereum.vm.LogInfo;
+
+/**
+ * Created by davidroon on 15.04.17.
+ * This code is released under Apache 2 license
+ *
+ * A log with its position in the chain
+ */
+public class LogEntry {
+    public final LogInfo log;
+    public final long blockNumber;
+    public final int logIndex;
+
+    public LogEntry(LogInfo log, long blockNumber, int logIndex) {
+        this.log = log;
+        this.blockNumber = blockNumber;
+        this.logIndex = logIndex;
+    }
+
+    public EventCursor getCursor() {
+        return new EventCursor(blockNumber, logIndex);
+    }
+}
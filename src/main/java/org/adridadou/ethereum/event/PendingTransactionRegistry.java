@@ -0,0 +1,156 @@
+package org.adridadou.ethereum.event;
+
+import org.adridadou.ethereum.values.EthHash;
+import org.adridadou.exception.EthereumApiException;
+import org.adridadou.exception.TransactionTimeoutException;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Created by davidroon on 22.03.17.
+ * This code is released under Apache 2 license
+ *
+ * Keeps track of every transaction that has been submitted but not yet included.
+ * Each new block is handled once: every receipt is looked up by hash and the matching future is completed,
+ * no matter how many transactions are waiting.
+ * A transaction can be replaced (same nonce, higher gas price). All its hashes are followed and the future completes
+ * with the first one that gets included.
+ * An entry without receipt (see {@link TransactionReceipt#hasReceipt}) does not complete a transaction, the receipt comes with a later block.
+ * Each hash that is not followed anymore is given to the forgotten callback.
+ */
+public class PendingTransactionRegistry {
+    private final Map<EthHash, PendingTransaction> pending = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<Long, Set<PendingTransaction>> deadlines = new ConcurrentSkipListMap<>();
+    private final long blockWaitLimit;
+    private final Consumer<EthHash> forgotten;
+
+    public PendingTransactionRegistry(EthereumEventHandler eventHandler, long blockWaitLimit) {
+        this(eventHandler, blockWaitLimit, hash -> {});
+    }
+
+    /**
+     * @param forgotten called with each hash that is not followed anymore: included, replaced by an included one, dropped or timed out
+     */
+    public PendingTransactionRegistry(EthereumEventHandler eventHandler, long blockWaitLimit, Consumer<EthHash> forgotten) {
+        this.blockWaitLimit = blockWaitLimit;
+        this.forgotten = forgotten;
+        eventHandler.observeBlocks().subscribe(this::onBlock);
+        eventHandler.observeTransactions()
+                .filter(params -> params.receipt != null && params.status == TransactionStatus.Dropped)
+                .subscribe(this::onDropped);
+    }
+
+    public CompletableFuture<TransactionReceipt> register(EthHash hash, long currentBlockNumber) {
+        PendingTransaction tx = pending.computeIfAbsent(hash, PendingTransaction::new);
+        setDeadline(tx, currentBlockNumber + blockWaitLimit);
+        return tx.result;
+    }
+
+    /**
+     * follows the hash of a replacement for a pending transaction, then broadcasts it. The hash is registered first
+     * so that the replacement is seen even if it is included before the broadcast returns. The deadline starts again from the current block.
+     * The original hash may get dropped in the meantime, this does not fail the transaction
+     * @param replacement the hash of the signed replacement
+     * @return false if the transaction is not pending anymore, nothing is broadcast then
+     */
+    public boolean replace(EthHash hash, EthHash replacement, long currentBlockNumber, Runnable broadcast) {
+        PendingTransaction tx = pending.get(hash);
+        if (tx == null || tx.result.isDone()) {
+            return false;
+        }
+        tx.replacing.incrementAndGet();
+        try {
+            tx.hashes.add(replacement);
+            pending.put(replacement, tx);
+            if (tx.result.isDone()) {
+                //included in the meantime
+                tx.hashes.forEach(this::forget);
+                return false;
+            }
+            setDeadline(tx, currentBlockNumber + blockWaitLimit);
+            try {
+                broadcast.run();
+            } catch (RuntimeException e) {
+                tx.hashes.remove(replacement);
+                forget(replacement);
+                throw e;
+            }
+            return true;
+        } finally {
+            if (tx.replacing.decrementAndGet() == 0 && tx.hashes.isEmpty()) {
+                fail(tx, new EthereumApiException("the transaction has been dropped!"));
+            }
+        }
+    }
+
+    public boolean isPending(EthHash hash) {
+        return pending.containsKey(hash);
+    }
+
+    public int size() {
+        return pending.size();
+    }
+
+    private void setDeadline(PendingTransaction tx, long deadline) {
+        tx.deadline = deadline;
+        deadlines.computeIfAbsent(deadline, key -> ConcurrentHashMap.newKeySet()).add(tx);
+    }
+
+    private void onBlock(OnBlockParameters params) {
+        params.receipts.stream().filter(receipt -> receipt.hasReceipt).forEach(receipt -> Optional.ofNullable(pending.get(receipt.hash)).ifPresent(tx -> {
+            tx.hashes.forEach(this::forget);
+            tx.result.complete(receipt);
+        }));
+
+        Map.Entry<Long, Set<PendingTransaction>> expired = deadlines.firstEntry();
+        while (expired != null && expired.getKey() < params.blockNumber) {
+            deadlines.remove(expired.getKey());
+            long deadline = expired.getKey();
+            expired.getValue().stream()
+                    //replaced transactions have been moved to a later deadline
+                    .filter(tx -> tx.deadline == deadline || tx.result.isDone())
+                    .forEach(tx -> fail(tx, new TransactionTimeoutException("the transaction has not been included in the last " + blockWaitLimit + " blocks")));
+            expired = deadlines.firstEntry();
+        }
+    }
+
+    private void onDropped(OnTransactionParameters params) {
+        EthHash hash = params.receipt.hash;
+        Optional.ofNullable(pending.remove(hash)).ifPresent(tx -> {
+            forgotten.accept(hash);
+            tx.hashes.remove(hash);
+            if (tx.hashes.isEmpty() && tx.replacing.get() == 0) {
+                fail(tx, new EthereumApiException("the transaction has been dropped! - " + params.receipt.error));
+            }
+        });
+    }
+
+    private void fail(PendingTransaction tx, EthereumApiException error) {
+        tx.hashes.forEach(this::forget);
+        tx.result.completeExceptionally(error);
+    }
+
+    private void forget(EthHash hash) {
+        if (pending.remove(hash) != null) {
+            forgotten.accept(hash);
+        }
+    }
+
+    private static class PendingTransaction {
+        private final CompletableFuture<TransactionReceipt> result = new CompletableFuture<>();
+        private final Set<EthHash> hashes = ConcurrentHashMap.newKeySet();
+        private final AtomicInteger replacing = new AtomicInteger();
+        private volatile long deadline;
+
+        private PendingTransaction(EthHash hash) {
+            hashes.add(hash);
+        }
+    }
+}
@@ -4,6 +4,8 @@ import org.adridadou.ethereum.values.EthAddress;
 import org.adridadou.ethereum.values.EthData;
 import org.adridadou.ethereum.values.EthHash;
 
+import java.math.BigInteger;
+
 /**
  * Created by davidroon on 03.02.17.
  * This code is released under Apache 2 license
@@ -16,8 +18,18 @@ public class TransactionReceipt {
     public final String error;
     public final EthData executionResult;
     public final boolean isSuccessful;
+    public final BigInteger gasUsed;
+    public final BigInteger gasPrice;
+    /**
+     * false when the receipt has not been read: the status, the gas used and the contract address are unknown
+     */
+    public final boolean hasReceipt;
 
     public TransactionReceipt(EthHash hash, EthAddress sender, EthAddress receiveAddress, EthAddress contractAddress, String error, EthData executionResult, boolean isSuccessful) {
+        this(hash, sender, receiveAddress, contractAddress, error, executionResult, isSuccessful, BigInteger.ZERO, BigInteger.ZERO);
+    }
+
+    public TransactionReceipt(EthHash hash, EthAddress sender, EthAddress receiveAddress, EthAddress contractAddress, String error, EthData executionResult, boolean isSuccessful, BigInteger gasUsed, BigInteger gasPrice) {
         this.hash = hash;
         this.sender = sender;
         this.receiveAddress = receiveAddress;
@@ -25,6 +37,29 @@ public class TransactionReceipt {
         this.error = error;
         this.executionResult = executionResult;
         this.isSuccessful = isSuccessful;
+        this.gasUsed = gasUsed;
+        this.gasPrice = gasPrice;
+        this.hasReceipt = true;
+    }
+
+    private TransactionReceipt(EthHash hash, EthAddress sender, EthAddress receiveAddress, BigInteger gasPrice) {
+        this.hash = hash;
+        this.sender = sender;
+        this.receiveAddress = receiveAddress;
+        this.contractAddress = EthAddress.empty();
+        this.error = "";
+        this.executionResult = EthData.empty();
+        this.isSuccessful = false;
+        this.gasUsed = BigInteger.ZERO;
+        this.gasPrice = gasPrice;
+        this.hasReceipt = false;
+    }
+
+    /**
+     * an included transaction whose receipt has not been read. It is not successful since its status is unknown
+     */
+    public static TransactionReceipt withoutReceipt(EthHash hash, EthAddress sender, EthAddress receiveAddress, BigInteger gasPrice) {
+        return new TransactionReceipt(hash, sender, receiveAddress, gasPrice);
     }
 
     @Override
@@ -37,6 +72,9 @@ public class TransactionReceipt {
                 ", error='" + error + '\'' +
                 ", executionResult=" + executionResult +
                 ", isSuccessful=" + isSuccessful +
+                ", gasUsed=" + gasUsed +
+                ", gasPrice=" + gasPrice +
+                ", hasReceipt=" + hasReceipt +
                 '}';
     }
 }
@@ -0,0 +1,33 @@
+package org.adridadou.ethereum.gasprice;
+
+import org.adridadou.ethereum.EthereumBackend;
+import org.adridadou.ethereum.event.OnBlockParameters;
+import org.adridadou.ethereum.values.EthValue;
+
+import java.math.BigInteger;
+
+/**
+ * Created by davidroon on 01.04.17.
+ * This code is released under Apache 2 license
+ *
+ * Never goes above the cap, whatever the underlying strategy says
+ */
+public class CappedGasPrice implements GasPriceStrategy {
+    private final GasPriceStrategy strategy;
+    private final BigInteger cap;
+
+    public CappedGasPrice(GasPriceStrategy strategy, EthValue cap) {
+        this.strategy = strategy;
+        this.cap = cap.inWei();
+    }
+
+    @Override
+    public BigInteger initialGasPrice(EthereumBackend ethereum) {
+        return strategy.initialGasPrice(ethereum).min(cap);
+    }
+
+    @Override
+    public BigInteger onBlock(EthereumBackend ethereum, OnBlockParameters block) {
+        return strategy.onBlock(ethereum, block).min(cap);
+    }
+}
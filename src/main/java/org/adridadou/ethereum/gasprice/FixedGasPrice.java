@@ -0,0 +1,29 @@
+package org.adridadou.ethereum.gasprice;
+
+import org.adridadou.ethereum.EthereumBackend;
+import org.adridadou.ethereum.event.OnBlockParameters;
+import org.adridadou.ethereum.values.EthValue;
+
+import java.math.BigInteger;
+
+/**
+ * Created by davidroon on 01.04.17.
+ * This code is released under Apache 2 license
+ */
+public class FixedGasPrice implements GasPriceStrategy {
+    private final BigInteger gasPrice;
+
+    public FixedGasPrice(EthValue gasPrice) {
+        this.gasPrice = gasPrice.inWei();
+    }
+
+    @Override
+    public BigInteger initialGasPrice(EthereumBackend ethereum) {
+        return gasPrice;
+    }
+
+    @Override
+    public BigInteger onBlock(EthereumBackend ethereum, OnBlockParameters block) {
+        return gasPrice;
+    }
+}
@@ -0,0 +1,70 @@
+package org.adridadou.ethereum.gasprice;
+
+import org.adridadou.ethereum.EthereumBackend;
+import org.adridadou.ethereum.event.EthereumEventHandler;
+import org.adridadou.ethereum.event.OnBlockParameters;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigInteger;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Created by davidroon on 01.04.17.
+ * This code is released under Apache 2 license
+ *
+ * Holds the gas price used to sign transactions. The value is refreshed once per block by the strategy
+ * and reading it never does any I/O, except the very first time if no block has been seen yet.
+ * If the strategy fails, the previous value is kept
+ */
+public class GasPriceOracle {
+    private static final Logger log = LoggerFactory.getLogger(GasPriceOracle.class);
+
+    private final EthereumBackend ethereum;
+    private final Executor executor;
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private volatile GasPriceStrategy strategy;
+    private volatile BigInteger gasPrice;
+
+    public GasPriceOracle(EthereumBackend ethereum, EthereumEventHandler eventHandler, Executor executor) {
+        this.ethereum = ethereum;
+        this.executor = executor;
+        this.strategy = new NodeGasPrice();
+        eventHandler.observeBlocks().subscribe(this::onBlock);
+    }
+
+    public GasPriceOracle strategy(GasPriceStrategy strategy) {
+        this.strategy = strategy;
+        this.gasPrice = null;
+        return this;
+    }
+
+    public GasPriceStrategy getStrategy() {
+        return strategy;
+    }
+
+    public BigInteger getGasPrice() {
+        BigInteger current = gasPrice;
+        if (current == null) {
+            current = strategy.initialGasPrice(ethereum);
+            gasPrice = current;
+        }
+        return current;
+    }
+
+    private void onBlock(OnBlockParameters block) {
+        //the strategy may go to the node, this should not happen on the event thread. If the previous refresh is still running, this block is skipped
+        if (refreshing.compareAndSet(false, true)) {
+            executor.execute(() -> {
+                try {
+                    gasPrice = strategy.onBlock(ethereum, block);
+                } catch (RuntimeException e) {
+                    log.warn("error while refreshing the gas price, keeping " + gasPrice, e);
+                } finally {
+                    refreshing.set(false);
+                }
+            });
+        }
+    }
+}
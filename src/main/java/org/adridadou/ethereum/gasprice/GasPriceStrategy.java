@@ -0,0 +1,21 @@
+package org.adridadou.ethereum.gasprice;
+
+import org.adridadou.ethereum.EthereumBackend;
+import org.adridadou.ethereum.event.OnBlockParameters;
+
+import java.math.BigInteger;
+
+/**
+ * Created by davidroon on 01.04.17.
+ * This code is released under Apache 2 license
+ *
+ * Computes the gas price used for the next transactions. It is called once per new block, never on the submit path
+ */
+public interface GasPriceStrategy {
+    /**
+     * called once, before the first block has been seen
+     */
+    BigInteger initialGasPrice(EthereumBackend ethereum);
+
+    BigInteger onBlock(EthereumBackend ethereum, OnBlockParameters block);
+}
@@ -0,0 +1,24 @@
+package org.adridadou.ethereum.gasprice;
+
+import org.adridadou.ethereum.EthereumBackend;
+import org.adridadou.ethereum.event.OnBlockParameters;
+
+import java.math.BigInteger;
+
+/**
+ * Created by davidroon on 01.04.17.
+ * This code is released under Apache 2 license
+ *
+ * Asks the node for its gas price, once per block
+ */
+public class NodeGasPrice implements GasPriceStrategy {
+    @Override
+    public BigInteger initialGasPrice(EthereumBackend ethereum) {
+        return ethereum.getGasPrice();
+    }
+
+    @Override
+    public BigInteger onBlock(EthereumBackend ethereum, OnBlockParameters block) {
+        return ethereum.getGasPrice();
+    }
+}
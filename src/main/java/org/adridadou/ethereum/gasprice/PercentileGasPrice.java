@@ -0,0 +1,65 @@
+package org.adridadou.ethereum.gasprice;
+
+import org.adridadou.ethereum.EthereumBackend;
+import org.adridadou.ethereum.event.OnBlockParameters;
+
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Created by davidroon on 01.04.17.
+ * This code is released under Apache 2 license
+ *
+ * Takes a percentile of the gas prices paid in the last blocks.
+ * As long as no transaction has been seen in the window, the node gas price is used
+ */
+public class PercentileGasPrice implements GasPriceStrategy {
+    public static final int DEFAULT_BLOCK_WINDOW = 20;
+    public static final double DEFAULT_PERCENTILE = 0.6;
+
+    private final int blockWindow;
+    private final double percentile;
+    private final Deque<List<BigInteger>> blocks = new ArrayDeque<>();
+
+    public PercentileGasPrice() {
+        this(DEFAULT_BLOCK_WINDOW, DEFAULT_PERCENTILE);
+    }
+
+    /**
+     * @param percentile between 0 and 1
+     */
+    public PercentileGasPrice(int blockWindow, double percentile) {
+        this.blockWindow = Math.max(1, blockWindow);
+        this.percentile = Math.max(0, Math.min(percentile, 1));
+    }
+
+    @Override
+    public BigInteger initialGasPrice(EthereumBackend ethereum) {
+        return ethereum.getGasPrice();
+    }
+
+    @Override
+    public synchronized BigInteger onBlock(EthereumBackend ethereum, OnBlockParameters block) {
+        blocks.addLast(block.receipts.stream()
+                .map(receipt -> receipt.gasPrice)
+                .filter(gasPrice -> gasPrice != null && gasPrice.signum() > 0)
+                .collect(Collectors.toList()));
+        while (blocks.size() > blockWindow) {
+            blocks.removeFirst();
+        }
+
+        List<BigInteger> gasPrices = new ArrayList<>();
+        blocks.forEach(gasPrices::addAll);
+        if (gasPrices.isEmpty()) {
+            return ethereum.getGasPrice();
+        }
+        Collections.sort(gasPrices);
+        int index = (int) Math.ceil(percentile * gasPrices.size()) - 1;
+        return gasPrices.get(Math.max(0, Math.min(index, gasPrices.size() - 1)));
+    }
+}
@@ -2,11 +2,18 @@ package org.adridadou.ethereum.rpc;
 
 import org.adridadou.ethereum.EthereumBackend;
 import org.adridadou.ethereum.event.EthereumEventHandler;
+import org.adridadou.ethereum.event.LogEntry;
 import org.adridadou.ethereum.values.*;
 import org.ethereum.core.Transaction;
-import org.ethereum.crypto.ECKey;
 
 import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.stream.Collectors;
 
 /**
  * Created by davidroon on 20.01.17.
@@ -15,10 +22,19 @@ import java.math.BigInteger;
 public class EthereumRPC implements EthereumBackend {
     private final Web3JFacade web3JFacade;
     private final EthereumRpcEventGenerator ethereumRpcEventGenerator;
+    private final Executor signExecutor;
 
     public EthereumRPC(Web3JFacade web3JFacade, EthereumRpcEventGenerator ethereumRpcEventGenerator) {
+        this(web3JFacade, ethereumRpcEventGenerator, Runnable::run);
+    }
+
+    /**
+     * @param signExecutor signs the transactions of a batch in parallel, see {@link EthSigner#signAll(List, Executor)}
+     */
+    public EthereumRPC(Web3JFacade web3JFacade, EthereumRpcEventGenerator ethereumRpcEventGenerator, Executor signExecutor) {
         this.web3JFacade = web3JFacade;
         this.ethereumRpcEventGenerator = ethereumRpcEventGenerator;
+        this.signExecutor = signExecutor;
     }
 
     @Override
@@ -31,22 +47,45 @@ public class EthereumRPC implements EthereumBackend {
         return EthValue.wei(web3JFacade.getBalance(address).getBalance());
     }
 
+    @Override
+    public Map<EthAddress, EthValue> getBalances(Collection<EthAddress> addresses) {
+        return web3JFacade.getBalances(addresses);
+    }
+
     @Override
     public boolean addressExists(EthAddress address) {
-        return web3JFacade.getTransactionCount(address).intValue() > 0 || web3JFacade.getBalance(address).getBalance().intValue() > 0 || !web3JFacade.getCode(address).isEmpty();
+        return web3JFacade.addressExists(address);
     }
 
     @Override
-    public EthHash submit(EthAccount account, EthAddress address, EthValue value, EthData data, BigInteger nonce, BigInteger gasLimit) {
-        Transaction tx = createTransaction(account, nonce, getGasPrice(), gasLimit, address, value, data);
-        web3JFacade.sendTransaction(EthData.of(tx.getEncoded()));
-        return EthHash.of(tx.getHash());
+    public EthHash submit(EthAccount account, EthAddress address, EthValue value, EthData data, BigInteger nonce, BigInteger gasPrice, BigInteger gasLimit) {
+        return submit(account, sign(account, address, value, data, nonce, gasPrice, gasLimit));
     }
 
-    private Transaction createTransaction(EthAccount account, BigInteger nonce, BigInteger gasPrice, BigInteger gasLimit, EthAddress address, EthValue value, EthData data) {
-        Transaction tx = web3JFacade.createTransaction(nonce, gasPrice, gasLimit, address, value, data);
-        tx.sign(getKey(account));
-        return tx;
+    @Override
+    public Transaction sign(EthAccount account, EthAddress address, EthValue value, EthData data, BigInteger nonce, BigInteger gasPrice, BigInteger gasLimit) {
+        return account.getSigner().sign(web3JFacade.createTransaction(nonce, gasPrice, gasLimit, address, value, data));
+    }
+
+    @Override
+    public EthHash submit(EthAccount account, Transaction signedTransaction) {
+        ethereumRpcEventGenerator.watch(EthHash.of(signedTransaction.getHash()));
+        web3JFacade.sendTransaction(EthData.of(signedTransaction.getEncoded()));
+        return EthHash.of(signedTransaction.getHash());
+    }
+
+    @Override
+    public List<CompletableFuture<EthHash>> submit(EthAccount account, List<TransactionRequest> requests, BigInteger gasPrice, BigInteger firstNonce) {
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            TransactionRequest request = requests.get(i);
+            transactions.add(web3JFacade.createTransaction(firstNonce.add(BigInteger.valueOf(i)), gasPrice, request.getGasLimit(), request.getAddress(), request.getValue(), request.getData()));
+        }
+        List<Transaction> signedTransactions = account.getSigner().signAll(transactions, signExecutor);
+        signedTransactions.forEach(tx -> ethereumRpcEventGenerator.watch(EthHash.of(tx.getHash())));
+        return web3JFacade.sendTransactions(signedTransactions.stream()
+                .map(tx -> EthData.of(tx.getEncoded()))
+                .collect(Collectors.toList()));
     }
 
     @Override
@@ -54,6 +93,11 @@ public class EthereumRPC implements EthereumBackend {
         return web3JFacade.estimateGas(account, address, value, data);
     }
 
+    @Override
+    public List<BigInteger> estimateGas(EthAccount account, List<TransactionRequest> requests) {
+        return web3JFacade.estimateGas(account, requests);
+    }
+
     @Override
     public BigInteger getNonce(EthAddress currentAddress) {
         return web3JFacade.getTransactionCount(currentAddress);
@@ -74,12 +118,18 @@ public class EthereumRPC implements EthereumBackend {
         return web3JFacade.constantCall(account, address, data);
     }
 
+    @Override
+    public List<LogEntry> getLogs(EthAddress address, List<EthData> topics, long fromBlock, long toBlock) {
+        return web3JFacade.getLogs(address, topics, fromBlock, toBlock);
+    }
+
     @Override
     public void register(EthereumEventHandler eventHandler) {
         ethereumRpcEventGenerator.addListener(eventHandler);
     }
 
-    private ECKey getKey(EthAccount account) {
-        return ECKey.fromPrivate(account.getPrivateKey());
+    @Override
+    public void unwatch(EthHash hash) {
+        ethereumRpcEventGenerator.unwatch(hash);
     }
 }
@@ -6,43 +6,181 @@ import org.adridadou.ethereum.event.TransactionReceipt;
 import org.adridadou.ethereum.values.EthAddress;
 import org.adridadou.ethereum.values.EthData;
 import org.adridadou.ethereum.values.EthHash;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.web3j.protocol.core.methods.response.EthBlock;
+import org.web3j.protocol.core.methods.response.Transaction;
+import rx.Observable;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Created by davidroon on 30.01.17.
  * This code is released under Apache 2 license
+ *
+ * Turns the blocks of the node into block events. The receipt is only fetched for the transactions sent from or to a watched address
+ * or with a watched hash, in batches of RECEIPT_BATCH_SIZE with at most MAX_CONCURRENT_BATCHES batches at a time.
+ * The other transactions are given without their receipt (see {@link TransactionReceipt#hasReceipt}). The blocks are emitted in order.
+ * A watched hash stays watched until its receipt has been read: if the node does not return it with the block including the transaction,
+ * the block gives the transaction without receipt and the receipt is read again with each next block, which then gives it.
+ * A hash that is never included is kept until {@link #unwatch(EthHash)}.
+ * After an error (node not reachable, connection lost) the blocks are read again after RETRY_DELAY_MILLIS,
+ * starting with the blocks missed since the last one emitted
  */
 public class EthereumRpcEventGenerator {
+    public static final int RECEIPT_BATCH_SIZE = 50;
+    public static final int MAX_CONCURRENT_BATCHES = 4;
+    public static final long RETRY_DELAY_MILLIS = 1_000;
+
+    private static final Logger log = LoggerFactory.getLogger(EthereumRpcEventGenerator.class);
+
     private final List<EthereumEventHandler> ethereumEventHandlers = new ArrayList<>();
     private final Web3JFacade web3JFacade;
+    private final Executor executor;
+    private final Set<EthAddress> watchedAddresses = ConcurrentHashMap.newKeySet();
+    private final Set<EthHash> watchedHashes = ConcurrentHashMap.newKeySet();
+    private final Map<EthHash, Transaction> unreadReceipts = new ConcurrentHashMap<>();
+    private volatile boolean watchAll;
+    private volatile long lastBlockNumber = -1;
 
     public EthereumRpcEventGenerator(Web3JFacade web3JFacade) {
+        this(web3JFacade, Executors.newFixedThreadPool(MAX_CONCURRENT_BATCHES, runnable -> {
+            Thread thread = new Thread(runnable, "rpc-receipts");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    public EthereumRpcEventGenerator(Web3JFacade web3JFacade, Executor executor) {
         this.web3JFacade = web3JFacade;
-        web3JFacade.observeBlocks().subscribe(this::observeBlocks);
+        this.executor = executor;
+        web3JFacade.observeBlocks()
+                .doOnNext(this::onNewBlock)
+                .retryWhen(errors -> errors.flatMap(error -> {
+                    log.warn("error while reading the blocks, next try in " + RETRY_DELAY_MILLIS + " ms", error);
+                    return Observable.timer(RETRY_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+                }))
+                .subscribe();
+    }
+
+    /**
+     * the receipts of the transactions sent from or to this address (an account or a contract) are fetched
+     */
+    public void watch(EthAddress address) {
+        watchedAddresses.add(address);
+    }
+
+    /**
+     * the receipt of this transaction is fetched once, when it is included
+     */
+    public void watch(EthHash hash) {
+        watchedHashes.add(hash);
+    }
+
+    /**
+     * the receipt of this transaction is not needed anymore, for example because it has been replaced or dropped
+     */
+    public void unwatch(EthHash hash) {
+        watchedHashes.remove(hash);
+        unreadReceipts.remove(hash);
+    }
+
+    /**
+     * fetches the receipt of every transaction, like before the receipts were selected
+     */
+    public void watchAll(boolean watchAll) {
+        this.watchAll = watchAll;
+    }
+
+    private void onNewBlock(EthBlock ethBlock) {
+        long number = ethBlock.getBlock().getNumber().longValue();
+        long last = lastBlockNumber;
+        //the blocks missed while the node could not be read. A block number going back is a reorganisation, it is emitted as it is
+        for (long missed = last + 1; last >= 0 && missed < number; missed++) {
+            observeBlocks(web3JFacade.getBlock(missed));
+        }
+        observeBlocks(ethBlock);
     }
 
     private void observeBlocks(EthBlock ethBlock) {
         EthBlock.Block block = ethBlock.getBlock();
-        List<TransactionReceipt> txs = block.getTransactions().stream()
-                .map(tx -> toReceipt((EthBlock.TransactionObject)tx.get()))
-                .collect(Collectors.toList());
+        List<Transaction> txs = new ArrayList<>();
+        block.getTransactions().forEach(tx -> txs.add((EthBlock.TransactionObject) tx.get()));
+        //the transactions included before whose receipt could not be read yet
+        Map<EthHash, Transaction> unread = new HashMap<>(unreadReceipts);
+        Map<EthHash, org.web3j.protocol.core.methods.response.TransactionReceipt> receipts = getReceipts(txs, unread.keySet());
 
-        OnBlockParameters param = new OnBlockParameters(block.getNumber().longValue(), txs);
+        List<TransactionReceipt> result = new ArrayList<>();
+        for (Transaction tx : txs) {
+            result.add(toReceipt(tx, receipts.get(EthHash.of(tx.getHash()))));
+        }
+        unread.forEach((hash, tx) -> Optional.ofNullable(receipts.get(hash)).ifPresent(receipt -> result.add(toReceipt(tx, receipt))));
+        OnBlockParameters param = new OnBlockParameters(block.getNumber().longValue(), result);
         ethereumEventHandlers.forEach(handler -> handler.onBlock(param));
+        lastBlockNumber = param.blockNumber;
+    }
+
+    private Map<EthHash, org.web3j.protocol.core.methods.response.TransactionReceipt> getReceipts(List<Transaction> txs, Set<EthHash> unread) {
+        List<EthHash> hashes = new ArrayList<>(unread);
+        for (Transaction tx : txs) {
+            if (isWatched(tx)) {
+                hashes.add(EthHash.of(tx.getHash()));
+            }
+        }
+        List<CompletableFuture<List<org.web3j.protocol.core.methods.response.TransactionReceipt>>> batches = new ArrayList<>();
+        for (int start = 0; start < hashes.size(); start += RECEIPT_BATCH_SIZE) {
+            List<EthHash> batch = hashes.subList(start, Math.min(hashes.size(), start + RECEIPT_BATCH_SIZE));
+            batches.add(CompletableFuture.supplyAsync(() -> web3JFacade.getReceipts(batch), executor));
+        }
+        Map<EthHash, org.web3j.protocol.core.methods.response.TransactionReceipt> result = new HashMap<>();
+        for (CompletableFuture<List<org.web3j.protocol.core.methods.response.TransactionReceipt>> batch : batches) {
+            for (org.web3j.protocol.core.methods.response.TransactionReceipt receipt : batch.join()) {
+                if (receipt != null) {
+                    result.put(EthHash.of(receipt.getTransactionHash()), receipt);
+                }
+            }
+        }
+        for (Transaction tx : txs) {
+            EthHash hash = EthHash.of(tx.getHash());
+            if (!result.containsKey(hash) && watchedHashes.contains(hash)) {
+                unreadReceipts.put(hash, tx);
+                if (!watchedHashes.contains(hash)) {
+                    //unwatched in the meantime
+                    unreadReceipts.remove(hash);
+                }
+            }
+        }
+        result.keySet().forEach(this::unwatch);
+        return result;
     }
 
-    private TransactionReceipt toReceipt(EthBlock.TransactionObject tx) {
-        org.web3j.protocol.core.methods.response.TransactionReceipt receipt = web3JFacade.getReceipt(EthHash.of(tx.getHash()));
+    private boolean isWatched(Transaction tx) {
+        return watchAll
+                || watchedHashes.contains(EthHash.of(tx.getHash()))
+                || watchedAddresses.contains(EthAddress.of(tx.getFrom()))
+                || (tx.getTo() != null && watchedAddresses.contains(EthAddress.of(tx.getTo())));
+    }
+
+    private TransactionReceipt toReceipt(Transaction tx, org.web3j.protocol.core.methods.response.TransactionReceipt receipt) {
+        if (receipt == null) {
+            return TransactionReceipt.withoutReceipt(EthHash.of(tx.getHash()), EthAddress.of(tx.getFrom()), EthAddress.of(tx.getTo()), tx.getGasPrice());
+        }
         boolean successful = !receipt.getGasUsed().equals(tx.getGas());
         String error = "";
         if(!successful) {
             error = "Error fromSeed RPC, all the gas was used";
         }
-        return new TransactionReceipt(EthHash.of(tx.getHash()), EthAddress.of(tx.getFrom()),EthAddress.of(tx.getTo()), EthAddress.of(receipt.getContractAddress()), error, EthData.empty(), successful);
+        return new TransactionReceipt(EthHash.of(tx.getHash()), EthAddress.of(tx.getFrom()),EthAddress.of(tx.getTo()), EthAddress.of(receipt.getContractAddress()), error, EthData.empty(), successful, receipt.getGasUsed(), tx.getGasPrice());
     }
 
     public void addListener(EthereumEventHandler ethereumEventHandler) {
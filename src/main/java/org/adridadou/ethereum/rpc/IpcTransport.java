@@ -0,0 +1,91 @@
+package org.adridadou.ethereum.rpc;
+
+import jnr.unixsocket.UnixSocketAddress;
+import jnr.unixsocket.UnixSocketChannel;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Created by davidroon on 18.04.17.
+ * This code is released under Apache 2 license
+ *
+ * The IPC socket of a local node (geth.ipc, parity.ipc). The node sends the JSON messages one after the other without framing,
+ * a message ends when its outer object or array is closed
+ */
+public class IpcTransport implements JsonRpcTransport {
+    private static final int BUFFER_SIZE = 8192;
+
+    private final UnixSocketChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private final Object writeLock = new Object();
+
+    public IpcTransport(String path) throws IOException {
+        this.channel = UnixSocketChannel.open(new UnixSocketAddress(new File(path)));
+        buffer.flip();
+    }
+
+    @Override
+    public void write(String message) throws IOException {
+        ByteBuffer bytes = ByteBuffer.wrap(message.getBytes(StandardCharsets.UTF_8));
+        synchronized (writeLock) {
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+        }
+    }
+
+    /**
+     * the structural characters of JSON are ASCII, they never appear inside a multi byte UTF-8 character
+     */
+    @Override
+    public String read() throws IOException {
+        ByteArrayOutputStream message = new ByteArrayOutputStream();
+        int depth = 0;
+        boolean inString = false;
+        boolean escaped = false;
+        while (true) {
+            if (!buffer.hasRemaining()) {
+                buffer.clear();
+                if (channel.read(buffer) < 0) {
+                    throw new EOFException("the IPC connection has been closed");
+                }
+                buffer.flip();
+                continue;
+            }
+            byte b = buffer.get();
+            if (depth == 0 && b != '{' && b != '[') {
+                //whitespace between two messages
+                continue;
+            }
+            message.write(b);
+            if (inString) {
+                if (escaped) {
+                    escaped = false;
+                } else if (b == '\\') {
+                    escaped = true;
+                } else if (b == '"') {
+                    inString = false;
+                }
+            } else if (b == '"') {
+                inString = true;
+            } else if (b == '{' || b == '[') {
+                depth++;
+            } else if (b == '}' || b == ']') {
+                depth--;
+                if (depth == 0) {
+                    return new String(message.toByteArray(), StandardCharsets.UTF_8);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,71 @@
+package org.adridadou.ethereum.rpc;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.adridadou.exception.EthereumApiException;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.web3j.protocol.ObjectMapperFactory;
+import org.web3j.protocol.core.Request;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Created by davidroon on 27.03.17.
+ * This code is released under Apache 2 license
+ *
+ * Sends a list of JSON-RPC requests as one array request over HTTP
+ */
+public class JsonRpcBatchService {
+    private final String url;
+    private final CloseableHttpClient httpClient;
+    private final ObjectMapper objectMapper = ObjectMapperFactory.getObjectMapper();
+
+    public JsonRpcBatchService(String url) {
+        this(url, HttpClients.createDefault());
+    }
+
+    public JsonRpcBatchService(String url, CloseableHttpClient httpClient) {
+        this.url = url;
+        this.httpClient = httpClient;
+    }
+
+    /**
+     * for the services choosing where each batch is sent, they override send
+     */
+    protected JsonRpcBatchService() {
+        this(null, null);
+    }
+
+    /**
+     * @return the raw response of each request, in the same order as the requests. The requests need to have distinct ids
+     */
+    public List<JsonNode> send(List<Request<?, ?>> requests) throws IOException {
+        HttpPost post = new HttpPost(url);
+        post.setEntity(new StringEntity(objectMapper.writeValueAsString(requests), ContentType.APPLICATION_JSON));
+        try (CloseableHttpResponse response = httpClient.execute(post); InputStream content = response.getEntity().getContent()) {
+            JsonNode result = objectMapper.readTree(content);
+            if (!result.isArray()) {
+                throw new EthereumApiException("the node did not answer the batch request with an array:" + result);
+            }
+            Map<Long, JsonNode> responses = new HashMap<>();
+            result.forEach(node -> responses.put(node.get("id").asLong(), node));
+            return requests.stream()
+                    .map(request -> responses.get(request.getId()))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    public <T> T convert(JsonNode node, Class<T> responseType) throws IOException {
+        return objectMapper.treeToValue(node, responseType);
+    }
+}
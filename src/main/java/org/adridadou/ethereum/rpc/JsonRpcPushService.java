@@ -0,0 +1,333 @@
+package org.adridadou.ethereum.rpc;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.web3j.protocol.Service;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
+import rx.Observable;
+import rx.Subscriber;
+import rx.schedulers.Schedulers;
+import rx.subscriptions.Subscriptions;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Created by davidroon on 18.04.17.
+ * This code is released under Apache 2 license
+ *
+ * A web3j service over a WebSocket or IPC connection. The requests wait for their response on the shared connection,
+ * and the node pushes the notifications of the eth_subscribe subscriptions (newHeads, logs) without any polling.
+ * The notifications are delivered on a scheduler thread, never on the thread reading the connection, so that they can send requests.
+ * When the connection is lost, the waiting requests fail and the new ones fail right away until the service reconnects,
+ * with a backoff from RECONNECT_MIN_DELAY_MILLIS to RECONNECT_MAX_DELAY_MILLIS. The subscriptions are then sent again to the node,
+ * the notifications pushed while the connection was lost are not replayed. Without a TransportFactory the service does not reconnect
+ * and the subscriptions end with an error
+ */
+public class JsonRpcPushService extends Service {
+    private static final Logger log = LoggerFactory.getLogger(JsonRpcPushService.class);
+
+    public static final long REQUEST_TIMEOUT_SECONDS = 60;
+    public static final long RECONNECT_MIN_DELAY_MILLIS = 500;
+    public static final long RECONNECT_MAX_DELAY_MILLIS = 30_000;
+
+    private final TransportFactory transportFactory;
+    private final AtomicLong nextId = new AtomicLong();
+    private final Map<Long, CompletableFuture<JsonNode>> pending = new ConcurrentHashMap<>();
+    private final Set<ActiveSubscription> active = ConcurrentHashMap.newKeySet();
+    //by the id given by the node
+    private final Map<String, ActiveSubscription> subscriptions = new ConcurrentHashMap<>();
+    private final Thread reader;
+    //null while the connection is lost
+    private volatile JsonRpcTransport transport;
+    private volatile boolean closed;
+
+    /**
+     * the service does not reconnect when the connection is lost
+     */
+    public JsonRpcPushService(JsonRpcTransport transport) {
+        this(transport, null);
+    }
+
+    /**
+     * connects now, and again each time the connection is lost
+     */
+    public JsonRpcPushService(TransportFactory transportFactory) throws IOException {
+        this(transportFactory.connect(), transportFactory);
+    }
+
+    private JsonRpcPushService(JsonRpcTransport transport, TransportFactory transportFactory) {
+        this.transport = transport;
+        this.transportFactory = transportFactory;
+        this.reader = new Thread(this::readMessages, "json-rpc-push-reader");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    @Override
+    public <T extends Response> T send(Request request, Class<T> responseType) throws IOException {
+        CompletableFuture<JsonNode> response = register(request);
+        write(request);
+        try {
+            return objectMapper.treeToValue(response.get(REQUEST_TIMEOUT_SECONDS, TimeUnit.SECONDS), responseType);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while waiting for the response of " + request.getMethod(), e);
+        } catch (ExecutionException e) {
+            throw new IOException("error while waiting for the response of " + request.getMethod(), e.getCause());
+        } catch (TimeoutException e) {
+            pending.remove(request.getId());
+            throw new IOException("no response received for " + request.getMethod() + " after " + REQUEST_TIMEOUT_SECONDS + " seconds", e);
+        }
+    }
+
+    /**
+     * eth_subscribe, the subscription is cancelled on the node with eth_unsubscribe when the observable is unsubscribed
+     * @param params the subscription type (newHeads, logs ...) followed by its parameters
+     * @return the result of each notification
+     */
+    public Observable<JsonNode> subscribe(Object... params) {
+        Observable<JsonNode> notifications = Observable.unsafeCreate(subscriber -> {
+            ActiveSubscription subscription = new ActiveSubscription(params, subscriber);
+            active.add(subscription);
+            subscriber.add(Subscriptions.create(() -> unsubscribe(subscription)));
+            sendSubscription(subscription);
+        });
+        return notifications
+                .onBackpressureBuffer()
+                .observeOn(Schedulers.io());
+    }
+
+    private void sendSubscription(ActiveSubscription subscription) {
+        Request<Object, SubscriptionId> request = new Request<>("eth_subscribe", Arrays.asList(subscription.params), 0, this, SubscriptionId.class);
+        CompletableFuture<JsonNode> response = register(request);
+        //runs on the reader thread before the next message, no notification is missed
+        response.thenAccept(node -> {
+            JsonNode id = node.get("result");
+            if (id != null && id.isTextual()) {
+                String previous = subscription.id;
+                if (previous != null && subscriptions.get(previous) == subscription) {
+                    //sent twice, by the subscription and by a reconnection at the same time
+                    sendUnsubscribe(id.asText());
+                    return;
+                }
+                subscription.id = id.asText();
+                subscriptions.put(subscription.id, subscription);
+                if (subscription.subscriber.isUnsubscribed()) {
+                    unsubscribe(subscription);
+                }
+            } else {
+                fail(subscription, new IOException("the node refused the subscription " + subscription.params[0] + ": " + node.get("error")));
+            }
+        });
+        //if the connection is lost before the answer, the subscription is sent again after the reconnection
+        response.exceptionally(e -> {
+            if (transportFactory == null || closed) {
+                fail(subscription, e);
+            }
+            return null;
+        });
+        try {
+            write(request);
+        } catch (IOException e) {
+            if (transportFactory == null || closed) {
+                fail(subscription, e);
+            }
+        }
+    }
+
+    private void fail(ActiveSubscription subscription, Throwable error) {
+        active.remove(subscription);
+        subscription.subscriber.onError(error);
+    }
+
+    private void unsubscribe(ActiveSubscription subscription) {
+        active.remove(subscription);
+        String id = subscription.id;
+        if (id != null && subscriptions.remove(id, subscription)) {
+            sendUnsubscribe(id);
+        }
+    }
+
+    private void sendUnsubscribe(String id) {
+        if (!closed && transport != null) {
+            new Request<>("eth_unsubscribe", Collections.singletonList(id), 0, this, UnsubscribeResult.class).sendAsync();
+        }
+    }
+
+    private CompletableFuture<JsonNode> register(Request<?, ?> request) {
+        long id = nextId.incrementAndGet();
+        request.setId(id);
+        CompletableFuture<JsonNode> response = new CompletableFuture<>();
+        pending.put(id, response);
+        return response;
+    }
+
+    /**
+     * fails right away when the connection is closed or lost, the request is then no longer waiting for its response
+     */
+    private void write(Request<?, ?> request) throws IOException {
+        JsonRpcTransport current = transport;
+        try {
+            if (closed) {
+                throw new IOException("the connection to the node is closed");
+            }
+            if (current == null) {
+                throw new IOException("the connection to the node has been lost, the service is reconnecting");
+            }
+            current.write(objectMapper.writeValueAsString(request));
+        } catch (IOException e) {
+            pending.remove(request.getId());
+            throw e;
+        }
+        //the connection has been lost during the write, the pending requests may have been failed before this one was added
+        if (transport != current) {
+            Optional.ofNullable(pending.remove(request.getId()))
+                    .ifPresent(response -> response.completeExceptionally(new IOException("the connection to the node has been lost")));
+        }
+    }
+
+    private void readMessages() {
+        while (!closed) {
+            JsonRpcTransport current = transport;
+            try {
+                while (!closed) {
+                    JsonNode message = objectMapper.readTree(current.read());
+                    if (message.isArray()) {
+                        message.forEach(this::dispatch);
+                    } else {
+                        dispatch(message);
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                if (closed) {
+                    return;
+                }
+                disconnected(current, e);
+                if (transportFactory == null || !reconnect()) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void disconnected(JsonRpcTransport current, Exception error) {
+        transport = null;
+        closeQuietly(current);
+        IOException lost = new IOException("the connection to the node has been lost", error);
+        failPending(lost);
+        subscriptions.clear();
+        if (transportFactory == null) {
+            new ArrayList<>(active).forEach(subscription -> fail(subscription, lost));
+        } else {
+            log.warn("the connection to the node has been lost, reconnecting", error);
+        }
+    }
+
+    /**
+     * @return false if the service has been closed before the reconnection
+     */
+    private boolean reconnect() {
+        long delay = RECONNECT_MIN_DELAY_MILLIS;
+        while (!closed) {
+            try {
+                Thread.sleep(delay);
+                transport = transportFactory.connect();
+                if (closed) {
+                    closeQuietly(transport);
+                    return false;
+                }
+                log.info("reconnected to the node, sending the subscriptions again");
+                active.forEach(this::sendSubscription);
+                return true;
+            } catch (IOException e) {
+                log.warn("error while reconnecting to the node, next try in " + Math.min(delay * 2, RECONNECT_MAX_DELAY_MILLIS) + " ms", e);
+                delay = Math.min(delay * 2, RECONNECT_MAX_DELAY_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private void failPending(IOException error) {
+        new ArrayList<>(pending.keySet()).forEach(id -> Optional.ofNullable(pending.remove(id))
+                .ifPresent(response -> response.completeExceptionally(error)));
+    }
+
+    private static void closeQuietly(JsonRpcTransport transport) {
+        try {
+            transport.close();
+        } catch (IOException e) {
+            log.debug("error while closing the connection", e);
+        }
+    }
+
+    private void dispatch(JsonNode message) {
+        JsonNode id = message.get("id");
+        if (id != null && !id.isNull()) {
+            CompletableFuture<JsonNode> response = pending.remove(id.asLong());
+            if (response != null) {
+                response.complete(message);
+            }
+            return;
+        }
+        JsonNode params = message.get("params");
+        if ("eth_subscription".equals(message.path("method").asText()) && params != null) {
+            ActiveSubscription subscription = subscriptions.get(params.path("subscription").asText());
+            if (subscription != null && !subscription.subscriber.isUnsubscribed()) {
+                subscription.subscriber.onNext(params.get("result"));
+            }
+        }
+    }
+
+    public ObjectMapper getObjectMapper() {
+        return objectMapper;
+    }
+
+    public void close() throws IOException {
+        closed = true;
+        reader.interrupt();
+        failPending(new IOException("the connection to the node is closed"));
+        JsonRpcTransport current = transport;
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    /**
+     * opens a new connection to the node
+     */
+    public interface TransportFactory {
+        JsonRpcTransport connect() throws IOException;
+    }
+
+    private static class ActiveSubscription {
+        private final Object[] params;
+        private final Subscriber<? super JsonNode> subscriber;
+        //given by the node, it changes after a reconnection
+        private volatile String id;
+
+        private ActiveSubscription(Object[] params, Subscriber<? super JsonNode> subscriber) {
+            this.params = params;
+            this.subscriber = subscriber;
+        }
+    }
+
+    public static class SubscriptionId extends Response<String> {
+    }
+
+    public static class UnsubscribeResult extends Response<Boolean> {
+    }
+}
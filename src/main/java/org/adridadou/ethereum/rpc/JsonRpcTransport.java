@@ -0,0 +1,21 @@
+package org.adridadou.ethereum.rpc;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Created by davidroon on 18.04.17.
+ * This code is released under Apache 2 license
+ *
+ * A connection to a node where the messages go both ways: the responses and the subscription notifications come on the same stream.
+ * write can be called while a read is blocked
+ */
+public interface JsonRpcTransport extends Closeable {
+    void write(String message) throws IOException;
+
+    /**
+     * blocks until the next JSON message is received
+     * @throws java.io.EOFException when the connection is closed
+     */
+    String read() throws IOException;
+}
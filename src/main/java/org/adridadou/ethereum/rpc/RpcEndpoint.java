@@ -0,0 +1,115 @@
+package org.adridadou.ethereum.rpc;
+
+import org.web3j.protocol.Web3jService;
+import org.web3j.protocol.http.HttpService;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created by davidroon on 17.04.17.
+ * This code is released under Apache 2 license
+ *
+ * One node of a {@link RpcEndpointPool} with its health: moving averages of the latency and of the error rate,
+ * and a circuit breaker. After too many errors in a row the node is ejected for a while, then it gets one request
+ * to try again (the probe, no other request goes to the node while it runs): a success re-admits it, an error ejects it again
+ */
+public class RpcEndpoint {
+    private static final double SMOOTHING = 0.2;
+
+    private final String url;
+    private final Web3jService service;
+    private final JsonRpcBatchService batchService;
+    private double latencyMillis;
+    private double errorRate;
+    private int consecutiveErrors;
+    private long ejectedUntil;
+    private boolean ejected;
+    private boolean probing;
+
+    public RpcEndpoint(String url) {
+        this(url, new HttpService(url), new JsonRpcBatchService(url));
+    }
+
+    public RpcEndpoint(String url, Web3jService service, JsonRpcBatchService batchService) {
+        this.url = url;
+        this.service = service;
+        this.batchService = batchService;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    Web3jService getService() {
+        return service;
+    }
+
+    JsonRpcBatchService getBatchService() {
+        return batchService;
+    }
+
+    public synchronized double getLatencyMillis() {
+        return latencyMillis;
+    }
+
+    public synchronized double getErrorRate() {
+        return errorRate;
+    }
+
+    synchronized boolean isAvailable(long now) {
+        return now >= ejectedUntil && !probing;
+    }
+
+    /**
+     * false if the node should not get this request. The first request after an ejection becomes the probe
+     */
+    synchronized boolean tryAcquire(long now) {
+        if (!isAvailable(now)) {
+            return false;
+        }
+        probing = ejected;
+        return true;
+    }
+
+    /**
+     * the request has ended without telling anything about the node
+     */
+    synchronized void release() {
+        probing = false;
+    }
+
+    /**
+     * the latency weighted by the error rate, the lowest is the best. A node without any request yet has a score of 0
+     */
+    synchronized double score() {
+        return latencyMillis / Math.max(0.1, 1 - errorRate);
+    }
+
+    synchronized void success(long durationNanos) {
+        double duration = (double) durationNanos / TimeUnit.MILLISECONDS.toNanos(1);
+        latencyMillis = latencyMillis == 0 ? duration : latencyMillis + SMOOTHING * (duration - latencyMillis);
+        errorRate -= SMOOTHING * errorRate;
+        consecutiveErrors = 0;
+        ejected = false;
+        probing = false;
+    }
+
+    synchronized void failure(long now, int failureThreshold, long ejectMillis) {
+        errorRate += SMOOTHING * (1 - errorRate);
+        consecutiveErrors++;
+        probing = false;
+        if (consecutiveErrors >= failureThreshold) {
+            ejected = true;
+            ejectedUntil = now + ejectMillis;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "RpcEndpoint{" +
+                "url='" + url + '\'' +
+                ", latencyMillis=" + getLatencyMillis() +
+                ", errorRate=" + getErrorRate() +
+                '}';
+    }
+}
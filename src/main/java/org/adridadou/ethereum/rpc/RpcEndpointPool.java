@@ -0,0 +1,229 @@
+package org.adridadou.ethereum.rpc;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.adridadou.ethereum.values.EthAddress;
+import org.adridadou.exception.EthereumApiException;
+import org.web3j.protocol.Service;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
+import org.web3j.utils.Numeric;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Created by davidroon on 17.04.17.
+ * This code is released under Apache 2 license
+ *
+ * A web3j service sending each request to the best node of a pool: the lowest latency weighted by the error rate, see {@link RpcEndpoint}.
+ * A request failing with an IO error is sent to the next node, except a raw transaction: the node may have received it before the error,
+ * sending it again to another node could make a second transaction with the same nonce. The transactions and the nonce of an account go to the same node
+ * as long as it is healthy, so that the node sees the nonces in order. A filter is always polled on the node that created it
+ */
+public class RpcEndpointPool extends Service {
+    public static final int DEFAULT_FAILURE_THRESHOLD = 3;
+    public static final long DEFAULT_EJECT_MILLIS = 30_000;
+
+    private static final Set<String> FILTER_CREATIONS = new HashSet<>(Arrays.asList("eth_newFilter", "eth_newBlockFilter", "eth_newPendingTransactionFilter"));
+    private static final Set<String> FILTER_READS = new HashSet<>(Arrays.asList("eth_getFilterChanges", "eth_getFilterLogs", "eth_uninstallFilter"));
+    private static final String SEND_RAW_TRANSACTION = "eth_sendRawTransaction";
+
+    private final List<RpcEndpoint> endpoints;
+    private final Map<EthAddress, RpcEndpoint> accounts = new ConcurrentHashMap<>();
+    private final Map<BigInteger, RpcEndpoint> filters = new ConcurrentHashMap<>();
+    private final JsonRpcBatchService batchService = new PooledBatchService();
+    private volatile int failureThreshold = DEFAULT_FAILURE_THRESHOLD;
+    private volatile long ejectMillis = DEFAULT_EJECT_MILLIS;
+
+    public RpcEndpointPool(List<RpcEndpoint> endpoints) {
+        if (endpoints.isEmpty()) {
+            throw new EthereumApiException("the pool needs at least one endpoint");
+        }
+        this.endpoints = new ArrayList<>(endpoints);
+    }
+
+    public static RpcEndpointPool forUrls(List<String> urls) {
+        return new RpcEndpointPool(urls.stream().map(RpcEndpoint::new).collect(Collectors.toList()));
+    }
+
+    /**
+     * number of IO errors in a row before a node is ejected
+     */
+    public RpcEndpointPool failureThreshold(int failureThreshold) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        return this;
+    }
+
+    /**
+     * how long an ejected node gets no request, unless all the nodes are ejected
+     */
+    public RpcEndpointPool ejectMillis(long ejectMillis) {
+        this.ejectMillis = Math.max(0, ejectMillis);
+        return this;
+    }
+
+    public List<RpcEndpoint> getEndpoints() {
+        return Collections.unmodifiableList(endpoints);
+    }
+
+    /**
+     * the batches go through the pool the same way as the single requests
+     */
+    public JsonRpcBatchService batchService() {
+        return batchService;
+    }
+
+    @Override
+    public <T extends Response> T send(Request request, Class<T> responseType) throws IOException {
+        String method = request.getMethod();
+        if (FILTER_READS.contains(method) && !request.getParams().isEmpty()) {
+            BigInteger filterId = filterId(request.getParams().get(0));
+            RpcEndpoint endpoint = filters.get(filterId);
+            if (endpoint != null) {
+                if ("eth_uninstallFilter".equals(method)) {
+                    filters.remove(filterId);
+                }
+                return call(endpoint, request, responseType);
+            }
+        }
+        return execute(account(request), !SEND_RAW_TRANSACTION.equals(method), endpoint -> {
+            T response = endpoint.getService().send(request, responseType);
+            if (FILTER_CREATIONS.contains(method) && !response.hasError() && response.getResult() != null) {
+                filters.put(filterId(response.getResult()), endpoint);
+            }
+            return response;
+        });
+    }
+
+    private <T extends Response> T call(RpcEndpoint endpoint, Request request, Class<T> responseType) throws IOException {
+        long start = System.nanoTime();
+        try {
+            T response = endpoint.getService().send(request, responseType);
+            endpoint.success(System.nanoTime() - start);
+            return response;
+        } catch (IOException e) {
+            endpoint.failure(System.currentTimeMillis(), failureThreshold, ejectMillis);
+            throw e;
+        }
+    }
+
+    /**
+     * @param failover false to try only one node
+     */
+    private <R> R execute(Optional<EthAddress> account, boolean failover, EndpointCall<R> call) throws IOException {
+        List<RpcEndpoint> candidates = candidates(account);
+        IOException error = null;
+        boolean tried = false;
+        for (RpcEndpoint endpoint : candidates) {
+            if (endpoint.tryAcquire(System.currentTimeMillis())) {
+                tried = true;
+                try {
+                    return attempt(endpoint, account, call);
+                } catch (IOException e) {
+                    error = e;
+                    if (!failover) {
+                        throw e;
+                    }
+                }
+            }
+        }
+        if (tried) {
+            throw error;
+        }
+        //all the nodes are ejected or being probed, they are tried anyway
+        for (RpcEndpoint endpoint : candidates) {
+            try {
+                return attempt(endpoint, account, call);
+            } catch (IOException e) {
+                error = e;
+                if (!failover) {
+                    throw e;
+                }
+            }
+        }
+        throw error;
+    }
+
+    private <R> R attempt(RpcEndpoint endpoint, Optional<EthAddress> account, EndpointCall<R> call) throws IOException {
+        long start = System.nanoTime();
+        try {
+            R result = call.call(endpoint);
+            endpoint.success(System.nanoTime() - start);
+            account.ifPresent(address -> accounts.put(address, endpoint));
+            return result;
+        } catch (IOException e) {
+            endpoint.failure(System.currentTimeMillis(), failureThreshold, ejectMillis);
+            throw e;
+        } catch (RuntimeException e) {
+            endpoint.release();
+            throw e;
+        }
+    }
+
+    /**
+     * the healthy nodes from the best to the worst, with the node of the account first. The ejected nodes come last
+     */
+    private List<RpcEndpoint> candidates(Optional<EthAddress> account) {
+        long now = System.currentTimeMillis();
+        Map<RpcEndpoint, Double> scores = new HashMap<>();
+        Map<RpcEndpoint, Boolean> available = new HashMap<>();
+        endpoints.forEach(endpoint -> {
+            scores.put(endpoint, endpoint.score());
+            available.put(endpoint, endpoint.isAvailable(now));
+        });
+        List<RpcEndpoint> result = new ArrayList<>(endpoints);
+        result.sort(Comparator.<RpcEndpoint, Boolean>comparing(endpoint -> !available.get(endpoint)).thenComparing(scores::get));
+        account.map(accounts::get)
+                .filter(available::get)
+                .ifPresent(sticky -> {
+                    result.remove(sticky);
+                    result.add(0, sticky);
+                });
+        return result;
+    }
+
+    private static Optional<EthAddress> account(Request<?, ?> request) {
+        List<?> params = request.getParams();
+        if (params == null || params.isEmpty() || !(params.get(0) instanceof String)) {
+            return Optional.empty();
+        }
+        String param = (String) params.get(0);
+        switch (request.getMethod()) {
+            case "eth_getTransactionCount":
+                return Optional.of(EthAddress.of(param));
+            case SEND_RAW_TRANSACTION:
+                try {
+                    return Optional.of(EthAddress.of(new org.ethereum.core.Transaction(Numeric.hexStringToByteArray(param)).getSender()));
+                } catch (RuntimeException e) {
+                    //not a valid transaction, the node will answer with an error
+                    return Optional.empty();
+                }
+            default:
+                return Optional.empty();
+        }
+    }
+
+    private static BigInteger filterId(Object value) {
+        return value instanceof BigInteger ? (BigInteger) value : Numeric.toBigInt(value.toString());
+    }
+
+    private interface EndpointCall<R> {
+        R call(RpcEndpoint endpoint) throws IOException;
+    }
+
+    private class PooledBatchService extends JsonRpcBatchService {
+        @Override
+        public List<JsonNode> send(List<Request<?, ?>> requests) throws IOException {
+            Optional<EthAddress> account = requests.stream()
+                    .map(RpcEndpointPool::account)
+                    .filter(Optional::isPresent)
+                    .map(Optional::get)
+                    .findFirst();
+            boolean failover = requests.stream().noneMatch(request -> SEND_RAW_TRANSACTION.equals(request.getMethod()));
+            return execute(account, failover, endpoint -> endpoint.getBatchService().send(requests));
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package org.adridadou.ethereum.rpc;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
+
+import java.io.IOError;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+/**
+ * Created by davidroon on 27.03.17.
+ * This code is released under Apache 2 license
+ *
+ * Collects web3j requests and sends them in one JSON-RPC batch. Without a batch service, the requests are sent one by one.
+ */
+public class Web3JBatch {
+    private final JsonRpcBatchService batchService;
+    private final List<Entry<?>> entries = new ArrayList<>();
+
+    Web3JBatch(JsonRpcBatchService batchService) {
+        this.batchService = batchService;
+    }
+
+    public <T extends Response> CompletableFuture<T> add(Request<?, T> request, Class<T> responseType) {
+        Entry<T> entry = new Entry<>(request, responseType);
+        entries.add(entry);
+        return entry.result;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public void send() {
+        if (entries.isEmpty()) {
+            return;
+        }
+        if (batchService == null) {
+            entries.forEach(Entry::sendAlone);
+            return;
+        }
+        try {
+            sendBatch();
+        } catch (IOException e) {
+            entries.forEach(entry -> entry.result.completeExceptionally(e));
+            throw new IOError(e);
+        } catch (RuntimeException e) {
+            entries.forEach(entry -> entry.result.completeExceptionally(e));
+            throw e;
+        }
+    }
+
+    /**
+     * once the batch has been answered, an entry whose response cannot be read only fails its own future
+     */
+    private void sendBatch() throws IOException {
+        for (int i = 0; i < entries.size(); i++) {
+            entries.get(i).request.setId(i);
+        }
+        List<JsonNode> responses = batchService.send(entries.stream().map(entry -> entry.request).collect(Collectors.toList()));
+        for (int i = 0; i < entries.size(); i++) {
+            entries.get(i).complete(responses.get(i));
+        }
+    }
+
+    private class Entry<T extends Response> {
+        private final Request<?, T> request;
+        private final Class<T> responseType;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+
+        private Entry(Request<?, T> request, Class<T> responseType) {
+            this.request = request;
+            this.responseType = responseType;
+        }
+
+        private void sendAlone() {
+            try {
+                result.complete(request.send());
+            } catch (IOException | RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        }
+
+        private void complete(JsonNode response) {
+            if (response == null) {
+                result.completeExceptionally(new IOException("no response received for " + request.getMethod()));
+                return;
+            }
+            try {
+                result.complete(batchService.convert(response, responseType));
+            } catch (IOException | RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package org.adridadou.ethereum.rpc;
+
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
+
+import java.io.IOError;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created by davidroon on 16.04.17.
+ * This code is released under Apache 2 license
+ *
+ * Groups the requests added within a time window in one JSON-RPC batch. The window starts with the first request,
+ * a batch reaching the max size is sent right away
+ */
+public class Web3JBatchWindow {
+    private final JsonRpcBatchService batchService;
+    private final long windowMillis;
+    private final int maxBatchSize;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "rpc-batch-window");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private Web3JBatch current;
+
+    public Web3JBatchWindow(JsonRpcBatchService batchService, long windowMillis, int maxBatchSize) {
+        this.batchService = batchService;
+        this.windowMillis = windowMillis;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+    }
+
+    public synchronized <T extends Response> CompletableFuture<T> add(Request<?, T> request, Class<T> responseType) {
+        if (current == null) {
+            Web3JBatch batch = new Web3JBatch(batchService);
+            current = batch;
+            scheduler.schedule(() -> flush(batch), windowMillis, TimeUnit.MILLISECONDS);
+        }
+        CompletableFuture<T> result = current.add(request, responseType);
+        if (current.size() >= maxBatchSize) {
+            Web3JBatch batch = current;
+            current = null;
+            scheduler.execute(() -> send(batch));
+        }
+        return result;
+    }
+
+    private void flush(Web3JBatch batch) {
+        synchronized (this) {
+            if (current != batch) {
+                //already sent because it was full
+                return;
+            }
+            current = null;
+        }
+        send(batch);
+    }
+
+    private static void send(Web3JBatch batch) {
+        try {
+            batch.send();
+        } catch (RuntimeException | IOError e) {
+            //the futures of the batch have been completed with the error
+        }
+    }
+}
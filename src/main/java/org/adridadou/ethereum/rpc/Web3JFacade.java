@@ -1,25 +1,51 @@
 package org.adridadou.ethereum.rpc;
 
 import org.adridadou.ethereum.converters.output.OutputTypeHandler;
+import org.adridadou.ethereum.event.LogEntry;
 import org.adridadou.ethereum.values.*;
 import org.adridadou.ethereum.values.config.ChainId;
 import org.adridadou.exception.EthereumApiException;
+import org.adridadou.exception.LogRangeTooLargeException;
 import org.ethereum.core.CallTransaction;
 import org.ethereum.util.ByteUtil;
+import org.ethereum.vm.DataWord;
 import org.ethereum.vm.LogInfo;
 import org.web3j.protocol.Web3j;
 import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.DefaultBlockParameterNumber;
+import org.web3j.protocol.core.Request;
 import org.web3j.protocol.core.Response;
 import org.web3j.protocol.core.methods.request.EthFilter;
 import org.web3j.protocol.core.methods.request.Transaction;
 import org.web3j.protocol.core.methods.response.*;
 import org.web3j.utils.Numeric;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import rx.Observable;
+import rx.Subscription;
+import rx.observables.ConnectableObservable;
+import rx.schedulers.Schedulers;
+import rx.Subscriber;
+import rx.subscriptions.Subscriptions;
 
 import java.io.IOError;
 import java.io.IOException;
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 /**
  * Created by davidroon on 19.11.16.
@@ -27,19 +53,70 @@ import java.util.ArrayList;
  */
 public class Web3JFacade {
     public static final BigInteger GAS_LIMIT_FOR_CONSTANT_CALLS = BigInteger.valueOf(1_000_000_000);
+    public static final long LOG_POLLING_INTERVAL_MILLIS = 1_000;
+    private static final Pattern TOO_MANY_RESULTS = Pattern.compile("query returned more than \\d+ results");
     private final Web3j web3j;
     private final OutputTypeHandler outputTypeHandler;
     private final ChainId chainId;
+    private final JsonRpcBatchService batchService;
+    private final JsonRpcPushService pushService;
+    private volatile Web3JBatchWindow batchWindow;
 
     public Web3JFacade(final Web3j web3j, OutputTypeHandler outputTypeHandler, ChainId chainId) {
+        this(web3j, outputTypeHandler, chainId, null);
+    }
+
+    public Web3JFacade(final Web3j web3j, OutputTypeHandler outputTypeHandler, ChainId chainId, JsonRpcBatchService batchService) {
+        this(web3j, outputTypeHandler, chainId, batchService, null);
+    }
+
+    /**
+     * @param pushService the service of web3j when it is a WebSocket or IPC connection, the blocks and the logs are then pushed by the node
+     */
+    public Web3JFacade(final Web3j web3j, OutputTypeHandler outputTypeHandler, ChainId chainId, JsonRpcBatchService batchService, JsonRpcPushService pushService) {
         this.web3j = web3j;
         this.outputTypeHandler = outputTypeHandler;
         this.chainId = chainId;
+        this.batchService = batchService;
+        this.pushService = pushService;
+    }
+
+    public Web3JBatch batch() {
+        return new Web3JBatch(batchService);
+    }
+
+    /**
+     * the balance, nonce, code and constant call requests sent within the window are grouped in one JSON-RPC batch
+     */
+    public Web3JFacade batchWindow(long windowMillis, int maxBatchSize) {
+        if (batchService == null) {
+            throw new EthereumApiException("a batch window needs a JsonRpcBatchService");
+        }
+        this.batchWindow = new Web3JBatchWindow(batchService, windowMillis, maxBatchSize);
+        return this;
+    }
+
+    private <T extends Response> T send(Request<?, T> request, Class<T> responseType) throws IOException {
+        Web3JBatchWindow window = batchWindow;
+        if (window == null) {
+            return request.send();
+        }
+        try {
+            return window.add(request, responseType).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
     }
 
     public EthData constantCall(final EthAccount account, final EthAddress address, final EthData data) {
         try {
-            return EthData.of(handleError(web3j.ethCall(new Transaction(
+            return EthData.of(handleError(send(web3j.ethCall(new Transaction(
                     account.getAddress().withLeading0x(),
                     BigInteger.ZERO,
                     BigInteger.ZERO,
@@ -47,7 +124,7 @@ public class Web3JFacade {
                     address.withLeading0x(),
                     BigInteger.ZERO,
                     data.toString()
-            ), DefaultBlockParameterName.LATEST).send()));
+            ), DefaultBlockParameterName.LATEST), EthCall.class)));
         } catch (IOException e) {
             throw new IOError(e);
         }
@@ -55,25 +132,60 @@ public class Web3JFacade {
 
     public BigInteger getTransactionCount(EthAddress address) {
         try {
-            return Numeric.decodeQuantity(handleError(web3j.ethGetTransactionCount(address.withLeading0x(), DefaultBlockParameterName.LATEST).send()));
+            return Numeric.decodeQuantity(handleError(send(web3j.ethGetTransactionCount(address.withLeading0x(), DefaultBlockParameterName.LATEST), EthGetTransactionCount.class)));
         } catch (IOException e) {
             throw new IOError(e);
         }
     }
 
+    /**
+     * with a push service, the full block is read when the node announces its header
+     */
     public Observable<EthBlock> observeBlocks() {
-        return web3j.blockObservable(true);
+        if (pushService == null) {
+            return web3j.blockObservable(true);
+        }
+        return pushService.subscribe("newHeads")
+                .concatMap(head -> Observable.fromCallable(() -> web3j.ethGetBlockByHash(head.get("hash").asText(), true).send()))
+                .filter(block -> block.getBlock() != null);
+    }
+
+    /**
+     * the block with its transactions
+     */
+    public EthBlock getBlock(long number) {
+        try {
+            return web3j.ethGetBlockByNumber(new DefaultBlockParameterNumber(BigInteger.valueOf(number)), true).send();
+        } catch (IOException e) {
+            throw new IOError(e);
+        }
     }
 
     public BigInteger estimateGas(EthAccount account, EthAddress address, EthValue value, EthData data) {
         try {
-            return Numeric.decodeQuantity(handleError(web3j.ethEstimateGas(new Transaction(account.getAddress().withLeading0x(), null, null, null, 
-            		address.isEmpty() ? null : address.withLeading0x(), value.inWei(),  data.toString())).send()));
+            return Numeric.decodeQuantity(handleError(estimateGasRequest(account.getAddress(), address, value, data).send()));
         } catch (IOException e) {
             throw new IOError(e);
         }
     }
 
+    public List<BigInteger> estimateGas(EthAccount account, List<TransactionRequest> requests) {
+        EthAddress sender = account.getAddress();
+        Web3JBatch batch = batch();
+        List<CompletableFuture<EthEstimateGas>> responses = requests.stream()
+                .map(request -> batch.add(estimateGasRequest(sender, request.getAddress(), request.getValue(), request.getData()), EthEstimateGas.class))
+                .collect(Collectors.toList());
+        batch.send();
+        return responses.stream()
+                .map(response -> Numeric.decodeQuantity(handleError(response.join())))
+                .collect(Collectors.toList());
+    }
+
+    private Request<?, EthEstimateGas> estimateGasRequest(EthAddress sender, EthAddress address, EthValue value, EthData data) {
+        return web3j.ethEstimateGas(new Transaction(sender.withLeading0x(), null, null, null,
+                address.isEmpty() ? null : address.withLeading0x(), value.inWei(), data.toString()));
+    }
+
     public BigInteger getGasPrice() {
         try {
             return Numeric.decodeQuantity(handleError(web3j.ethGasPrice().send()));
@@ -90,14 +202,51 @@ public class Web3JFacade {
         }
     }
 
+    public List<CompletableFuture<EthHash>> sendTransactions(final List<EthData> rawTransactions) {
+        Web3JBatch batch = batch();
+        List<CompletableFuture<EthHash>> result = rawTransactions.stream()
+                .map(rawTransaction -> batch.add(web3j.ethSendRawTransaction(rawTransaction.withLeading0x()), EthSendTransaction.class)
+                        .thenApply(response -> EthHash.of(handleError(response))))
+                .collect(Collectors.toList());
+        batch.send();
+        return result;
+    }
+
     public EthGetBalance getBalance(EthAddress address) {
         try {
-            return web3j.ethGetBalance(address.withLeading0x(), DefaultBlockParameterName.LATEST).send();
+            return send(web3j.ethGetBalance(address.withLeading0x(), DefaultBlockParameterName.LATEST), EthGetBalance.class);
         } catch (IOException e) {
             throw new IOError(e);
         }
     }
 
+    /**
+     * all the balances in one batch
+     */
+    public Map<EthAddress, EthValue> getBalances(Collection<EthAddress> addresses) {
+        Web3JBatch batch = batch();
+        Map<EthAddress, CompletableFuture<EthGetBalance>> responses = new LinkedHashMap<>();
+        addresses.forEach(address -> responses.put(address, batch.add(web3j.ethGetBalance(address.withLeading0x(), DefaultBlockParameterName.LATEST), EthGetBalance.class)));
+        batch.send();
+        Map<EthAddress, EthValue> result = new LinkedHashMap<>();
+        responses.forEach((address, response) -> result.put(address, EthValue.wei(Numeric.decodeQuantity(handleError(response.join())))));
+        return result;
+    }
+
+    /**
+     * nonce, balance and code in one batch
+     */
+    public boolean addressExists(EthAddress address) {
+        Web3JBatch batch = batch();
+        CompletableFuture<EthGetTransactionCount> nonce = batch.add(web3j.ethGetTransactionCount(address.withLeading0x(), DefaultBlockParameterName.LATEST), EthGetTransactionCount.class);
+        CompletableFuture<EthGetBalance> balance = batch.add(web3j.ethGetBalance(address.withLeading0x(), DefaultBlockParameterName.LATEST), EthGetBalance.class);
+        CompletableFuture<EthGetCode> code = batch.add(web3j.ethGetCode(address.withLeading0x(), DefaultBlockParameterName.LATEST), EthGetCode.class);
+        batch.send();
+        return Numeric.decodeQuantity(handleError(nonce.join())).signum() > 0
+                || Numeric.decodeQuantity(handleError(balance.join())).signum() > 0
+                || !SmartContractByteCode.of(handleError(code.join())).isEmpty();
+    }
+
     private <S, T extends Response<S>> S handleError(final T response) {
         if (response.hasError()) {
             throw new EthereumApiException(response.getError().getMessage());
@@ -107,19 +256,181 @@ public class Web3JFacade {
 
     public SmartContractByteCode getCode(EthAddress address) {
         try {
-            return SmartContractByteCode.of(web3j.ethGetCode(address.withLeading0x(), DefaultBlockParameterName.LATEST).send().getCode());
+            return SmartContractByteCode.of(send(web3j.ethGetCode(address.withLeading0x(), DefaultBlockParameterName.LATEST), EthGetCode.class).getCode());
         } catch (IOException e) {
             throw new IOError(e);
         }
     }
 
+    /**
+     * the events with this name (every overload) from the current block, the past ones are not read
+     */
     public <T> Observable<T> event(final EthAddress address,final String eventName, final CallTransaction.Contract contract, Class<T> cls) {
-        return web3j.ethLogObservable(new EthFilter(DefaultBlockParameterName.EARLIEST,DefaultBlockParameterName.LATEST,address.withLeading0x()))
-                .map(log -> {
-                    LogInfo logInfo = new LogInfo(address.address, new ArrayList<>(), EthData.of(log.getData()).data);
-                    return contract.parseEvent(logInfo);
-                }).filter(invocation -> eventName.equals(invocation.function.name))
-                .map(invocation -> outputTypeHandler.convertSpecificType(invocation.args, cls));
+        return event(address, eventName, contract, getCurrentBlockNumber(), cls);
+    }
+
+    /**
+     * the events with this name (every overload) from fromBlock, see {@link #event(EthAddress, CallTransaction.Function, List, long, Class)}
+     */
+    public <T> Observable<T> event(final EthAddress address, final String eventName, final CallTransaction.Contract contract, final long fromBlock, Class<T> cls) {
+        List<Observable<T>> events = Arrays.stream(contract.functions)
+                .filter(func -> func.type == CallTransaction.FunctionType.event && eventName.equals(func.name))
+                .map(event -> event(address, event, Collections.emptyList(), fromBlock, cls))
+                .collect(Collectors.toList());
+        if (events.isEmpty()) {
+            throw new EthereumApiException("the event " + eventName + " cannot be found in the ABI");
+        }
+        return Observable.merge(events);
+    }
+
+    /**
+     * The node only sends the logs of this event (topic0) matching the indexed topics. The logs from fromBlock are read once,
+     * then only the new ones are polled with eth_getFilterChanges. The filter is uninstalled when the subscription ends
+     * @param indexedTopics the value of each indexed parameter, as a 32 bytes topic. null matches any value
+     */
+    public <T> Observable<T> event(final EthAddress address, final CallTransaction.Function event, final List<EthData> indexedTopics, final long fromBlock, Class<T> cls) {
+        EthFilter filter = new EthFilter(new DefaultBlockParameterNumber(BigInteger.valueOf(fromBlock)), DefaultBlockParameterName.LATEST, address.withLeading0x())
+                .addSingleTopic(EthData.of(event.encodeSignatureLong()).withLeading0x());
+        indexedTopics.forEach(topic -> {
+            if (topic == null) {
+                filter.addNullTopic();
+            } else {
+                filter.addSingleTopic(topic.withLeading0x());
+            }
+        });
+        return observeLogs(filter)
+                .map(log -> event.decodeEventData(EthData.of(log.getData()).data))
+                .map(args -> outputTypeHandler.convertSpecificType(args, cls));
+    }
+
+    /**
+     * eth_getLogs for one address, the topics are alternatives for topic0
+     * @throws LogRangeTooLargeException if the node refuses to return that many logs
+     */
+    public List<LogEntry> getLogs(final EthAddress address, final List<EthData> topics, final long fromBlock, final long toBlock) {
+        EthFilter filter = new EthFilter(new DefaultBlockParameterNumber(BigInteger.valueOf(fromBlock)), new DefaultBlockParameterNumber(BigInteger.valueOf(toBlock)), address.withLeading0x())
+                .addOptionalTopics(topics.stream().map(EthData::withLeading0x).toArray(String[]::new));
+        EthLog response;
+        try {
+            response = web3j.ethGetLogs(filter).send();
+        } catch (IOException e) {
+            throw new IOError(e);
+        }
+        if (response.hasError() && isTooManyResults(response.getError())) {
+            throw new LogRangeTooLargeException(response.getError().getMessage());
+        }
+        List<LogEntry> result = new ArrayList<>();
+        for (EthLog.LogResult logResult : handleError(response)) {
+            if (logResult instanceof EthLog.LogObject && !((EthLog.LogObject) logResult).isRemoved()) {
+                Log log = ((EthLog.LogObject) logResult).get();
+                List<DataWord> logTopics = log.getTopics().stream()
+                        .map(topic -> new DataWord(EthData.of(topic).data))
+                        .collect(Collectors.toList());
+                LogInfo logInfo = new LogInfo(EthAddress.of(log.getAddress()).address, logTopics, EthData.of(log.getData()).data);
+                result.add(new LogEntry(logInfo, log.getBlockNumber().longValue(), log.getLogIndex().intValue()));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * only the messages saying the range has too many logs: "query returned more than 10000 results" (geth, Infura with the code -32005)
+     * and "Log response size exceeded" (Alchemy). A rate limit ("limit exceeded", "daily request count exceeded", also -32005) is a plain error
+     */
+    private static boolean isTooManyResults(Response.Error error) {
+        String message = error.getMessage() == null ? "" : error.getMessage().toLowerCase();
+        return TOO_MANY_RESULTS.matcher(message).find() || message.contains("log response size exceeded");
+    }
+
+    public Observable<Log> observeLogs(final EthFilter filter) {
+        if (pushService != null) {
+            return pushLogs(filter);
+        }
+        return Observable.unsafeCreate(subscriber -> {
+            try {
+                BigInteger filterId = Numeric.decodeQuantity(handleError(web3j.ethNewFilter(filter).send()));
+                subscriber.add(Subscriptions.create(() -> uninstallFilter(filterId)));
+                //a log arriving while the filter is read can be returned by both calls, the first changes skip the logs already emitted
+                Set<String> emitted = emitLogs(subscriber, handleError(web3j.ethGetFilterLogs(filterId).send()), Collections.emptySet());
+                AtomicReference<Set<String>> alreadyEmitted = new AtomicReference<>(emitted);
+                //the polling blocks on the node, it runs on the io scheduler and not on the computation one
+                subscriber.add(Observable.interval(LOG_POLLING_INTERVAL_MILLIS, TimeUnit.MILLISECONDS, Schedulers.io())
+                        .subscribe(tick -> {
+                            try {
+                                emitLogs(subscriber, handleError(web3j.ethGetFilterChanges(filterId).send()), alreadyEmitted.getAndSet(Collections.emptySet()));
+                            } catch (IOException | RuntimeException e) {
+                                subscriber.onError(e);
+                            }
+                        }));
+            } catch (IOException | RuntimeException e) {
+                subscriber.onError(e);
+            }
+        });
+    }
+
+    /**
+     * the subscription starts before the past logs are read, the pushed logs are emitted after them
+     * without the blocks already covered by the past logs
+     */
+    private Observable<Log> pushLogs(final EthFilter filter) {
+        return Observable.defer(() -> {
+            ObjectNode params = pushService.getObjectMapper().valueToTree(filter);
+            params.remove("fromBlock");
+            params.remove("toBlock");
+            ConnectableObservable<Log> pushed = pushService.subscribe("logs", params)
+                    .map(node -> toLog(node))
+                    .replay();
+            Subscription connection = pushed.connect();
+            try {
+                List<Log> past = new ArrayList<>();
+                for (EthLog.LogResult result : handleError(web3j.ethGetLogs(filter).send())) {
+                    if (result instanceof EthLog.LogObject && !((EthLog.LogObject) result).isRemoved()) {
+                        past.add(((EthLog.LogObject) result).get());
+                    }
+                }
+                BigInteger lastPastBlock = past.isEmpty() ? BigInteger.valueOf(-1) : past.get(past.size() - 1).getBlockNumber();
+                return Observable.from(past)
+                        .concatWith(pushed.filter(log -> !log.isRemoved() && log.getBlockNumber().compareTo(lastPastBlock) > 0))
+                        .doOnUnsubscribe(connection::unsubscribe);
+            } catch (IOException | RuntimeException e) {
+                connection.unsubscribe();
+                return Observable.error(e);
+            }
+        });
+    }
+
+    private Log toLog(JsonNode node) {
+        try {
+            return pushService.getObjectMapper().treeToValue(node, Log.class);
+        } catch (IOException e) {
+            throw new EthereumApiException("invalid log pushed by the node: " + node, e);
+        }
+    }
+
+    /**
+     * @param skip the logs (block hash + log index) not to emit again
+     * @return the logs emitted
+     */
+    private Set<String> emitLogs(Subscriber<? super Log> subscriber, List<EthLog.LogResult> logs, Set<String> skip) {
+        Set<String> emitted = new HashSet<>();
+        for (EthLog.LogResult result : logs) {
+            if (subscriber.isUnsubscribed()) {
+                break;
+            }
+            if (result instanceof EthLog.LogObject && !((EthLog.LogObject) result).isRemoved()) {
+                Log log = ((EthLog.LogObject) result).get();
+                String key = log.getBlockHash() + ":" + log.getLogIndexRaw();
+                if (!skip.contains(key)) {
+                    emitted.add(key);
+                    subscriber.onNext(log);
+                }
+            }
+        }
+        return emitted;
+    }
+
+    private void uninstallFilter(BigInteger filterId) {
+        web3j.ethUninstallFilter(filterId).sendAsync();
     }
 
     public OutputTypeHandler getOutputTypeHandler() {
@@ -144,6 +455,20 @@ public class Web3JFacade {
                 address.address, valueBytes, data.data, chainId.id);
     }
 
+    /**
+     * the receipts in one batch, in the same order as the hashes. The receipt of an unknown transaction is null
+     */
+    public List<TransactionReceipt> getReceipts(List<EthHash> hashes) {
+        Web3JBatch batch = batch();
+        List<CompletableFuture<EthGetTransactionReceipt>> responses = hashes.stream()
+                .map(hash -> batch.add(web3j.ethGetTransactionReceipt(hash.withLeading0x()), EthGetTransactionReceipt.class))
+                .collect(Collectors.toList());
+        batch.send();
+        return responses.stream()
+                .map(response -> handleError(response.join()))
+                .collect(Collectors.toList());
+    }
+
     public TransactionReceipt getReceipt(EthHash hash) {
         try {
             return handleError(web3j.ethGetTransactionReceipt(hash.withLeading0x()).send());
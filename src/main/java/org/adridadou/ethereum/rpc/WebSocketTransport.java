@@ -0,0 +1,251 @@
+package org.adridadou.ethereum.rpc;
+
+import org.adridadou.exception.EthereumApiException;
+
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+import java.io.*;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Created by davidroon on 18.04.17.
+ * This code is released under Apache 2 license
+ *
+ * A minimal WebSocket client (RFC 6455) for the JSON-RPC endpoint of a node, ws:// or wss://.
+ * With wss:// the certificate must match the host name. The handshake is checked with the Sec-WebSocket-Accept header.
+ * Only text messages are sent, the pings of the node are answered.
+ * When nothing comes from the node for the idle timeout, a ping is sent. If nothing comes either during the next idle timeout,
+ * the connection is considered dead and read fails, so that a half-open connection does not block the reader forever
+ */
+public class WebSocketTransport implements JsonRpcTransport {
+    public static final int IDLE_TIMEOUT_MILLIS = 30_000;
+
+    private static final int OPCODE_CONTINUATION = 0x0;
+    private static final int OPCODE_TEXT = 0x1;
+    private static final int OPCODE_CLOSE = 0x8;
+    private static final int OPCODE_PING = 0x9;
+    private static final int OPCODE_PONG = 0xA;
+    private static final String WEBSOCKET_GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+
+    private final Socket socket;
+    private final DataInputStream input;
+    private final OutputStream output;
+    private final SecureRandom random = new SecureRandom();
+    private final int idleTimeoutMillis;
+    private boolean pingSent;
+
+    public WebSocketTransport(URI uri) throws IOException {
+        this(uri, IDLE_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * @param idleTimeoutMillis how long without anything from the node before a ping, and then before giving up
+     */
+    public WebSocketTransport(URI uri, int idleTimeoutMillis) throws IOException {
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        boolean secure = "wss".equalsIgnoreCase(uri.getScheme());
+        if (!secure && !"ws".equalsIgnoreCase(uri.getScheme())) {
+            throw new EthereumApiException("a WebSocket url starts with ws:// or wss://, got " + uri);
+        }
+        int port = uri.getPort() != -1 ? uri.getPort() : secure ? 443 : 80;
+        this.socket = secure ? secureSocket(uri.getHost(), port, idleTimeoutMillis) : new Socket(uri.getHost(), port);
+        socket.setSoTimeout(idleTimeoutMillis);
+        this.input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        this.output = new BufferedOutputStream(socket.getOutputStream());
+        handshake(uri, port);
+    }
+
+    /**
+     * the default SSLSocketFactory checks the certificate chain but not the host name, HTTPS identification checks both
+     */
+    private static Socket secureSocket(String host, int port, int timeoutMillis) throws IOException {
+        SSLSocket socket = (SSLSocket) SSLSocketFactory.getDefault().createSocket(host, port);
+        socket.setSoTimeout(timeoutMillis);
+        SSLParameters parameters = socket.getSSLParameters();
+        parameters.setEndpointIdentificationAlgorithm("HTTPS");
+        socket.setSSLParameters(parameters);
+        try {
+            socket.startHandshake();
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+        return socket;
+    }
+
+    private void handshake(URI uri, int port) throws IOException {
+        byte[] nonce = new byte[16];
+        random.nextBytes(nonce);
+        String key = Base64.getEncoder().encodeToString(nonce);
+        String path = (uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath())
+                + (uri.getRawQuery() != null ? "?" + uri.getRawQuery() : "");
+        String request = "GET " + path + " HTTP/1.1\r\n" +
+                "Host: " + uri.getHost() + ":" + port + "\r\n" +
+                "Upgrade: websocket\r\n" +
+                "Connection: Upgrade\r\n" +
+                "Sec-WebSocket-Key: " + key + "\r\n" +
+                "Sec-WebSocket-Version: 13\r\n\r\n";
+        output.write(request.getBytes(StandardCharsets.US_ASCII));
+        output.flush();
+
+        String status = readLine();
+        if (!status.startsWith("HTTP/1.1 101")) {
+            socket.close();
+            throw new IOException("the node refused the WebSocket connection: " + status);
+        }
+        String accept = null;
+        for (String header = readLine(); !header.isEmpty(); header = readLine()) {
+            int separator = header.indexOf(':');
+            if (separator > 0 && "Sec-WebSocket-Accept".equalsIgnoreCase(header.substring(0, separator).trim())) {
+                accept = header.substring(separator + 1).trim();
+            }
+        }
+        if (!acceptKey(key).equals(accept)) {
+            socket.close();
+            throw new IOException("the node answered the WebSocket handshake with a wrong Sec-WebSocket-Accept: " + accept);
+        }
+    }
+
+    /**
+     * the answer expected from the server: base64 of the SHA-1 of the key followed by the GUID of the RFC
+     */
+    private static String acceptKey(String key) {
+        try {
+            MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+            return Base64.getEncoder().encodeToString(sha1.digest((key + WEBSOCKET_GUID).getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new EthereumApiException("SHA-1 is not available", e);
+        }
+    }
+
+    private String readLine() throws IOException {
+        StringBuilder line = new StringBuilder();
+        int c;
+        while ((c = input.read()) != '\n') {
+            if (c < 0) {
+                throw new EOFException("the WebSocket connection has been closed during the handshake");
+            }
+            if (c != '\r') {
+                line.append((char) c);
+            }
+        }
+        return line.toString();
+    }
+
+    @Override
+    public void write(String message) throws IOException {
+        writeFrame(OPCODE_TEXT, message.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public String read() throws IOException {
+        ByteArrayOutputStream message = new ByteArrayOutputStream();
+        while (true) {
+            int first = readFrameStart();
+            boolean fin = (first & 0x80) != 0;
+            int opcode = first & 0x0F;
+            byte[] payload = readPayload();
+            switch (opcode) {
+                case OPCODE_TEXT:
+                case OPCODE_CONTINUATION:
+                    message.write(payload);
+                    if (fin) {
+                        return new String(message.toByteArray(), StandardCharsets.UTF_8);
+                    }
+                    break;
+                case OPCODE_PING:
+                    writeFrame(OPCODE_PONG, payload);
+                    break;
+                case OPCODE_CLOSE:
+                    throw new EOFException("the WebSocket connection has been closed by the node");
+                default:
+                    //pong or binary frames are not used by the nodes
+                    break;
+            }
+        }
+    }
+
+    /**
+     * the first byte of the next frame, a ping is sent if it does not come within the idle timeout. A timeout inside a frame fails the read
+     */
+    private int readFrameStart() throws IOException {
+        while (true) {
+            try {
+                int first = input.readUnsignedByte();
+                pingSent = false;
+                return first;
+            } catch (SocketTimeoutException e) {
+                if (pingSent) {
+                    throw new IOException("the node has not answered for " + 2 * idleTimeoutMillis + " ms, the connection is considered lost", e);
+                }
+                pingSent = true;
+                writeFrame(OPCODE_PING, new byte[0]);
+            }
+        }
+    }
+
+    private byte[] readPayload() throws IOException {
+        int second = input.readUnsignedByte();
+        boolean masked = (second & 0x80) != 0;
+        long length = second & 0x7F;
+        if (length == 126) {
+            length = input.readUnsignedShort();
+        } else if (length == 127) {
+            length = input.readLong();
+        }
+        if (length < 0 || length > Integer.MAX_VALUE) {
+            throw new IOException("invalid WebSocket frame length " + length);
+        }
+        byte[] mask = new byte[4];
+        if (masked) {
+            input.readFully(mask);
+        }
+        byte[] payload = new byte[(int) length];
+        input.readFully(payload);
+        if (masked) {
+            for (int i = 0; i < payload.length; i++) {
+                payload[i] ^= mask[i % 4];
+            }
+        }
+        return payload;
+    }
+
+    /**
+     * a client always masks its frames
+     */
+    private synchronized void writeFrame(int opcode, byte[] payload) throws IOException {
+        output.write(0x80 | opcode);
+        if (payload.length < 126) {
+            output.write(0x80 | payload.length);
+        } else if (payload.length <= 0xFFFF) {
+            output.write(0x80 | 126);
+            output.write(payload.length >>> 8);
+            output.write(payload.length);
+        } else {
+            output.write(0x80 | 127);
+            new DataOutputStream(output).writeLong(payload.length);
+        }
+        byte[] mask = new byte[4];
+        random.nextBytes(mask);
+        output.write(mask);
+        byte[] masked = new byte[payload.length];
+        for (int i = 0; i < payload.length; i++) {
+            masked[i] = (byte) (payload[i] ^ mask[i % 4]);
+        }
+        output.write(masked);
+        output.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+}
@@ -1,7 +1,6 @@
 package org.adridadou.ethereum.values;
 
-import org.web3j.crypto.Credentials;
-import org.web3j.crypto.ECKeyPair;
+import org.ethereum.crypto.ECKey;
 
 import java.math.BigInteger;
 
@@ -11,14 +10,23 @@ import java.math.BigInteger;
  */
 public class EthAccount {
     private final BigInteger privateKey;
+    private volatile EthSigner signer;
 
     public EthAccount(BigInteger privateKey) {
         this.privateKey = privateKey;
     }
 
     public EthAddress getAddress() {
-        Credentials credentials = Credentials.create(ECKeyPair.create(privateKey));
-        return EthAddress.of(credentials.getAddress());
+        return getSigner().getAddress();
+    }
+
+    public EthSigner getSigner() {
+        EthSigner current = signer;
+        if (current == null) {
+            current = new EthSigner(ECKey.fromPrivate(privateKey));
+            signer = current;
+        }
+        return current;
     }
 
     @Override
@@ -0,0 +1,98 @@
+package org.adridadou.ethereum.values;
+
+import org.adridadou.exception.EthereumApiException;
+import org.ethereum.core.Transaction;
+import org.ethereum.crypto.ECKey;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Created by davidroon on 02.04.17.
+ * This code is released under Apache 2 license
+ *
+ * The key and the address of an account, derived once. Signing does not derive anything from the private key anymore
+ */
+public class EthSigner {
+    public static final int SIGN_CHUNK_SIZE = 4;
+
+    private final ECKey key;
+    private final EthAddress address;
+
+    EthSigner(ECKey key) {
+        this.key = key;
+        this.address = EthAddress.of(key.getAddress());
+    }
+
+    public EthAddress getAddress() {
+        return address;
+    }
+
+    public ECKey getKey() {
+        return key;
+    }
+
+    public Transaction sign(Transaction tx) {
+        tx.sign(key);
+        return tx;
+    }
+
+    /**
+     * signs every transaction on the calling thread, the list order is kept
+     */
+    public List<Transaction> signAll(List<Transaction> transactions) {
+        transactions.forEach(this::sign);
+        return transactions;
+    }
+
+    /**
+     * signs every transaction, by chunks of {@link #SIGN_CHUNK_SIZE} shared between the calling thread and the executor.
+     * Each transaction is signed in place so the list order is kept.
+     * The calling thread signs every chunk the executor has not started yet, so a busy or saturated executor
+     * only makes the signing sequential, it never blocks it
+     */
+    public List<Transaction> signAll(List<Transaction> transactions, Executor executor) {
+        int chunks = (transactions.size() + SIGN_CHUNK_SIZE - 1) / SIGN_CHUNK_SIZE;
+        if (chunks < 2) {
+            return signAll(transactions);
+        }
+        AtomicInteger nextChunk = new AtomicInteger();
+        CountDownLatch signed = new CountDownLatch(chunks);
+        AtomicReference<RuntimeException> error = new AtomicReference<>();
+        Runnable worker = () -> {
+            for (int chunk = nextChunk.getAndIncrement(); chunk < chunks; chunk = nextChunk.getAndIncrement()) {
+                try {
+                    int end = Math.min(transactions.size(), (chunk + 1) * SIGN_CHUNK_SIZE);
+                    transactions.subList(chunk * SIGN_CHUNK_SIZE, end).forEach(this::sign);
+                } catch (RuntimeException e) {
+                    error.compareAndSet(null, e);
+                } finally {
+                    signed.countDown();
+                }
+            }
+        };
+        try {
+            for (int i = 1; i < chunks; i++) {
+                executor.execute(worker);
+            }
+        } catch (RejectedExecutionException e) {
+            //the calling thread signs what is left
+        }
+        worker.run();
+        try {
+            //only the chunks already taken by the executor are left, they are being signed
+            signed.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EthereumApiException("interrupted while signing the transactions", e);
+        }
+        if (error.get() != null) {
+            throw error.get();
+        }
+        return transactions;
+    }
+}
@@ -0,0 +1,18 @@
+package org.adridadou.ethereum.values;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Created by davidroon on 29.03.17.
+ * This code is released under Apache 2 license
+ *
+ * Fixed gas limit for a contract function. Transactions calling it skip gas estimation
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface GasLimit {
+    long value();
+}
@@ -2,6 +2,7 @@ package org.adridadou.ethereum.values;
 
 import org.adridadou.ethereum.EthereumContractInvocationHandler;
 import org.adridadou.ethereum.SmartContract;
+import org.ethereum.core.CallTransaction;
 
 import java.lang.reflect.Method;
 import java.util.concurrent.CompletableFuture;
@@ -13,22 +14,22 @@ import java.util.concurrent.CompletableFuture;
 public class Payable<T> implements IPayable<T> {
 
     private final SmartContract contract;
-    private final String methodName;
+    private final CallTransaction.Function function;
     private final Object[] arguments;
     private final Method method;
     private final EthereumContractInvocationHandler ethereumContractInvocationHandler;
 
-    public Payable(SmartContract contract, String methodName, Object[] arguments, Method method, EthereumContractInvocationHandler ethereumContractInvocationHandler) {
+    public Payable(SmartContract contract, CallTransaction.Function function, Object[] arguments, Method method, EthereumContractInvocationHandler ethereumContractInvocationHandler) {
 
         this.contract = contract;
-        this.methodName = methodName;
+        this.function = function;
         this.arguments = arguments;
         this.method = method;
         this.ethereumContractInvocationHandler = ethereumContractInvocationHandler;
     }
 
     public CompletableFuture<T> with(EthValue value) {
-        return (CompletableFuture<T>)contract.callFunction(methodName,value, arguments)
+        return (CompletableFuture<T>)contract.callFunction(function, value, arguments)
                 .thenApply(result -> ethereumContractInvocationHandler.convertResult(result,method));
     }
 
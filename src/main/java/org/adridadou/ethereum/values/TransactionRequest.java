@@ -0,0 +1,63 @@
+package org.adridadou.ethereum.values;
+
+import java.math.BigInteger;
+
+/**
+ * Created by davidroon on 27.03.17.
+ * This code is released under Apache 2 license
+ */
+public class TransactionRequest {
+    private final EthAddress address;
+    private final EthValue value;
+    private final EthData data;
+    private final BigInteger gasLimit;
+
+    public TransactionRequest(EthAddress address, EthValue value, EthData data) {
+        this(address, value, data, null);
+    }
+
+    private TransactionRequest(EthAddress address, EthValue value, EthData data, BigInteger gasLimit) {
+        this.address = address;
+        this.value = value;
+        this.data = data;
+        this.gasLimit = gasLimit;
+    }
+
+    public static TransactionRequest sendEther(EthAddress to, EthValue value) {
+        return new TransactionRequest(to, value, EthData.empty());
+    }
+
+    public static TransactionRequest call(EthAddress contract, EthData data) {
+        return new TransactionRequest(contract, EthValue.wei(0), data);
+    }
+
+    public TransactionRequest withGasLimit(BigInteger gasLimit) {
+        return new TransactionRequest(address, value, data, gasLimit);
+    }
+
+    public EthAddress getAddress() {
+        return address;
+    }
+
+    public EthValue getValue() {
+        return value;
+    }
+
+    public EthData getData() {
+        return data;
+    }
+
+    public BigInteger getGasLimit() {
+        return gasLimit;
+    }
+
+    @Override
+    public String toString() {
+        return "TransactionRequest{" +
+                "address=" + address.withLeading0x() +
+                ", value=" + value +
+                ", data=" + data +
+                ", gasLimit=" + gasLimit +
+                '}';
+    }
+}
@@ -0,0 +1,13 @@
+package org.adridadou.exception;
+
+/**
+ * Created by davidroon on 14.04.17.
+ * This code is released under Apache 2 license
+ *
+ * The node refuses to return the logs of a block range because there are too many of them. A smaller range should be requested
+ */
+public class LogRangeTooLargeException extends EthereumApiException {
+    public LogRangeTooLargeException(String s) {
+        super(s);
+    }
+}
@@ -0,0 +1,13 @@
+package org.adridadou.exception;
+
+/**
+ * Created by davidroon on 19.04.17.
+ * This code is released under Apache 2 license
+ *
+ * The transaction has not been included in time. It may still be in the pool of the node and be included later
+ */
+public class TransactionTimeoutException extends EthereumApiException {
+    public TransactionTimeoutException(String s) {
+        super(s);
+    }
+}
@@ -0,0 +1,109 @@
+package org.adridadou.ethereum;
+
+import org.adridadou.ethereum.converters.input.InputTypeConverter;
+import org.adridadou.ethereum.converters.input.InputTypeHandler;
+import org.adridadou.ethereum.values.EthAddress;
+import org.adridadou.exception.EthereumApiException;
+import org.ethereum.core.CallTransaction;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.Optional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Created by davidroon on 19.04.17.
+ * This code is released under Apache 2 license
+ */
+public class ContractFunctionsTest {
+    private static final String ABI = "[" +
+            "{\"constant\":false,\"inputs\":[{\"name\":\"value\",\"type\":\"string\"}],\"name\":\"set\",\"outputs\":[],\"payable\":false,\"type\":\"function\"}," +
+            "{\"constant\":false,\"inputs\":[{\"name\":\"value\",\"type\":\"uint256\"}],\"name\":\"set\",\"outputs\":[],\"payable\":false,\"type\":\"function\"}," +
+            "{\"constant\":false,\"inputs\":[{\"name\":\"value\",\"type\":\"address\"}],\"name\":\"set\",\"outputs\":[],\"payable\":false,\"type\":\"function\"}," +
+            "{\"constant\":false,\"inputs\":[{\"name\":\"to\",\"type\":\"address\"},{\"name\":\"value\",\"type\":\"uint256\"}],\"name\":\"transfer\",\"outputs\":[{\"name\":\"\",\"type\":\"bool\"}],\"payable\":false,\"type\":\"function\"}," +
+            "{\"constant\":false,\"inputs\":[{\"name\":\"value\",\"type\":\"address\"}],\"name\":\"store\",\"outputs\":[],\"payable\":false,\"type\":\"function\"}," +
+            "{\"constant\":false,\"inputs\":[{\"name\":\"value\",\"type\":\"bytes\"}],\"name\":\"store\",\"outputs\":[],\"payable\":false,\"type\":\"function\"}," +
+            "{\"constant\":false,\"inputs\":[{\"name\":\"value\",\"type\":\"bytes32\"}],\"name\":\"store\",\"outputs\":[],\"payable\":false,\"type\":\"function\"}" +
+            "]";
+
+    private final InputTypeHandler inputTypeHandler = new InputTypeHandler();
+    private final ContractFunctions functions = new ContractFunctions(new CallTransaction.Contract(ABI).functions, inputTypeHandler);
+
+    @Test
+    public void sameArityOverloadsAreChosenByParameterTypes() {
+        assertEquals("set(uint256)", signature(functions.find("set", new Class<?>[]{long.class})));
+        assertEquals("set(uint256)", signature(functions.find("set", new Class<?>[]{BigInteger.class})));
+        assertEquals("set(address)", signature(functions.find("set", new Class<?>[]{EthAddress.class})));
+        assertEquals("set(string)", signature(functions.find("set", new Class<?>[]{String.class})));
+        assertEquals("set(uint256)", signature(functions.find("set", new Object[]{42})));
+    }
+
+    @Test
+    public void aTypeMadeForTheSolidityTypeWinsOverAConvertibleOne() {
+        //a String can be an address too, a byte[] can be an address too
+        assertEquals("store(address)", signature(functions.find("store", new Class<?>[]{EthAddress.class})));
+        assertEquals("set(string)", signature(functions.find("set", new Object[]{"0x0a"})));
+    }
+
+    @Test
+    public void equallyGoodOverloadsMakeTheCallAmbiguous() {
+        assertAmbiguous("store", new Class<?>[]{byte[].class}, "store(bytes), store(bytes32)");
+        assertAmbiguous("store", new Class<?>[]{String.class}, "store(address), store(bytes), store(bytes32)");
+        //a null argument says nothing about the overload
+        assertAmbiguous("set", new Class<?>[]{Object.class}, "set(string), set(uint256), set(address)");
+    }
+
+    @Test
+    public void aTypeWithAnInputConverterIsAccepted() {
+        assertFalse(functions.find("set", new Class<?>[]{Amount.class}).isPresent());
+
+        inputTypeHandler.addConverters(new AmountConverter());
+        //what it is converted into is only known with a value, so every overload is as good
+        assertAmbiguous("set", new Class<?>[]{Amount.class}, "set(string), set(uint256), set(address)");
+    }
+
+    private void assertAmbiguous(String name, Class<?>[] parameterTypes, String signatures) {
+        try {
+            functions.find(name, parameterTypes);
+            fail("the call of " + name + " should be ambiguous");
+        } catch (EthereumApiException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("it matches " + signatures + "."));
+        }
+    }
+
+    @Test
+    public void functionsAreFoundBySignatureAndSelector() {
+        assertEquals("transfer(address,uint256)", signature(functions.bySignature("transfer(address,uint256)")));
+        assertEquals("transfer(address,uint256)", signature(functions.bySelector(new byte[]{(byte) 0xa9, 0x05, (byte) 0x9c, (byte) 0xbb, 1, 2})));
+        assertFalse(functions.bySignature("transfer(address)").isPresent());
+        assertFalse(functions.bySelector(new byte[]{(byte) 0xa9, 0x05}).isPresent());
+    }
+
+    private static String signature(Optional<CallTransaction.Function> func) {
+        return func.map(CallTransaction.Function::formatSignature).orElse(null);
+    }
+
+    private static class Amount {
+        private final long value;
+
+        private Amount(long value) {
+            this.value = value;
+        }
+    }
+
+    private static class AmountConverter implements InputTypeConverter {
+        @Override
+        public boolean isOfType(Class<?> cls) {
+            return Amount.class.equals(cls);
+        }
+
+        @Override
+        public Object convert(Object obj) {
+            return BigInteger.valueOf(((Amount) obj).value);
+        }
+    }
+}
@@ -7,12 +7,15 @@ import org.adridadou.ethereum.ethj.TestConfig;
 import org.adridadou.ethereum.event.EthereumEventHandler;
 import org.adridadou.ethereum.swarm.SwarmService;
 import org.adridadou.ethereum.values.*;
+import org.ethereum.core.CallTransaction;
 import org.ethereum.solidity.compiler.SolidityCompiler;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.io.File;
+import java.math.BigInteger;
 import java.util.List;
+import java.util.Optional;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
@@ -54,6 +57,22 @@ public class EthereumFacadeTest {
 
     }
 
+    @Test
+    public void testGasLimitAnnotationOverridesTheEstimation() throws Throwable {
+        SoliditySource contractSource = SoliditySourceFile.from(new File("src/test/resources/contract2.sol"));
+        CompiledContract compiledContract = ethereum.compile(contractSource).get().get("myContract2");
+        EthAddress address = ethereum.publishContract(compiledContract, account).get();
+        ethereum.createContractProxy(compiledContract, address, account, MyGasLimitContract.class);
+
+        byte[] selector = new CallTransaction.Contract(compiledContract.getAbi().getAbi()).getByName("getI1").encodeSignature();
+        assertEquals(Optional.of(BigInteger.valueOf(123_456)), proxy.gasEstimates().get(account.getAddress(), address, EthValue.wei(0), EthData.of(selector)));
+    }
+
+    private interface MyGasLimitContract {
+        @GasLimit(123_456)
+        String getI1();
+    }
+
     private interface MyContract2 {
         String getI1();
 
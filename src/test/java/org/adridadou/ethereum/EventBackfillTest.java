@@ -0,0 +1,74 @@
+package org.adridadou.ethereum;
+
+import org.adridadou.ethereum.converters.output.OutputTypeHandler;
+import org.adridadou.ethereum.event.LogEntry;
+import org.adridadou.ethereum.values.EthAddress;
+import org.adridadou.exception.LogRangeTooLargeException;
+import org.ethereum.core.CallTransaction;
+import org.ethereum.vm.DataWord;
+import org.ethereum.vm.LogInfo;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Created by davidroon on 14.04.17.
+ * This code is released under Apache 2 license
+ */
+public class EventBackfillTest {
+    private final EthereumBackend ethereum = mock(EthereumBackend.class);
+    private final CallTransaction.Function event = mock(CallTransaction.Function.class);
+    private final EthAddress address = EthAddress.of("0x0a");
+    private final byte[] topic = new byte[]{1};
+
+    @Test
+    public void rangesWithTooManyLogsAreHalvedAndEventsComeInBlockOrder() {
+        when(event.encodeSignatureLong()).thenReturn(topic);
+        when(event.decodeEventData(any())).thenAnswer(invocation -> new Object[]{new BigInteger((byte[]) invocation.getArgument(0))});
+        when(ethereum.getLogs(any(), any(), anyLong(), anyLong())).thenAnswer(invocation -> {
+            long from = invocation.getArgument(2);
+            long to = invocation.getArgument(3);
+            //the node returns at most 3 logs, there is one log per block
+            if (to - from + 1 > 3) {
+                throw new LogRangeTooLargeException("query returned more than 3 results");
+            }
+            return LongStream.rangeClosed(from, to).mapToObj(block -> new LogEntry(log(block), block, 0)).collect(Collectors.toList());
+        });
+
+        List<Long> blocks = new EventBackfill<>(ethereum, new OutputTypeHandler(), address, Collections.singletonList(event), Transfer.class)
+                .fromBlock(1).toBlock(40).chunkSize(10).parallelism(3)
+                .observe()
+                .map(transfer -> transfer.block)
+                .toList().toBlocking().single();
+
+        assertEquals(LongStream.rangeClosed(1, 40).boxed().collect(Collectors.toList()), new ArrayList<>(blocks));
+    }
+
+    private LogInfo log(long block) {
+        DataWord topicWord = mock(DataWord.class);
+        when(topicWord.getData()).thenReturn(topic);
+        LogInfo log = mock(LogInfo.class);
+        when(log.getTopics()).thenReturn(Collections.singletonList(topicWord));
+        when(log.getData()).thenReturn(BigInteger.valueOf(block).toByteArray());
+        return log;
+    }
+
+    public static class Transfer {
+        private final long block;
+
+        public Transfer(Long block) {
+            this.block = block;
+        }
+    }
+}
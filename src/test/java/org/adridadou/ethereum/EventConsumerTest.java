@@ -0,0 +1,104 @@
+package org.adridadou.ethereum;
+
+import org.adridadou.ethereum.converters.output.OutputTypeHandler;
+import org.adridadou.ethereum.event.EthereumEventHandler;
+import org.adridadou.ethereum.event.EventCheckpointStore;
+import org.adridadou.ethereum.event.EventCursor;
+import org.adridadou.ethereum.event.LogEntry;
+import org.adridadou.ethereum.values.EthAddress;
+import org.ethereum.core.CallTransaction;
+import org.ethereum.vm.DataWord;
+import org.ethereum.vm.LogInfo;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import rx.Observable;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Created by davidroon on 19.04.17.
+ * This code is released under Apache 2 license
+ */
+public class EventConsumerTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final EthereumBackend ethereum = mock(EthereumBackend.class);
+    private final EthereumEventHandler eventHandler = mock(EthereumEventHandler.class);
+    private final CallTransaction.Function event = mock(CallTransaction.Function.class);
+    private final byte[] topic = new byte[]{1};
+
+    @Test
+    public void onlyTheEventsAfterTheLastAckAreDeliveredAgainAfterARestart() throws IOException {
+        //blocks 1 to 3 with two logs each, the current block is 3 and no new block comes
+        when(ethereum.getCurrentBlockNumber()).thenReturn(3L);
+        when(eventHandler.observeBlocks()).thenReturn(Observable.empty());
+        when(event.encodeSignatureLong()).thenReturn(topic);
+        when(event.decodeEventData(any())).thenAnswer(invocation -> new Object[]{new BigInteger((byte[]) invocation.getArgument(0))});
+        when(ethereum.getLogs(any(), any(), anyLong(), anyLong())).thenAnswer(invocation -> {
+            long from = invocation.getArgument(2);
+            long to = invocation.getArgument(3);
+            return LongStream.rangeClosed(from, to).boxed()
+                    .flatMap(block -> IntStream.range(0, 2).mapToObj(index -> new LogEntry(log(block * 10 + index), block, index)))
+                    .collect(Collectors.toList());
+        });
+        Path file = folder.newFile().toPath();
+
+        List<Long> firstRun = new ArrayList<>();
+        try (EventCheckpointStore store = new EventCheckpointStore(file)) {
+            consumer(store).observe().toBlocking().forEach(consumed -> {
+                firstRun.add(consumed.getEvent().id);
+                //the consumer stops acking after the first log of block 2
+                if (consumed.getCursor().compareTo(new EventCursor(2, 0)) <= 0) {
+                    consumed.ack();
+                }
+            });
+        }
+        assertEquals(Arrays.asList(10L, 11L, 20L, 21L, 30L, 31L), firstRun);
+
+        try (EventCheckpointStore store = new EventCheckpointStore(file)) {
+            List<Long> secondRun = consumer(store).observe()
+                    .map(consumed -> consumed.getEvent().id)
+                    .toList().toBlocking().single();
+            assertEquals(Arrays.asList(21L, 30L, 31L), secondRun);
+        }
+    }
+
+    private EventConsumer<Transfer> consumer(EventCheckpointStore store) {
+        EventBackfill<Transfer> backfill = new EventBackfill<>(ethereum, new OutputTypeHandler(), EthAddress.of("0x0a"), Collections.singletonList(event), Transfer.class);
+        return new EventConsumer<>("transfers", store, backfill, ethereum, eventHandler).fromBlock(1);
+    }
+
+    private LogInfo log(long id) {
+        DataWord topicWord = mock(DataWord.class);
+        when(topicWord.getData()).thenReturn(topic);
+        LogInfo log = mock(LogInfo.class);
+        when(log.getTopics()).thenReturn(Collections.singletonList(topicWord));
+        when(log.getData()).thenReturn(BigInteger.valueOf(id).toByteArray());
+        return log;
+    }
+
+    public static class Transfer {
+        private final long id;
+
+        public Transfer(Long id) {
+            this.id = id;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package org.adridadou.ethereum;
+
+import org.adridadou.ethereum.values.EthAddress;
+import org.adridadou.ethereum.values.EthData;
+import org.adridadou.ethereum.values.EthValue;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.Optional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Created by davidroon on 19.04.17.
+ * This code is released under Apache 2 license
+ */
+public class GasEstimateCacheTest {
+    private final GasEstimateCache cache = new GasEstimateCache().minSamples(3).percentile(0.5).headroom(0);
+    private final EthAddress sender = EthAddress.of("0x0a");
+    private final EthAddress contract = EthAddress.of("0x0102");
+    private final EthData call = EthData.of("0x01020304aabb");
+    private final EthData callWithOtherArgs = EthData.of("0x01020304ccdd");
+    private final EthValue noValue = EthValue.wei(0);
+
+    @Test
+    public void nothingIsGivenBeforeMinSamples() {
+        record(100, 200);
+        assertFalse(get(call).isPresent());
+
+        record(300);
+        assertEquals(Optional.of(BigInteger.valueOf(200)), get(call));
+    }
+
+    @Test
+    public void theLimitIsThePercentileOfTheSamplesPlusTheHeadroom() {
+        record(400, 100, 300, 200);
+        assertEquals(Optional.of(BigInteger.valueOf(200)), get(call));
+
+        cache.percentile(1);
+        assertEquals(Optional.of(BigInteger.valueOf(400)), get(call));
+
+        cache.headroom(0.25);
+        assertEquals(Optional.of(BigInteger.valueOf(500)), get(call));
+    }
+
+    @Test
+    public void theSamplesAreSharedByTheArgumentsButNotBySendersOrPayments() {
+        record(100, 100, 100);
+
+        assertEquals(Optional.of(BigInteger.valueOf(100)), get(callWithOtherArgs));
+        assertFalse(cache.get(EthAddress.of("0x0b"), contract, noValue, call).isPresent());
+        assertFalse(cache.get(sender, contract, EthValue.wei(1), call).isPresent());
+        assertFalse(cache.get(sender, EthAddress.of("0x0103"), noValue, call).isPresent());
+    }
+
+    @Test
+    public void invalidateDropsTheSamplesOfEverySender() {
+        record(100, 100, 100);
+        EthAddress otherSender = EthAddress.of("0x0b");
+        for (int i = 0; i < 3; i++) {
+            cache.record(otherSender, contract, noValue, call, BigInteger.valueOf(100));
+        }
+
+        cache.invalidate(contract, callWithOtherArgs);
+
+        assertFalse(get(call).isPresent());
+        assertFalse(cache.get(otherSender, contract, noValue, call).isPresent());
+    }
+
+    @Test
+    public void anOverrideWinsOverTheSamplesForEverySender() {
+        record(100, 100, 100);
+        cache.override(contract, new byte[]{1, 2, 3, 4}, BigInteger.valueOf(50_000));
+
+        assertEquals(Optional.of(BigInteger.valueOf(50_000)), get(call));
+        assertEquals(Optional.of(BigInteger.valueOf(50_000)), cache.get(EthAddress.of("0x0b"), contract, EthValue.wei(1), callWithOtherArgs));
+
+        cache.invalidate(contract, call);
+        assertEquals(Optional.of(BigInteger.valueOf(50_000)), get(call));
+    }
+
+    private void record(long... gasUsed) {
+        for (long value : gasUsed) {
+            cache.record(sender, contract, noValue, call, BigInteger.valueOf(value));
+        }
+    }
+
+    private Optional<BigInteger> get(EthData data) {
+        return cache.get(sender, contract, noValue, data);
+    }
+}
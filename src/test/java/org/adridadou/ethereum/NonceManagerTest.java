@@ -0,0 +1,101 @@
+package org.adridadou.ethereum;
+
+import org.adridadou.ethereum.values.EthAddress;
+import org.junit.Test;
+
+import java.math.BigInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Created by davidroon on 24.03.17.
+ * This code is released under Apache 2 license
+ */
+public class NonceManagerTest {
+    private final EthereumBackend ethereum = mock(EthereumBackend.class);
+    private final NonceManager nonceManager = new NonceManager(ethereum);
+    private final EthAddress address = EthAddress.of("0x0102");
+
+    @Test
+    public void noncesAreHandedOutWithoutReadingTheChainEachTime() {
+        when(ethereum.getNonce(address)).thenReturn(BigInteger.valueOf(5));
+
+        assertEquals(BigInteger.valueOf(5), nonceManager.take(address));
+        assertEquals(BigInteger.valueOf(6), nonceManager.take(address));
+        assertEquals(BigInteger.valueOf(7), nonceManager.getNonce(address));
+        assertEquals(2, nonceManager.getPendingCount(address));
+        verify(ethereum, times(1)).getNonce(address);
+    }
+
+    @Test
+    public void givenBackNonceIsReusedFirst() {
+        when(ethereum.getNonce(address)).thenReturn(BigInteger.valueOf(5));
+        nonceManager.take(address);
+        BigInteger dropped = nonceManager.take(address);
+        nonceManager.take(address);
+
+        nonceManager.giveBack(address, dropped);
+
+        assertEquals(dropped, nonceManager.take(address));
+        assertEquals(BigInteger.valueOf(8), nonceManager.take(address));
+    }
+
+    @Test
+    public void anAccountWithNothingPendingIsForgotten() {
+        when(ethereum.getNonce(address)).thenReturn(BigInteger.valueOf(5));
+        nonceManager.take(address);
+        assertEquals(1, nonceManager.getAccountCount());
+
+        when(ethereum.getNonce(address)).thenReturn(BigInteger.valueOf(6));
+        nonceManager.confirm(address);
+
+        assertEquals(0, nonceManager.getAccountCount());
+        assertEquals(BigInteger.valueOf(6), nonceManager.take(address));
+    }
+
+    @Test
+    public void anAccountIsKeptWhileAResyncedNonceMayBeInThePool() {
+        when(ethereum.getNonce(address)).thenReturn(BigInteger.valueOf(5));
+        nonceManager.take(address);
+        nonceManager.take(address);
+        nonceManager.confirm(address);
+
+        //the transaction with the nonce 6 timed out and the chain is still at 6
+        when(ethereum.getNonce(address)).thenReturn(BigInteger.valueOf(6));
+        nonceManager.resync(address);
+        assertEquals(1, nonceManager.getAccountCount());
+        assertEquals(BigInteger.valueOf(7), nonceManager.take(address));
+
+        //the chain has included it and the next one
+        when(ethereum.getNonce(address)).thenReturn(BigInteger.valueOf(8));
+        nonceManager.confirm(address);
+        assertEquals(0, nonceManager.getAccountCount());
+    }
+
+    @Test
+    public void aFailedBatchReadsTheChainOnce() {
+        when(ethereum.getNonce(address)).thenReturn(BigInteger.valueOf(5));
+        nonceManager.take(address, 10);
+
+        nonceManager.resync(address, 10);
+
+        verify(ethereum, times(2)).getNonce(address);
+        assertEquals(BigInteger.valueOf(15), nonceManager.take(address));
+    }
+
+    @Test
+    public void aResyncedNonceIsNotHandedOutAgain() {
+        when(ethereum.getNonce(address)).thenReturn(BigInteger.valueOf(5));
+        nonceManager.take(address);
+        nonceManager.take(address);
+
+        //the transaction with the nonce 6 timed out, it may still be in the pool of the node
+        nonceManager.resync(address);
+
+        assertEquals(BigInteger.valueOf(7), nonceManager.take(address));
+    }
+}
@@ -0,0 +1,42 @@
+package org.adridadou.ethereum;
+
+import org.adridadou.ethereum.values.EthValue;
+import org.junit.Test;
+
+import java.math.BigInteger;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Created by davidroon on 19.04.17.
+ * This code is released under Apache 2 license
+ */
+public class ReplacementPolicyTest {
+    @Test
+    public void theGasPriceIsBumpedAndRoundedUp() {
+        ReplacementPolicy policy = ReplacementPolicy.afterBlocks(5);
+
+        assertEquals(BigInteger.valueOf(113), policy.nextGasPrice(BigInteger.valueOf(100), BigInteger.ONE));
+        assertEquals(BigInteger.valueOf(12), policy.bumpBy(0.15).nextGasPrice(BigInteger.valueOf(10), BigInteger.ONE));
+    }
+
+    @Test
+    public void theCurrentGasPriceWinsWhenItIsHigher() {
+        assertEquals(BigInteger.valueOf(200), ReplacementPolicy.afterBlocks(5).nextGasPrice(BigInteger.valueOf(100), BigInteger.valueOf(200)));
+    }
+
+    @Test
+    public void theGasPriceNeverGoesAboveTheMax() {
+        ReplacementPolicy policy = ReplacementPolicy.afterBlocks(5).maxGasPrice(EthValue.wei(150));
+
+        assertEquals(BigInteger.valueOf(150), policy.nextGasPrice(BigInteger.valueOf(140), BigInteger.ONE));
+        assertEquals(BigInteger.valueOf(150), policy.nextGasPrice(BigInteger.valueOf(100), BigInteger.valueOf(300)));
+    }
+
+    @Test
+    public void theSettingsAreBounded() {
+        assertEquals(1, ReplacementPolicy.afterBlocks(0).getAfterBlocks());
+        assertEquals(0, ReplacementPolicy.afterBlocks(1).maxReplacements(-1).getMaxReplacements());
+        assertEquals(BigInteger.valueOf(100), ReplacementPolicy.afterBlocks(1).bumpBy(-1).nextGasPrice(BigInteger.valueOf(100), BigInteger.ONE));
+    }
+}
@@ -0,0 +1,114 @@
+package org.adridadou.ethereum;
+
+import org.adridadou.ethereum.event.EthereumEventHandler;
+import org.adridadou.ethereum.event.OnBlockParameters;
+import org.adridadou.ethereum.event.PendingTransactionRegistry;
+import org.adridadou.ethereum.gasprice.FixedGasPrice;
+import org.adridadou.ethereum.gasprice.GasPriceOracle;
+import org.adridadou.ethereum.values.EthAccount;
+import org.adridadou.ethereum.values.EthAddress;
+import org.adridadou.ethereum.values.EthData;
+import org.adridadou.ethereum.values.EthHash;
+import org.adridadou.ethereum.values.EthValue;
+import org.adridadou.ethereum.values.TransactionRequest;
+import org.ethereum.core.Transaction;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.Collections;
+
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Created by davidroon on 19.04.17.
+ * This code is released under Apache 2 license
+ */
+public class TransactionReplacerTest {
+    private final EthereumBackend ethereum = mock(EthereumBackend.class);
+    private final EthereumEventHandler eventHandler = new EthereumEventHandler();
+    private final PendingTransactionRegistry registry = new PendingTransactionRegistry(eventHandler, 100);
+    private final GasPriceOracle gasPriceOracle = new GasPriceOracle(ethereum, eventHandler, Runnable::run).strategy(new FixedGasPrice(EthValue.wei(100)));
+    private final TransactionReplacer replacer = new TransactionReplacer(ethereum, eventHandler, registry, gasPriceOracle, Runnable::run);
+    private final EthAccount account = new EthAccount(BigInteger.ONE);
+    private final TransactionRequest request = new TransactionRequest(EthAddress.of("0x0102"), EthValue.wei(0), EthData.of("0x01020304")).withGasLimit(BigInteger.valueOf(21_000));
+    private final EthHash hash = EthHash.of("0x01");
+
+    @Test
+    public void nothingIsReplacedWithoutPolicy() {
+        watch(hash, 10);
+        block(20);
+
+        verify(ethereum, never()).sign(any(), any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    public void aPendingTransactionIsReplacedWithTheSameNonceAndABumpedPrice() {
+        replacer.policy(ReplacementPolicy.afterBlocks(2));
+        EthHash replacement = signedAs(EthHash.of("0x02"));
+        watch(hash, 10);
+
+        block(11);
+        verify(ethereum, never()).sign(any(), any(), any(), any(), any(), any(), any());
+
+        block(12);
+        verify(ethereum).sign(account, request.getAddress(), request.getValue(), request.getData(), BigInteger.valueOf(7), BigInteger.valueOf(113), request.getGasLimit());
+        verify(ethereum).submit(eq(account), any(Transaction.class));
+        assertTrue(registry.isPending(replacement));
+    }
+
+    @Test
+    public void anIncludedTransactionIsNotReplaced() {
+        replacer.policy(ReplacementPolicy.afterBlocks(2));
+        watch(hash, 10);
+
+        block(11, hash);
+        block(12);
+
+        verify(ethereum, never()).sign(any(), any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    public void theReplacementsStopAtTheMax() {
+        replacer.policy(ReplacementPolicy.afterBlocks(1).maxReplacements(2));
+        signedAs(EthHash.of("0x02"), EthHash.of("0x03"), EthHash.of("0x04"));
+        watch(hash, 10);
+
+        block(11);
+        block(12);
+        block(13);
+        block(14);
+
+        verify(ethereum, times(2)).submit(eq(account), any(Transaction.class));
+    }
+
+    private void watch(EthHash txHash, long blockNumber) {
+        registry.register(txHash, blockNumber);
+        replacer.watch(account, BigInteger.valueOf(7), request, BigInteger.valueOf(100), txHash, blockNumber);
+    }
+
+    private EthHash signedAs(EthHash first, EthHash... next) {
+        Transaction tx = mock(Transaction.class);
+        byte[][] nextHashes = new byte[next.length][];
+        for (int i = 0; i < next.length; i++) {
+            nextHashes[i] = next[i].data;
+        }
+        when(tx.getHash()).thenReturn(first.data, nextHashes);
+        when(ethereum.sign(any(), any(), any(), any(), any(), any(), any())).thenReturn(tx);
+        return first;
+    }
+
+    private void block(long number, EthHash... included) {
+        eventHandler.onBlock(new OnBlockParameters(number, Collections.emptyList()));
+        for (EthHash txHash : included) {
+            eventHandler.onBlock(new OnBlockParameters(number, Collections.singletonList(
+                    new org.adridadou.ethereum.event.TransactionReceipt(txHash, EthAddress.empty(), EthAddress.empty(), EthAddress.empty(), "", EthData.empty(), true))));
+        }
+    }
+}
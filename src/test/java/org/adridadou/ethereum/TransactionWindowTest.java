@@ -0,0 +1,70 @@
+package org.adridadou.ethereum;
+
+import org.adridadou.ethereum.values.EthAddress;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Created by davidroon on 03.04.17.
+ * This code is released under Apache 2 license
+ */
+public class TransactionWindowTest {
+    private final TransactionWindow window = new TransactionWindow().maxInFlight(2);
+    private final EthAddress address = EthAddress.of("0x0102");
+
+    @Test
+    public void waitsForAFreeSlot() {
+        assertTrue(window.acquire(address, 1).isDone());
+        assertTrue(window.acquire(address, 1).isDone());
+        CompletableFuture<Void> third = window.acquire(address, 1);
+
+        assertFalse(third.isDone());
+        assertEquals(1, window.getQueueDepth(address));
+
+        window.release(address, 1);
+        assertTrue(third.isDone());
+        assertEquals(0, window.getQueueDepth(address));
+        assertEquals(2, window.getInFlight(address));
+    }
+
+    @Test
+    public void failsFastWhenTheWindowIsFull() {
+        window.failFast(true);
+        window.acquire(address, 2);
+
+        assertTrue(window.acquire(address, 1).isCompletedExceptionally());
+        assertTrue(window.acquire(EthAddress.of("0x0103"), 1).isDone());
+    }
+
+    @Test
+    public void biggerBatchGoesThroughAlone() {
+        assertTrue(window.acquire(address, 5).isDone());
+        CompletableFuture<Void> next = window.acquire(address, 1);
+        assertFalse(next.isDone());
+
+        window.release(address, 5);
+        assertTrue(next.isDone());
+    }
+
+    @Test
+    public void anIdleAccountIsEvicted() {
+        window.acquire(address, 2);
+        CompletableFuture<Void> queued = window.acquire(address, 1);
+
+        window.release(address, 1);
+        assertTrue(queued.isDone());
+        assertEquals(1, window.getAccountCount());
+
+        window.release(address, 2);
+        assertEquals(0, window.getAccountCount());
+        assertEquals(0, window.getInFlight(address));
+
+        assertTrue(window.acquire(address, 2).isDone());
+        assertEquals(2, window.getInFlight(address));
+    }
+}
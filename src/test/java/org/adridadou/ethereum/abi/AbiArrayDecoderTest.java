@@ -0,0 +1,69 @@
+package org.adridadou.ethereum.abi;
+
+import org.adridadou.ethereum.values.EthAddress;
+import org.ethereum.core.CallTransaction;
+import org.junit.Test;
+
+import java.lang.reflect.Type;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Created by davidroon on 10.04.17.
+ * This code is released under Apache 2 license
+ */
+public class AbiArrayDecoderTest {
+
+    @Test
+    public void decodesIntegerArraysIntoPrimitiveArrays() throws Exception {
+        CallTransaction.Function function = function("int256[]");
+        byte[] encoded = encode(function, new Object[]{new Object[]{1, -2, Long.MAX_VALUE}});
+
+        long[] longs = (long[]) decoder(function, long[].class, long[].class).decode(encoded);
+        int[] ints = (int[]) decoder(function, int[].class, int[].class).decode(encoded);
+
+        assertArrayEquals(new long[]{1, -2, Long.MAX_VALUE}, longs);
+        assertArrayEquals(new int[]{1, -2, -1}, ints);
+    }
+
+    @Test
+    public void decodesAddressesAndListsLazily() throws Exception {
+        CallTransaction.Function function = function("address[]");
+        EthAddress address = EthAddress.of("0x39ee4c28e09ce6d908643dbc5cbb51a6a9dbd1e4");
+        byte[] encoded = encode(function, new Object[]{new Object[]{address.address, address.address}});
+
+        EthAddress[] addresses = (EthAddress[]) decoder(function, EthAddress[].class, EthAddress[].class).decode(encoded);
+        List<?> list = (List<?>) decoder(function, List.class, AbiArrayDecoderTest.class.getMethod("addresses").getGenericReturnType()).decode(encoded);
+
+        assertEquals(Arrays.asList(address, address), Arrays.asList(addresses));
+        assertEquals(Arrays.asList(address, address), list);
+    }
+
+    @Test
+    public void unsupportedTypesAreLeftToTheConverters() throws Exception {
+        assertFalse(AbiArrayDecoder.of(function("string"), String.class, String.class).isPresent());
+        assertFalse(AbiArrayDecoder.of(function("uint256[]"), BigInteger[].class, BigInteger[].class).isPresent());
+        assertFalse(AbiArrayDecoder.of(function("uint256[2]"), long[].class, long[].class).isPresent());
+    }
+
+    public List<EthAddress> addresses() {
+        return null;
+    }
+
+    private CallTransaction.Function function(String resultType) {
+        return CallTransaction.Function.fromSignature("get", new String[0], new String[]{resultType});
+    }
+
+    private byte[] encode(CallTransaction.Function function, Object[] result) {
+        return CallTransaction.Function.fromSignature("get", function.outputs[0].type.getCanonicalName()).encodeArguments(result);
+    }
+
+    private AbiArrayDecoder decoder(CallTransaction.Function function, Class<?> returnType, Type genericType) {
+        return AbiArrayDecoder.of(function, returnType, genericType).get();
+    }
+}
@@ -0,0 +1,52 @@
+package org.adridadou.ethereum.abi;
+
+import org.ethereum.core.CallTransaction;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Created by davidroon on 09.04.17.
+ * This code is released under Apache 2 license
+ */
+public class AbiEncoderTest {
+    private final CallTransaction.Function function = CallTransaction.Function.fromSignature("call",
+            "address", "uint256", "int256", "bool", "bytes32", "bytes", "string", "uint256[]");
+
+    @Test
+    public void encodesLikeEthereumJ() {
+        byte[] address = new byte[20];
+        address[19] = 1;
+        byte[] hash = new byte[32];
+        hash[0] = 42;
+        Object[] args = {address, BigInteger.valueOf(2).pow(200), -5L, true, hash, new byte[]{1, 2, 3}, "héllo €", new Integer[]{1, 2}};
+
+        assertArrayEquals(function.encode(args), AbiEncoder.forFunction(function).encode(args));
+    }
+
+    @Test
+    public void emptyDynamicValuesAreEncodedLikeEthereumJ() {
+        Object[] args = {new byte[20], 0, 0, false, new byte[32], new byte[0], "", new Integer[0]};
+
+        assertArrayEquals(function.encode(args), AbiEncoder.forFunction(function).encode(args));
+    }
+
+    @Test
+    public void writesIntoTheGivenBuffer() {
+        CallTransaction.Function transfer = CallTransaction.Function.fromSignature("transfer", "address", "uint256");
+        AbiEncoder encoder = AbiEncoder.forFunction(transfer);
+        Object[] args = {new byte[20], 10};
+        ByteBuffer buffer = ByteBuffer.allocate(100);
+
+        encoder.encode(buffer, args);
+        assertEquals(encoder.encodedSize(args), buffer.position());
+        byte[] written = new byte[buffer.position()];
+        buffer.flip();
+        buffer.get(written);
+        assertArrayEquals(transfer.encode(args), written);
+    }
+}
@@ -0,0 +1,199 @@
+package org.adridadou.ethereum.blockchain;
+
+import org.adridadou.ethereum.event.EthereumEventHandler;
+import org.adridadou.ethereum.event.OnBlockParameters;
+import org.adridadou.ethereum.rpc.EthereumRpcEventGenerator;
+import org.adridadou.ethereum.rpc.Web3JFacade;
+import org.adridadou.ethereum.values.EthAddress;
+import org.adridadou.ethereum.values.EthHash;
+import org.junit.Test;
+import org.web3j.protocol.core.methods.response.EthBlock;
+import org.web3j.protocol.core.methods.response.TransactionReceipt;
+import rx.Observable;
+import rx.subjects.PublishSubject;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Created by davidroon on 16.04.17.
+ * This code is released under Apache 2 license
+ */
+public class EthereumRpcEventGeneratorTest {
+    private final EthAddress watched = EthAddress.of("0x0a");
+    private final EthAddress other = EthAddress.of("0x0b");
+
+    @Test
+    public void onlyTheReceiptsOfWatchedTransactionsAreFetched() {
+        Web3JFacade web3JFacade = mock(Web3JFacade.class);
+        PublishSubject<EthBlock> blocks = PublishSubject.create();
+        when(web3JFacade.observeBlocks()).thenReturn(blocks);
+        when(web3JFacade.getReceipts(any())).thenReturn(Collections.singletonList(receipt("0x01")));
+        EthereumRpcEventGenerator generator = new EthereumRpcEventGenerator(web3JFacade, Runnable::run);
+        EthereumEventHandler eventHandler = new EthereumEventHandler();
+        generator.addListener(eventHandler);
+        generator.watch(watched);
+        List<OnBlockParameters> received = new ArrayList<>();
+        eventHandler.observeBlocks().subscribe(received::add);
+
+        blocks.onNext(block(tx("0x01", watched, other), tx("0x02", other, other)));
+
+        verify(web3JFacade).getReceipts(Collections.singletonList(EthHash.of("0x01")));
+        assertEquals(1, received.size());
+        assertEquals(2, received.get(0).receipts.size());
+        assertTrue(received.get(0).receipts.get(0).hasReceipt);
+        assertEquals(BigInteger.valueOf(21000), received.get(0).receipts.get(0).gasUsed);
+        assertFalse(received.get(0).receipts.get(1).hasReceipt);
+        assertFalse(received.get(0).receipts.get(1).isSuccessful);
+        assertEquals(BigInteger.TEN, received.get(0).receipts.get(1).gasPrice);
+    }
+
+    @Test
+    public void aWatchedHashGetsItsReceiptOnce() {
+        Web3JFacade web3JFacade = mock(Web3JFacade.class);
+        PublishSubject<EthBlock> blocks = PublishSubject.create();
+        when(web3JFacade.observeBlocks()).thenReturn(blocks);
+        when(web3JFacade.getReceipts(any())).thenReturn(Collections.singletonList(receipt("0x02")));
+        EthereumRpcEventGenerator generator = new EthereumRpcEventGenerator(web3JFacade, Runnable::run);
+        EthereumEventHandler eventHandler = new EthereumEventHandler();
+        generator.addListener(eventHandler);
+        generator.watch(EthHash.of("0x02"));
+        List<OnBlockParameters> received = new ArrayList<>();
+        eventHandler.observeBlocks().subscribe(received::add);
+
+        blocks.onNext(block(tx("0x01", other, other), tx("0x02", other, other)));
+        blocks.onNext(block(tx("0x02", other, other)));
+
+        verify(web3JFacade, times(1)).getReceipts(Collections.singletonList(EthHash.of("0x02")));
+        assertFalse(received.get(0).receipts.get(0).hasReceipt);
+        assertTrue(received.get(0).receipts.get(1).hasReceipt);
+        assertFalse(received.get(1).receipts.get(0).hasReceipt);
+    }
+
+    @Test
+    public void aReceiptThatCouldNotBeReadIsReadAgainWithTheNextBlock() {
+        Web3JFacade web3JFacade = mock(Web3JFacade.class);
+        PublishSubject<EthBlock> blocks = PublishSubject.create();
+        when(web3JFacade.observeBlocks()).thenReturn(blocks);
+        when(web3JFacade.getReceipts(any()))
+                .thenReturn(Collections.singletonList(null))
+                .thenReturn(Collections.singletonList(receipt("0x02")));
+        EthereumRpcEventGenerator generator = new EthereumRpcEventGenerator(web3JFacade, Runnable::run);
+        EthereumEventHandler eventHandler = new EthereumEventHandler();
+        generator.addListener(eventHandler);
+        generator.watch(EthHash.of("0x02"));
+        List<OnBlockParameters> received = new ArrayList<>();
+        eventHandler.observeBlocks().subscribe(received::add);
+
+        blocks.onNext(block(tx("0x02", other, other)));
+        blocks.onNext(block(tx("0x03", other, other)));
+        blocks.onNext(block(tx("0x04", other, other)));
+
+        verify(web3JFacade, times(2)).getReceipts(Collections.singletonList(EthHash.of("0x02")));
+        assertFalse(received.get(0).receipts.get(0).hasReceipt);
+        //the receipt is given with the next block
+        assertEquals(2, received.get(1).receipts.size());
+        assertEquals(EthHash.of("0x02"), received.get(1).receipts.get(1).hash);
+        assertTrue(received.get(1).receipts.get(1).hasReceipt);
+        assertEquals(1, received.get(2).receipts.size());
+    }
+
+    @Test
+    public void anUnwatchedHashIsNotReadAnymore() {
+        Web3JFacade web3JFacade = mock(Web3JFacade.class);
+        PublishSubject<EthBlock> blocks = PublishSubject.create();
+        when(web3JFacade.observeBlocks()).thenReturn(blocks);
+        when(web3JFacade.getReceipts(any())).thenReturn(Collections.singletonList(null));
+        EthereumRpcEventGenerator generator = new EthereumRpcEventGenerator(web3JFacade, Runnable::run);
+        generator.watch(EthHash.of("0x02"));
+        generator.watch(EthHash.of("0x03"));
+
+        blocks.onNext(block(tx("0x02", other, other)));
+        generator.unwatch(EthHash.of("0x02"));
+        generator.unwatch(EthHash.of("0x03"));
+        blocks.onNext(block(tx("0x03", other, other)));
+
+        verify(web3JFacade, times(1)).getReceipts(any());
+    }
+
+    @Test
+    public void afterAnErrorTheBlocksAreReadAgainWithTheMissedOnes() throws InterruptedException {
+        Web3JFacade web3JFacade = mock(Web3JFacade.class);
+        BlockingQueue<PublishSubject<EthBlock>> subscriptions = new LinkedBlockingQueue<>();
+        when(web3JFacade.observeBlocks()).thenReturn(Observable.defer(() -> {
+            PublishSubject<EthBlock> blocks = PublishSubject.create();
+            subscriptions.add(blocks);
+            return blocks;
+        }));
+        when(web3JFacade.getBlock(anyLong())).thenAnswer(invocation -> block((long) invocation.getArgument(0)));
+        EthereumRpcEventGenerator generator = new EthereumRpcEventGenerator(web3JFacade, Runnable::run);
+        EthereumEventHandler eventHandler = new EthereumEventHandler();
+        generator.addListener(eventHandler);
+        BlockingQueue<Long> received = new LinkedBlockingQueue<>();
+        eventHandler.observeBlocks().subscribe(block -> received.add(block.blockNumber));
+
+        PublishSubject<EthBlock> first = subscriptions.poll(5, TimeUnit.SECONDS);
+        first.onNext(block(16));
+        first.onError(new IllegalStateException("the connection has been lost"));
+        PublishSubject<EthBlock> second = subscriptions.poll(5, TimeUnit.SECONDS);
+        while (!second.hasObservers()) {
+            Thread.sleep(10);
+        }
+        second.onNext(block(19));
+
+        List<Long> blockNumbers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            blockNumbers.add(received.poll(5, TimeUnit.SECONDS));
+        }
+        assertEquals(Arrays.asList(16L, 17L, 18L, 19L), blockNumbers);
+    }
+
+    private EthBlock block(long number, EthBlock.TransactionObject... txs) {
+        EthBlock ethBlock = block(txs);
+        ethBlock.getBlock().setNumber("0x" + Long.toHexString(number));
+        return ethBlock;
+    }
+
+    private EthBlock block(EthBlock.TransactionObject... txs) {
+        EthBlock.Block block = new EthBlock.Block();
+        block.setNumber("0x10");
+        List<EthBlock.TransactionResult> transactions = new ArrayList<>(Arrays.asList(txs));
+        block.setTransactions(transactions);
+        EthBlock ethBlock = new EthBlock();
+        ethBlock.setResult(block);
+        return ethBlock;
+    }
+
+    private EthBlock.TransactionObject tx(String hash, EthAddress from, EthAddress to) {
+        EthBlock.TransactionObject tx = new EthBlock.TransactionObject();
+        tx.setHash(hash);
+        tx.setFrom(from.withLeading0x());
+        tx.setTo(to.withLeading0x());
+        tx.setGas("0x100000");
+        tx.setGasPrice("0xa");
+        return tx;
+    }
+
+    private TransactionReceipt receipt(String hash) {
+        TransactionReceipt receipt = new TransactionReceipt();
+        receipt.setTransactionHash(hash);
+        receipt.setGasUsed("0x5208");
+        return receipt;
+    }
+}
@@ -0,0 +1,75 @@
+package org.adridadou.ethereum.blockchain;
+
+import jnr.unixsocket.UnixServerSocketChannel;
+import jnr.unixsocket.UnixSocketAddress;
+import jnr.unixsocket.UnixSocketChannel;
+import org.adridadou.ethereum.rpc.IpcTransport;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.EOFException;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Created by davidroon on 19.04.17.
+ * This code is released under Apache 2 license
+ */
+public class IpcTransportTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void theMessagesAreSplitWhereTheirJsonEnds() throws Exception {
+        File path = new File(folder.getRoot(), "node.ipc");
+        UnixServerSocketChannel server = UnixServerSocketChannel.open();
+        server.socket().bind(new UnixSocketAddress(path));
+        CompletableFuture<String> received = new CompletableFuture<>();
+        Thread node = new Thread(() -> {
+            try (UnixSocketChannel channel = server.accept()) {
+                ByteBuffer request = ByteBuffer.allocate(1024);
+                channel.read(request);
+                received.complete(new String(request.array(), 0, request.position(), StandardCharsets.UTF_8));
+                //two messages and the start of a third one in the first write, with braces inside a string
+                write(channel, "{\"id\":1,\"result\":\"a}\\\"{\"}\n[{\"id\":2},{\"id\":3}]  {\"id\":");
+                write(channel, "4,\"result\":{\"value\":\"é\"}}");
+            } catch (Exception e) {
+                received.completeExceptionally(e);
+            }
+        });
+        node.setDaemon(true);
+        node.start();
+
+        IpcTransport transport = new IpcTransport(path.getAbsolutePath());
+        transport.write("{\"id\":1,\"method\":\"eth_blockNumber\"}");
+
+        assertEquals("{\"id\":1,\"method\":\"eth_blockNumber\"}", received.get(5, TimeUnit.SECONDS));
+        assertEquals("{\"id\":1,\"result\":\"a}\\\"{\"}", transport.read());
+        assertEquals("[{\"id\":2},{\"id\":3}]", transport.read());
+        assertEquals("{\"id\":4,\"result\":{\"value\":\"é\"}}", transport.read());
+        try {
+            transport.read();
+            fail("the node has closed the connection");
+        } catch (EOFException e) {
+            //expected
+        }
+        transport.close();
+        server.close();
+    }
+
+    private static void write(UnixSocketChannel channel, String message) throws Exception {
+        ByteBuffer bytes = ByteBuffer.wrap(message.getBytes(StandardCharsets.UTF_8));
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        //the reader gets the two writes apart
+        Thread.sleep(100);
+    }
+}
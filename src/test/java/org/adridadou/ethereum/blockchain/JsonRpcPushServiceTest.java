@@ -0,0 +1,154 @@
+package org.adridadou.ethereum.blockchain;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.adridadou.ethereum.rpc.JsonRpcPushService;
+import org.adridadou.ethereum.rpc.JsonRpcTransport;
+import org.junit.Test;
+import org.web3j.protocol.Web3j;
+import rx.Subscription;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Created by davidroon on 18.04.17.
+ * This code is released under Apache 2 license
+ */
+public class JsonRpcPushServiceTest {
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    public void requestsAndNotificationsShareTheConnection() throws Exception {
+        FakeNode node = new FakeNode();
+        JsonRpcPushService service = new JsonRpcPushService(node);
+        BlockingQueue<JsonNode> heads = new LinkedBlockingQueue<>();
+
+        Subscription subscription = service.subscribe("newHeads").subscribe(heads::add);
+        JsonNode subscribe = node.nextRequest();
+        assertEquals("eth_subscribe", subscribe.get("method").asText());
+        node.push("{\"jsonrpc\":\"2.0\",\"id\":" + subscribe.get("id") + ",\"result\":\"0xab\"}");
+        node.push("{\"jsonrpc\":\"2.0\",\"method\":\"eth_subscription\",\"params\":{\"subscription\":\"0xab\",\"result\":{\"number\":\"0x10\"}}}");
+        assertEquals("0x10", heads.poll(5, TimeUnit.SECONDS).get("number").asText());
+
+        new Thread(() -> {
+            try {
+                JsonNode request = node.nextRequest();
+                node.push("{\"jsonrpc\":\"2.0\",\"id\":" + request.get("id") + ",\"result\":\"0x20\"}");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }).start();
+        assertEquals(BigInteger.valueOf(32), Web3j.build(service).ethBlockNumber().send().getBlockNumber());
+
+        subscription.unsubscribe();
+        JsonNode unsubscribe = node.nextRequest();
+        assertEquals("eth_unsubscribe", unsubscribe.get("method").asText());
+        assertEquals("0xab", unsubscribe.get("params").get(0).asText());
+        service.close();
+    }
+
+    @Test
+    public void aRequestFailsRightAwayOnceTheServiceIsClosed() throws Exception {
+        FakeNode node = new FakeNode();
+        JsonRpcPushService service = new JsonRpcPushService(node);
+        Web3j web3j = Web3j.build(service);
+        CompletableFuture<?> waiting = web3j.ethBlockNumber().sendAsync();
+        node.nextRequest();
+
+        service.close();
+
+        try {
+            waiting.get(5, TimeUnit.SECONDS);
+            fail("the waiting request should fail");
+        } catch (ExecutionException e) {
+            //expected
+        }
+        long start = System.currentTimeMillis();
+        try {
+            web3j.ethBlockNumber().send();
+            fail("the request should fail");
+        } catch (IOException e) {
+            assertTrue(System.currentTimeMillis() - start < 1000);
+        }
+    }
+
+    @Test
+    public void theSubscriptionsAreSentAgainAfterAReconnection() throws Exception {
+        BlockingQueue<FakeNode> connections = new LinkedBlockingQueue<>();
+        JsonRpcPushService service = new JsonRpcPushService(() -> {
+            FakeNode node = new FakeNode();
+            connections.add(node);
+            return node;
+        });
+        BlockingQueue<JsonNode> heads = new LinkedBlockingQueue<>();
+        service.subscribe("newHeads").subscribe(heads::add);
+        FakeNode first = connections.poll(5, TimeUnit.SECONDS);
+        JsonNode subscribe = first.nextRequest();
+        first.push("{\"jsonrpc\":\"2.0\",\"id\":" + subscribe.get("id") + ",\"result\":\"0xab\"}");
+        first.push("{\"jsonrpc\":\"2.0\",\"method\":\"eth_subscription\",\"params\":{\"subscription\":\"0xab\",\"result\":{\"number\":\"0x10\"}}}");
+        assertEquals("0x10", heads.poll(5, TimeUnit.SECONDS).get("number").asText());
+
+        //the connection is lost
+        first.close();
+
+        FakeNode second = connections.poll(5, TimeUnit.SECONDS);
+        JsonNode resubscribe = second.nextRequest();
+        assertEquals("eth_subscribe", resubscribe.get("method").asText());
+        assertEquals("newHeads", resubscribe.get("params").get(0).asText());
+        second.push("{\"jsonrpc\":\"2.0\",\"id\":" + resubscribe.get("id") + ",\"result\":\"0xcd\"}");
+        second.push("{\"jsonrpc\":\"2.0\",\"method\":\"eth_subscription\",\"params\":{\"subscription\":\"0xcd\",\"result\":{\"number\":\"0x11\"}}}");
+        assertEquals("0x11", heads.poll(5, TimeUnit.SECONDS).get("number").asText());
+        service.close();
+    }
+
+    private class FakeNode implements JsonRpcTransport {
+        private final BlockingQueue<String> requests = new LinkedBlockingQueue<>();
+        private final BlockingQueue<String> messages = new LinkedBlockingQueue<>();
+
+        JsonNode nextRequest() throws InterruptedException {
+            try {
+                return mapper.readTree(requests.poll(5, TimeUnit.SECONDS));
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        void push(String message) {
+            messages.add(message);
+        }
+
+        @Override
+        public void write(String message) {
+            requests.add(message);
+        }
+
+        @Override
+        public String read() throws IOException {
+            try {
+                String message = messages.take();
+                if (message.isEmpty()) {
+                    throw new EOFException();
+                }
+                return message;
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+        }
+
+        @Override
+        public void close() {
+            messages.add("");
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package org.adridadou.ethereum.blockchain;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpServer;
+import org.adridadou.ethereum.rpc.RpcEndpointPool;
+import org.junit.After;
+import org.junit.Test;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Created by davidroon on 17.04.17.
+ * This code is released under Apache 2 license
+ */
+public class RpcEndpointPoolTest {
+    private static final String ACCOUNT = "0x0000000000000000000000000000000000000001";
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final List<HttpServer> servers = new ArrayList<>();
+
+    @After
+    public void stopServers() {
+        servers.forEach(server -> server.stop(0));
+    }
+
+    @Test
+    public void aDeadNodeIsEjectedAndTheRequestsGoToTheHealthyOne() throws IOException {
+        List<String> deadCalls = Collections.synchronizedList(new ArrayList<>());
+        List<String> healthyCalls = Collections.synchronizedList(new ArrayList<>());
+        String dead = start(deadCalls, false);
+        String healthy = start(healthyCalls, true);
+        Web3j web3j = Web3j.build(RpcEndpointPool.forUrls(Arrays.asList(dead, healthy)).failureThreshold(2));
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(BigInteger.TEN, web3j.ethGetBalance(ACCOUNT, DefaultBlockParameterName.LATEST).send().getBalance());
+        }
+
+        assertTrue("calls to the dead node: " + deadCalls.size(), deadCalls.size() <= 2);
+        assertEquals(10, healthyCalls.size());
+    }
+
+    @Test
+    public void aRawTransactionIsNotSentAgainToAnotherNode() throws IOException {
+        List<String> deadCalls = Collections.synchronizedList(new ArrayList<>());
+        List<String> healthyCalls = Collections.synchronizedList(new ArrayList<>());
+        Web3j web3j = Web3j.build(RpcEndpointPool.forUrls(Arrays.asList(start(deadCalls, false), start(healthyCalls, true))));
+
+        try {
+            web3j.ethSendRawTransaction("0x01").send();
+            fail("the IO error should be given to the caller");
+        } catch (IOException e) {
+            //expected
+        }
+
+        assertEquals(Collections.singletonList("eth_sendRawTransaction"), deadCalls);
+        assertEquals(Collections.emptyList(), healthyCalls);
+    }
+
+    @Test
+    public void theNonceOfAnAccountIsAlwaysReadOnTheSameNode() throws IOException {
+        List<String> firstMethods = Collections.synchronizedList(new ArrayList<>());
+        List<String> secondMethods = Collections.synchronizedList(new ArrayList<>());
+        Web3j web3j = Web3j.build(RpcEndpointPool.forUrls(Arrays.asList(start(firstMethods, true), start(secondMethods, true))));
+
+        for (int i = 0; i < 5; i++) {
+            web3j.ethGetTransactionCount(ACCOUNT, DefaultBlockParameterName.LATEST).send();
+            web3j.ethGasPrice().send();
+        }
+
+        int firstNonceReads = Collections.frequency(firstMethods, "eth_getTransactionCount");
+        int secondNonceReads = Collections.frequency(secondMethods, "eth_getTransactionCount");
+        assertEquals(5, Math.max(firstNonceReads, secondNonceReads));
+        assertEquals(0, Math.min(firstNonceReads, secondNonceReads));
+    }
+
+    private String start(List<String> methods, boolean healthy) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            JsonNode request = mapper.readTree(exchange.getRequestBody());
+            methods.add(request.get("method").asText());
+            ObjectNode response = mapper.createObjectNode()
+                    .put("jsonrpc", "2.0")
+                    .put("id", request.get("id").asLong())
+                    .put("result", "0x0a");
+            byte[] body = mapper.writeValueAsBytes(response);
+            exchange.sendResponseHeaders(healthy ? 200 : 500, body.length);
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(body);
+            }
+        });
+        server.start();
+        servers.add(server);
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+}
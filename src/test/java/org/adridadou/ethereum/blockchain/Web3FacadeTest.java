@@ -1,19 +1,50 @@
 package org.adridadou.ethereum.blockchain;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.sun.net.httpserver.HttpServer;
+import org.adridadou.ethereum.rpc.JsonRpcBatchService;
 import org.adridadou.ethereum.rpc.Web3JFacade;
 import org.adridadou.ethereum.converters.output.OutputTypeHandler;
 import org.adridadou.ethereum.values.EthAddress;
+import org.adridadou.ethereum.values.EthData;
+import org.adridadou.ethereum.values.EthHash;
+import org.adridadou.ethereum.values.EthValue;
 import org.adridadou.ethereum.values.config.ChainId;
+import org.adridadou.exception.EthereumApiException;
+import org.adridadou.exception.LogRangeTooLargeException;
+import org.apache.commons.io.IOUtils;
+import org.ethereum.core.CallTransaction;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.web3j.protocol.Web3j;
 import org.web3j.protocol.core.DefaultBlockParameterName;
 import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
+import org.web3j.protocol.core.methods.request.EthFilter;
+import org.web3j.protocol.core.methods.response.EthBlockNumber;
 import org.web3j.protocol.core.methods.response.EthGetBalance;
+import org.web3j.protocol.core.methods.response.EthLog;
+import org.web3j.protocol.http.HttpService;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -24,6 +55,7 @@ public class Web3FacadeTest {
     private final Web3j web3j = mock(Web3j.class);
     private final Web3JFacade web3Facade = new Web3JFacade(web3j, new OutputTypeHandler(), ChainId.id(1));
     private final EthAddress address = EthAddress.of("0x00394857372832");
+    private final ObjectMapper mapper = new ObjectMapper();
 
     @Test
     public void test_getBalance() throws IOException {
@@ -33,4 +65,201 @@ public class Web3FacadeTest {
         when(web3j.ethGetBalance(address.withLeading0x(), DefaultBlockParameterName.LATEST)).thenReturn(req);
         assertEquals(response, web3Facade.getBalance(address));
     }
+
+    @Test
+    public void test_sendTransactionsInOneBatch() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        AtomicReference<String> received = new AtomicReference<>();
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            calls.incrementAndGet();
+            received.set(IOUtils.toString(exchange.getRequestBody(), StandardCharsets.UTF_8));
+            byte[] response = ("[{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":\"0x02\"}," +
+                    "{\"jsonrpc\":\"2.0\",\"id\":0,\"result\":\"0x01\"}]").getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, response.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(response);
+            }
+        });
+        server.start();
+        try {
+            String url = "http://localhost:" + server.getAddress().getPort();
+            Web3JFacade facade = new Web3JFacade(Web3j.build(new HttpService(url)), new OutputTypeHandler(), ChainId.id(1), new JsonRpcBatchService(url));
+            List<CompletableFuture<EthHash>> hashes = facade.sendTransactions(Arrays.asList(EthData.of("0x0a"), EthData.of("0x0b")));
+
+            assertEquals(1, calls.get());
+            assertEquals(2, received.get().split("eth_sendRawTransaction").length - 1);
+            assertEquals(EthHash.of("0x01"), hashes.get(0).get());
+            assertEquals(EthHash.of("0x02"), hashes.get(1).get());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void test_anUnreadableResponseOnlyFailsItsOwnTransaction() throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            byte[] response = ("[{\"jsonrpc\":\"2.0\",\"id\":0,\"result\":{\"unexpected\":true}}," +
+                    "{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":\"0x02\"}]").getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, response.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(response);
+            }
+        });
+        server.start();
+        try {
+            String url = "http://localhost:" + server.getAddress().getPort();
+            Web3JFacade facade = new Web3JFacade(Web3j.build(new HttpService(url)), new OutputTypeHandler(), ChainId.id(1), new JsonRpcBatchService(url));
+            List<CompletableFuture<EthHash>> hashes = facade.sendTransactions(Arrays.asList(EthData.of("0x0a"), EthData.of("0x0b"), EthData.of("0x0c")));
+
+            assertTrue(hashes.get(0).isCompletedExceptionally());
+            assertEquals(EthHash.of("0x02"), hashes.get(1).get());
+            assertTrue(hashes.get(2).isCompletedExceptionally());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void test_requestsWithinTheWindowAreSentInOneBatch() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            calls.incrementAndGet();
+            ArrayNode response = mapper.createArrayNode();
+            mapper.readTree(exchange.getRequestBody()).forEach(request -> response.addObject()
+                    .put("jsonrpc", "2.0")
+                    .put("id", request.get("id").asLong())
+                    .put("result", "0x0a"));
+            byte[] body = mapper.writeValueAsBytes(response);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(body);
+            }
+        });
+        server.start();
+        try {
+            String url = "http://localhost:" + server.getAddress().getPort();
+            Web3JFacade facade = new Web3JFacade(Web3j.build(new HttpService(url)), new OutputTypeHandler(), ChainId.id(1), new JsonRpcBatchService(url))
+                    .batchWindow(200, 10);
+            CompletableFuture<BigInteger> first = CompletableFuture.supplyAsync(() -> facade.getBalance(address).getBalance());
+            CompletableFuture<BigInteger> second = CompletableFuture.supplyAsync(() -> facade.getTransactionCount(address));
+
+            assertEquals(BigInteger.TEN, first.get());
+            assertEquals(BigInteger.TEN, second.get());
+            assertEquals(1, calls.get());
+
+            Map<EthAddress, EthValue> balances = facade.getBalances(Arrays.asList(address, EthAddress.of("0x01")));
+            assertEquals(2, calls.get());
+            assertEquals(EthValue.wei(10), balances.get(EthAddress.of("0x01")));
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void test_eventFiltersByTopicsFromTheGivenBlock() throws IOException {
+        CallTransaction.Function event = mock(CallTransaction.Function.class);
+        when(event.encodeSignatureLong()).thenReturn(new byte[]{1});
+        when(event.decodeEventData(any())).thenReturn(new Object[]{"value"});
+
+        org.web3j.protocol.core.methods.response.EthFilter filterResponse = new org.web3j.protocol.core.methods.response.EthFilter();
+        filterResponse.setResult("0x07");
+        EthLog logs = new EthLog();
+        logs.setResult(Collections.singletonList(new EthLog.LogObject(false, "0x0", "0x0", "0x01", "0x02", "0x05", address.withLeading0x(), "0x", "", Collections.emptyList())));
+        Request newFilter = mock(Request.class);
+        when(newFilter.send()).thenReturn(filterResponse);
+        Request filterLogs = mock(Request.class);
+        when(filterLogs.send()).thenReturn(logs);
+        ArgumentCaptor<EthFilter> filter = ArgumentCaptor.forClass(EthFilter.class);
+        when(web3j.ethNewFilter(filter.capture())).thenReturn(newFilter);
+        when(web3j.ethGetFilterLogs(BigInteger.valueOf(7))).thenReturn(filterLogs);
+        when(web3j.ethUninstallFilter(BigInteger.valueOf(7))).thenReturn(mock(Request.class));
+
+        MyEvent result = web3Facade.event(address, event, Arrays.asList(null, EthData.of("0x02")), 5, MyEvent.class).toBlocking().first();
+
+        assertEquals("value", result.value);
+        assertEquals("0x5", filter.getValue().getFromBlock().getValue());
+        assertEquals(3, filter.getValue().getTopics().size());
+        verify(web3j).ethUninstallFilter(BigInteger.valueOf(7));
+    }
+
+    @Test
+    public void test_anEventLookedUpByNameStartsFromTheCurrentBlock() throws IOException {
+        CallTransaction.Function event = mock(CallTransaction.Function.class);
+        event.type = CallTransaction.FunctionType.event;
+        event.name = "Stored";
+        when(event.encodeSignatureLong()).thenReturn(new byte[]{1});
+        CallTransaction.Contract contract = mock(CallTransaction.Contract.class);
+        contract.functions = new CallTransaction.Function[]{event};
+
+        EthBlockNumber blockNumber = new EthBlockNumber();
+        blockNumber.setResult("0x2a");
+        Request blockNumberRequest = mock(Request.class);
+        when(blockNumberRequest.send()).thenReturn(blockNumber);
+        when(web3j.ethBlockNumber()).thenReturn(blockNumberRequest);
+        ArgumentCaptor<EthFilter> filter = ArgumentCaptor.forClass(EthFilter.class);
+        when(web3j.ethNewFilter(filter.capture())).thenReturn(mock(Request.class));
+
+        web3Facade.event(address, "Stored", contract, MyEvent.class).subscribe(result -> {}, error -> {}).unsubscribe();
+
+        assertEquals("0x2a", filter.getValue().getFromBlock().getValue());
+    }
+
+    @Test
+    public void test_aLogReturnedByTheFilterAndItsFirstChangesIsEmittedOnce() throws IOException {
+        org.web3j.protocol.core.methods.response.EthFilter filterResponse = new org.web3j.protocol.core.methods.response.EthFilter();
+        filterResponse.setResult("0x07");
+        EthLog.LogObject first = new EthLog.LogObject(false, "0x0", "0x0", "0x01", "0x02", "0x05", address.withLeading0x(), "0x01", "", Collections.emptyList());
+        EthLog.LogObject second = new EthLog.LogObject(false, "0x1", "0x0", "0x01", "0x02", "0x05", address.withLeading0x(), "0x02", "", Collections.emptyList());
+        EthLog logs = new EthLog();
+        logs.setResult(Collections.singletonList(first));
+        EthLog changes = new EthLog();
+        changes.setResult(Arrays.asList(first, second));
+        Request newFilter = mock(Request.class);
+        when(newFilter.send()).thenReturn(filterResponse);
+        Request filterLogs = mock(Request.class);
+        when(filterLogs.send()).thenReturn(logs);
+        Request filterChanges = mock(Request.class);
+        when(filterChanges.send()).thenReturn(changes);
+        when(web3j.ethNewFilter(any())).thenReturn(newFilter);
+        when(web3j.ethGetFilterLogs(BigInteger.valueOf(7))).thenReturn(filterLogs);
+        when(web3j.ethGetFilterChanges(BigInteger.valueOf(7))).thenReturn(filterChanges);
+        when(web3j.ethUninstallFilter(BigInteger.valueOf(7))).thenReturn(mock(Request.class));
+
+        List<String> data = web3Facade.observeLogs(new EthFilter()).take(2).map(log -> log.getData()).toList().toBlocking().single();
+
+        assertEquals(Arrays.asList("0x01", "0x02"), data);
+    }
+
+    @Test
+    public void test_onlyATooLargeRangeIsReportedAsSuch() throws IOException {
+        assertEquals(LogRangeTooLargeException.class, getLogsError(-32005, "query returned more than 10000 results").getClass());
+        assertEquals(LogRangeTooLargeException.class, getLogsError(-32602, "Log response size exceeded. You can make eth_getLogs requests with up to a 2K block range").getClass());
+        assertEquals(EthereumApiException.class, getLogsError(-32005, "daily request count exceeded, request rate limited").getClass());
+        assertEquals(EthereumApiException.class, getLogsError(-32000, "limit exceeded").getClass());
+    }
+
+    private RuntimeException getLogsError(int code, String message) throws IOException {
+        EthLog response = new EthLog();
+        response.setError(new Response.Error(code, message));
+        Request request = mock(Request.class);
+        when(request.send()).thenReturn(response);
+        when(web3j.ethGetLogs(any())).thenReturn(request);
+        try {
+            web3Facade.getLogs(address, Collections.singletonList(EthData.of("0x01")), 0, 10);
+        } catch (RuntimeException e) {
+            return e;
+        }
+        throw new AssertionError("getLogs should have failed with " + message);
+    }
+
+    public static class MyEvent {
+        private final String value;
+
+        public MyEvent(String value) {
+            this.value = value;
+        }
+    }
 }
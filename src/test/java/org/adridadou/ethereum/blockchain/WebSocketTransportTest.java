@@ -0,0 +1,188 @@
+package org.adridadou.ethereum.blockchain;
+
+import org.adridadou.ethereum.rpc.WebSocketTransport;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.*;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Created by davidroon on 19.04.17.
+ * This code is released under Apache 2 license
+ */
+public class WebSocketTransportTest {
+    private final ServerSocket server;
+
+    public WebSocketTransportTest() throws IOException {
+        server = new ServerSocket(0);
+    }
+
+    @After
+    public void stopServer() throws IOException {
+        server.close();
+    }
+
+    @Test
+    public void messagesAreExchangedAndThePingsAnswered() throws Exception {
+        CompletableFuture<String> received = new CompletableFuture<>();
+        CompletableFuture<Integer> pong = new CompletableFuture<>();
+        serve(true, (input, output) -> {
+            received.complete(new String(readFrame(input, 0x1), StandardCharsets.UTF_8));
+            writeFrame(output, 0x9, new byte[]{1, 2});
+            pong.complete(readFrame(input, 0xA).length);
+            //a message in two frames
+            writeFrame(output, 0x1, "{\"id\":1,".getBytes(StandardCharsets.UTF_8), false);
+            writeFrame(output, 0x0, "\"result\":\"0x10\"}".getBytes(StandardCharsets.UTF_8), true);
+        });
+
+        WebSocketTransport transport = new WebSocketTransport(URI.create("ws://localhost:" + server.getLocalPort() + "/"));
+        transport.write("{\"id\":1,\"method\":\"eth_blockNumber\"}");
+
+        assertEquals("{\"id\":1,\"method\":\"eth_blockNumber\"}", received.get(5, TimeUnit.SECONDS));
+        assertEquals("{\"id\":1,\"result\":\"0x10\"}", transport.read());
+        assertEquals(Integer.valueOf(2), pong.get(5, TimeUnit.SECONDS));
+        transport.close();
+    }
+
+    @Test
+    public void aQuietNodeIsPingedBeforeTheReadGoesOn() throws Exception {
+        serve(true, (input, output) -> {
+            readFrame(input, 0x9);
+            writeFrame(output, 0xA, new byte[0]);
+            writeFrame(output, 0x1, "{\"id\":1}".getBytes(StandardCharsets.UTF_8));
+        });
+
+        WebSocketTransport transport = new WebSocketTransport(URI.create("ws://localhost:" + server.getLocalPort() + "/"), 200);
+
+        assertEquals("{\"id\":1}", transport.read());
+        transport.close();
+    }
+
+    @Test
+    public void aNodeThatDoesNotAnswerThePingFailsTheRead() throws Exception {
+        serve(true, (input, output) -> readFrame(input, 0x9));
+
+        WebSocketTransport transport = new WebSocketTransport(URI.create("ws://localhost:" + server.getLocalPort() + "/"), 200);
+
+        long start = System.currentTimeMillis();
+        try {
+            transport.read();
+            fail("the connection is lost");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("has not answered"));
+        }
+        assertTrue(System.currentTimeMillis() - start < 5_000);
+        transport.close();
+    }
+
+    @Test
+    public void aWrongAcceptHeaderFailsTheHandshake() throws Exception {
+        serve(false, (input, output) -> {
+        });
+
+        try {
+            new WebSocketTransport(URI.create("ws://localhost:" + server.getLocalPort() + "/"));
+            fail("the handshake should fail");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("Sec-WebSocket-Accept"));
+        }
+    }
+
+    private void serve(boolean validAccept, Connection connection) {
+        Thread thread = new Thread(() -> {
+            try (Socket socket = server.accept()) {
+                DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                OutputStream output = socket.getOutputStream();
+                String key = null;
+                for (String line = readLine(input); !line.isEmpty(); line = readLine(input)) {
+                    if (line.startsWith("Sec-WebSocket-Key:")) {
+                        key = line.substring("Sec-WebSocket-Key:".length()).trim();
+                    }
+                }
+                String accept = validAccept ? accept(key) : accept("another key");
+                output.write(("HTTP/1.1 101 Switching Protocols\r\n" +
+                        "Upgrade: websocket\r\n" +
+                        "Connection: Upgrade\r\n" +
+                        "sec-websocket-accept: " + accept + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+                output.flush();
+                connection.handle(input, output);
+                //waits for the client to close the connection
+                while (input.read() >= 0) {
+                    //nothing to read
+                }
+            } catch (Exception e) {
+                //the client has closed the connection
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private static String accept(String key) throws Exception {
+        byte[] digest = MessageDigest.getInstance("SHA-1").digest((key + "258EAFA5-E914-47DA-95CA-C5AB0DC85B11").getBytes(StandardCharsets.US_ASCII));
+        return Base64.getEncoder().encodeToString(digest);
+    }
+
+    private static String readLine(DataInputStream input) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int c;
+        while ((c = input.read()) != '\n') {
+            if (c < 0) {
+                throw new EOFException();
+            }
+            if (c != '\r') {
+                line.append((char) c);
+            }
+        }
+        return line.toString();
+    }
+
+    /**
+     * the frames of a client are masked
+     */
+    private static byte[] readFrame(DataInputStream input, int expectedOpcode) throws IOException {
+        int first = input.readUnsignedByte();
+        assertEquals(expectedOpcode, first & 0x0F);
+        int second = input.readUnsignedByte();
+        assertTrue("a client frame is masked", (second & 0x80) != 0);
+        int length = second & 0x7F;
+        if (length == 126) {
+            length = input.readUnsignedShort();
+        }
+        byte[] mask = new byte[4];
+        input.readFully(mask);
+        byte[] payload = new byte[length];
+        input.readFully(payload);
+        for (int i = 0; i < payload.length; i++) {
+            payload[i] ^= mask[i % 4];
+        }
+        return payload;
+    }
+
+    private static void writeFrame(OutputStream output, int opcode, byte[] payload) throws IOException {
+        writeFrame(output, opcode, payload, true);
+    }
+
+    private static void writeFrame(OutputStream output, int opcode, byte[] payload, boolean fin) throws IOException {
+        output.write((fin ? 0x80 : 0) | opcode);
+        output.write(payload.length);
+        output.write(payload);
+        output.flush();
+    }
+
+    private interface Connection {
+        void handle(DataInputStream input, OutputStream output) throws IOException;
+    }
+}
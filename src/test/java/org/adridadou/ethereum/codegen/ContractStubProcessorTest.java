@@ -0,0 +1,90 @@
+package org.adridadou.ethereum.codegen;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.tools.*;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Created by davidroon on 07.04.17.
+ * This code is released under Apache 2 license
+ */
+public class ContractStubProcessorTest {
+    private static final String ABI = "[{\"constant\":true,\"inputs\":[],\"name\":\"getValue\",\"outputs\":[{\"name\":\"\",\"type\":\"uint256\"}],\"payable\":false,\"type\":\"function\"}," +
+            "{\"constant\":false,\"inputs\":[{\"name\":\"value\",\"type\":\"uint256\"}],\"name\":\"setValue\",\"outputs\":[],\"payable\":false,\"type\":\"function\"}," +
+            "{\"constant\":true,\"inputs\":[{\"name\":\"key\",\"type\":\"uint256\"}],\"name\":\"find\",\"outputs\":[{\"name\":\"\",\"type\":\"uint256\"}],\"payable\":false,\"type\":\"function\"}," +
+            "{\"constant\":false,\"inputs\":[{\"name\":\"key\",\"type\":\"string\"}],\"name\":\"find\",\"outputs\":[{\"name\":\"\",\"type\":\"uint256\"}],\"payable\":false,\"type\":\"function\"}]";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void stubIsGeneratedForAMatchingInterface() throws IOException {
+        boolean success = compile("package test;\n" +
+                "@org.adridadou.ethereum.codegen.GenerateContractStub(abi = \"test.abi\")\n" +
+                "public interface Storage {\n" +
+                "    Integer getValue();\n" +
+                "    java.util.concurrent.CompletableFuture<Void> setValue(Integer value);\n" +
+                "}\n");
+
+        assertTrue(success);
+        assertTrue(new File(folder.getRoot(), "classes/test/StorageContractStub.class").exists());
+        String stub = new String(Files.readAllBytes(new File(folder.getRoot(), "classes/test/StorageContractStub.java").toPath()), StandardCharsets.UTF_8);
+        //each method calls the entry point of its kind with its own argument converters
+        assertTrue(stub, stub.contains("return (java.lang.Integer) invoker0.constant();"));
+        assertTrue(stub, stub.contains("return (java.util.concurrent.CompletableFuture<java.lang.Void>) invoker1.future(argument1_0.apply(arg0));"));
+    }
+
+    @Test
+    public void theReturnTypesOfOverloadsWithTheSameArityAreLeftToTheRuntimeCheck() throws IOException {
+        boolean success = compile("package test;\n" +
+                "@org.adridadou.ethereum.codegen.GenerateContractStub(abi = \"test.abi\")\n" +
+                "public interface Storage {\n" +
+                "    Integer find(Integer key);\n" +
+                "    java.util.concurrent.CompletableFuture<Integer> find(String key);\n" +
+                "}\n");
+
+        assertTrue(success);
+    }
+
+    @Test
+    public void mismatchFailsTheCompilation() throws IOException {
+        boolean success = compile("package test;\n" +
+                "@org.adridadou.ethereum.codegen.GenerateContractStub(abi = \"test.abi\")\n" +
+                "public interface Storage {\n" +
+                "    java.util.concurrent.CompletableFuture<Integer> getValue();\n" +
+                "    void reset();\n" +
+                "}\n");
+
+        assertFalse(success);
+    }
+
+    private boolean compile(String source) throws IOException {
+        File sources = folder.newFolder("sources", "test");
+        File classes = folder.newFolder("classes");
+        File sourceFile = new File(sources, "Storage.java");
+        Files.write(sourceFile.toPath(), source.getBytes(StandardCharsets.UTF_8));
+        Files.write(new File(classes, "test.abi").toPath(), ABI.getBytes(StandardCharsets.UTF_8));
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8)) {
+            fileManager.setLocation(StandardLocation.CLASS_OUTPUT, Collections.singletonList(classes));
+            fileManager.setLocation(StandardLocation.SOURCE_OUTPUT, Collections.singletonList(classes));
+            JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, null,
+                    Arrays.asList("-classpath", System.getProperty("java.class.path")), null,
+                    fileManager.getJavaFileObjects(sourceFile));
+            task.setProcessors(Collections.singletonList(new ContractStubProcessor()));
+            return task.call();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package org.adridadou.ethereum.converters.input;
+
+import org.adridadou.ethereum.values.EthAddress;
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Created by davidroon on 12.04.17.
+ * This code is released under Apache 2 license
+ */
+public class InputTypeHandlerTest {
+    private final InputTypeHandler handler = new InputTypeHandler();
+    private final EthAddress address = EthAddress.of("0x39ee4c28e09ce6d908643dbc5cbb51a6a9dbd1e4");
+
+    @Test
+    public void arraysAndCollectionsAreConvertedElementWise() throws Exception {
+        Function<Object, Object> list = handler.getMarshaller(method("addresses").getGenericParameterTypes()[0]);
+        Function<Object, Object> array = handler.getMarshaller(method("addresses").getGenericParameterTypes()[1]);
+
+        assertArrayEquals(new Object[]{address.address, address.address}, (Object[]) list.apply(Arrays.asList(address, address)));
+        assertArrayEquals(new Object[]{address.address}, (Object[]) array.apply(new EthAddress[]{address}));
+    }
+
+    @Test
+    public void valuesWithoutConverterAreNotCopied() throws Exception {
+        List<BigInteger> values = Arrays.asList(BigInteger.ONE, BigInteger.TEN);
+
+        assertSame(values, handler.getMarshaller(method("values").getGenericParameterTypes()[0]).apply(values));
+    }
+
+    @Test
+    public void undeclaredTypesAreConvertedWithTheirActualClass() throws Exception {
+        Function<Object, Object> marshaller = handler.getMarshaller(method("anything").getGenericParameterTypes()[0]);
+
+        assertArrayEquals(address.address, (byte[]) marshaller.apply(address));
+        assertArrayEquals(new Object[]{address.address}, (Object[]) marshaller.apply(new Object[]{address}));
+    }
+
+    private Method method(String name) {
+        return Arrays.stream(Contract.class.getMethods()).filter(method -> method.getName().equals(name)).findFirst().get();
+    }
+
+    private interface Contract {
+        void addresses(List<EthAddress> list, EthAddress[] array);
+
+        void values(List<BigInteger> values);
+
+        void anything(Object value);
+    }
+}
@@ -0,0 +1,67 @@
+package org.adridadou.ethereum.converters.output;
+
+import org.junit.Test;
+
+import java.lang.reflect.Type;
+import java.math.BigInteger;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Created by davidroon on 11.04.17.
+ * This code is released under Apache 2 license
+ */
+public class OutputTypeHandlerTest {
+    private final OutputTypeHandler handler = new OutputTypeHandler();
+
+    @Test
+    public void specificTypesAreBuiltWithTheirConstructor() {
+        for (int i = 0; i < 3; i++) {
+            Entry entry = handler.convertSpecificType(new Object[]{BigInteger.valueOf(i), "name"}, Entry.class);
+            assertEquals(i, entry.id);
+            assertEquals("name", entry.name);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void theNumberOfValuesIsChecked() {
+        handler.convertSpecificType(new Object[]{BigInteger.ONE}, Entry.class);
+    }
+
+    @Test
+    public void addedConvertersAreUsedForTypesAlreadyConverted() {
+        Id converted = new Id(42);
+        assertEquals(1, ((Id) handler.convertResult(BigInteger.ONE, Id.class, Id.class)).id);
+
+        handler.addConverters(new OutputTypeConverter() {
+            @Override
+            public boolean isOfType(Class<?> cls) {
+                return Id.class.equals(cls);
+            }
+
+            @Override
+            public Object convert(Object obj, Type genericType) {
+                return converted;
+            }
+        });
+        assertEquals(converted, handler.convertResult(BigInteger.ONE, Id.class, Id.class));
+    }
+
+    public static class Entry {
+        private final long id;
+        private final String name;
+
+        public Entry(long id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+    }
+
+    public static class Id {
+        private final long id;
+
+        public Id(long id) {
+            this.id = id;
+        }
+    }
+}
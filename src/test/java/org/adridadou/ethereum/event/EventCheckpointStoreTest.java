@@ -0,0 +1,47 @@
+package org.adridadou.ethereum.event;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Created by davidroon on 15.04.17.
+ * This code is released under Apache 2 license
+ */
+public class EventCheckpointStoreTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void theLastAckIsReadAgainAfterARestartAndOlderAcksAreIgnored() throws IOException {
+        Path file = folder.newFile().toPath();
+        try (EventCheckpointStore store = new EventCheckpointStore(file)) {
+            store.ack("transfers", new EventCursor(10, 2));
+            store.ack("transfers", new EventCursor(12, 0));
+            store.ack("transfers", new EventCursor(11, 5));
+            store.ack("approvals", new EventCursor(3, 1));
+        }
+        //a line cut by a crash
+        Files.write(file, "transfers 20".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        try (EventCheckpointStore store = new EventCheckpointStore(file)) {
+            assertEquals(Optional.of(new EventCursor(12, 0)), store.get("transfers"));
+            assertEquals(Optional.of(new EventCursor(3, 1)), store.get("approvals"));
+            assertEquals(Optional.empty(), store.get("unknown"));
+            store.ack("transfers", new EventCursor(13, 0));
+        }
+
+        try (EventCheckpointStore store = new EventCheckpointStore(file)) {
+            assertEquals(Optional.of(new EventCursor(13, 0)), store.get("transfers"));
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package org.adridadou.ethereum.event;
+
+import org.adridadou.ethereum.values.EthAddress;
+import org.adridadou.ethereum.values.EthData;
+import org.adridadou.ethereum.values.EthHash;
+import org.ethereum.core.CallTransaction;
+import org.ethereum.vm.DataWord;
+import org.ethereum.vm.LogInfo;
+import org.junit.Test;
+import rx.Subscription;
+import rx.observers.TestSubscriber;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Created by davidroon on 13.04.17.
+ * This code is released under Apache 2 license
+ */
+public class EventDispatcherTest {
+    private final EthereumEventHandler eventHandler = new EthereumEventHandler();
+    private final EventDispatcher dispatcher = new EventDispatcher(eventHandler);
+    private final EthAddress contract = EthAddress.of("0x0a");
+    private final byte[] topic = new byte[]{1, 2, 3};
+
+    @Test
+    public void eachLogIsDecodedOnceForAllTheObservers() {
+        CallTransaction.Function event = event(topic);
+        Object[] values = new Object[]{"value"};
+        when(event.decodeEventData(any())).thenReturn(values);
+        TestSubscriber<Object[]> first = new TestSubscriber<>();
+        TestSubscriber<Object[]> second = new TestSubscriber<>();
+        dispatcher.observe(contract, event).subscribe(first);
+        dispatcher.observe(contract, event).subscribe(second);
+
+        eventHandler.onPendingTransactionUpdate(transaction(log(contract, topic), log(EthAddress.of("0x0b"), topic), log(contract, new byte[]{4})));
+
+        first.assertValues(values);
+        second.assertValues(values);
+        verify(event, times(1)).decodeEventData(any());
+    }
+
+    @Test
+    public void logsAreNotDecodedWithoutObservers() {
+        CallTransaction.Function event = event(topic);
+        dispatcher.observe(contract, event).subscribe(new TestSubscriber<>()).unsubscribe();
+
+        eventHandler.onPendingTransactionUpdate(transaction(log(contract, topic)));
+
+        verify(event, times(0)).decodeEventData(any());
+    }
+
+    @Test
+    public void theRouteIsRemovedWithItsLastObserver() {
+        CallTransaction.Function event = event(topic);
+        Subscription first = dispatcher.observe(contract, event).subscribe(new TestSubscriber<>());
+        Subscription second = dispatcher.observe(contract, event).subscribe(new TestSubscriber<>());
+        assertEquals(1, dispatcher.getRouteCount());
+
+        first.unsubscribe();
+        assertEquals(1, dispatcher.getRouteCount());
+
+        second.unsubscribe();
+        assertEquals(0, dispatcher.getRouteCount());
+    }
+
+    private CallTransaction.Function event(byte[] topic) {
+        CallTransaction.Function event = mock(CallTransaction.Function.class);
+        when(event.encodeSignatureLong()).thenReturn(topic);
+        return event;
+    }
+
+    private LogInfo log(EthAddress address, byte[] topic) {
+        DataWord topicWord = mock(DataWord.class);
+        when(topicWord.getData()).thenReturn(topic);
+        LogInfo log = mock(LogInfo.class);
+        when(log.getAddress()).thenReturn(address.address);
+        when(log.getTopics()).thenReturn(Collections.singletonList(topicWord));
+        when(log.getData()).thenReturn(new byte[0]);
+        return log;
+    }
+
+    private OnTransactionParameters transaction(LogInfo... logs) {
+        TransactionReceipt receipt = new TransactionReceipt(EthHash.of("0x01"), EthAddress.of("0x01"), contract, EthAddress.empty(), "", EthData.empty(), true);
+        return new OnTransactionParameters(receipt, TransactionStatus.Executed, Arrays.asList(logs));
+    }
+}
@@ -0,0 +1,147 @@
+package org.adridadou.ethereum.event;
+
+import org.adridadou.ethereum.values.EthAddress;
+import org.adridadou.ethereum.values.EthData;
+import org.adridadou.ethereum.values.EthHash;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Created by davidroon on 22.03.17.
+ * This code is released under Apache 2 license
+ */
+public class PendingTransactionRegistryTest {
+    private final EthereumEventHandler eventHandler = new EthereumEventHandler();
+    private final PendingTransactionRegistry registry = new PendingTransactionRegistry(eventHandler, 16);
+    private final EthHash hash = EthHash.of("0x0102");
+
+    @Test
+    public void receiptInBlockCompletesTheFuture() throws ExecutionException, InterruptedException {
+        CompletableFuture<TransactionReceipt> result = registry.register(hash, 10);
+        TransactionReceipt receipt = receipt(hash);
+
+        eventHandler.onBlock(new OnBlockParameters(11, Collections.singletonList(receipt(EthHash.of("0x03")))));
+        assertFalse(result.isDone());
+
+        eventHandler.onBlock(new OnBlockParameters(12, Collections.singletonList(receipt)));
+        assertEquals(receipt, result.get());
+        assertEquals(0, registry.size());
+    }
+
+    @Test
+    public void droppedTransactionFailsTheFuture() {
+        CompletableFuture<TransactionReceipt> result = registry.register(hash, 10);
+
+        eventHandler.onPendingTransactionUpdate(new OnTransactionParameters(receipt(hash), TransactionStatus.Dropped, new ArrayList<>()));
+        assertTrue(result.isCompletedExceptionally());
+        assertFalse(registry.isPending(hash));
+    }
+
+    @Test
+    public void transactionNotIncludedAfterTheLimitFailsTheFuture() {
+        CompletableFuture<TransactionReceipt> result = registry.register(hash, 10);
+
+        eventHandler.onBlock(new OnBlockParameters(26, Collections.emptyList()));
+        assertFalse(result.isDone());
+
+        eventHandler.onBlock(new OnBlockParameters(27, Collections.emptyList()));
+        assertTrue(result.isCompletedExceptionally());
+    }
+
+    @Test
+    public void replacementIsFollowedToo() throws ExecutionException, InterruptedException {
+        CompletableFuture<TransactionReceipt> result = registry.register(hash, 10);
+        EthHash replacement = EthHash.of("0x0103");
+        assertTrue(registry.replace(hash, replacement, 20, () -> assertTrue(registry.isPending(replacement))));
+
+        eventHandler.onPendingTransactionUpdate(new OnTransactionParameters(receipt(hash), TransactionStatus.Dropped, new ArrayList<>()));
+        eventHandler.onBlock(new OnBlockParameters(27, Collections.emptyList()));
+        assertFalse(result.isDone());
+
+        TransactionReceipt receipt = receipt(replacement);
+        eventHandler.onBlock(new OnBlockParameters(28, Collections.singletonList(receipt)));
+        assertEquals(receipt, result.get());
+        assertEquals(0, registry.size());
+    }
+
+    @Test
+    public void aReplacementIncludedBeforeItsBroadcastReturnsIsSeen() throws ExecutionException, InterruptedException {
+        CompletableFuture<TransactionReceipt> result = registry.register(hash, 10);
+        EthHash replacement = EthHash.of("0x0103");
+        TransactionReceipt receipt = receipt(replacement);
+
+        assertTrue(registry.replace(hash, replacement, 20, () -> eventHandler.onBlock(new OnBlockParameters(21, Collections.singletonList(receipt)))));
+        assertEquals(receipt, result.get());
+        assertEquals(0, registry.size());
+    }
+
+    @Test
+    public void aFailedBroadcastIsNotFollowed() {
+        CompletableFuture<TransactionReceipt> result = registry.register(hash, 10);
+        EthHash replacement = EthHash.of("0x0103");
+
+        try {
+            registry.replace(hash, replacement, 20, () -> {
+                throw new RuntimeException("replacement underpriced");
+            });
+        } catch (RuntimeException e) {
+            assertEquals("replacement underpriced", e.getMessage());
+        }
+        assertFalse(registry.isPending(replacement));
+        assertTrue(registry.isPending(hash));
+        assertFalse(result.isDone());
+        assertFalse(registry.replace(EthHash.of("0x09"), replacement, 20, () -> {
+            throw new IllegalStateException("nothing should be broadcast");
+        }));
+    }
+
+    @Test
+    public void anEntryWithoutReceiptDoesNotCompleteTheFuture() throws ExecutionException, InterruptedException {
+        CompletableFuture<TransactionReceipt> result = registry.register(hash, 10);
+
+        eventHandler.onBlock(new OnBlockParameters(11, Collections.singletonList(TransactionReceipt.withoutReceipt(hash, EthAddress.of("0x01"), EthAddress.of("0x02"), BigInteger.ONE))));
+        assertFalse(result.isDone());
+
+        TransactionReceipt receipt = receipt(hash);
+        eventHandler.onBlock(new OnBlockParameters(12, Collections.singletonList(receipt)));
+        assertEquals(receipt, result.get());
+    }
+
+    @Test
+    public void everyHashNotFollowedAnymoreIsForgotten() {
+        List<EthHash> forgotten = new ArrayList<>();
+        PendingTransactionRegistry registry = new PendingTransactionRegistry(eventHandler, 16, forgotten::add);
+        EthHash replacement = EthHash.of("0x0103");
+        EthHash dropped = EthHash.of("0x0104");
+        EthHash timedOut = EthHash.of("0x0105");
+        registry.register(hash, 10);
+        registry.replace(hash, replacement, 10, () -> {});
+        registry.register(dropped, 10);
+        registry.register(timedOut, 5);
+
+        //the replacement is included, the original will never be
+        eventHandler.onBlock(new OnBlockParameters(11, Collections.singletonList(receipt(replacement))));
+        eventHandler.onPendingTransactionUpdate(new OnTransactionParameters(receipt(dropped), TransactionStatus.Dropped, new ArrayList<>()));
+        eventHandler.onBlock(new OnBlockParameters(22, Collections.emptyList()));
+
+        assertEquals(new HashSet<>(Arrays.asList(hash, replacement, dropped, timedOut)), new HashSet<>(forgotten));
+        assertEquals(4, forgotten.size());
+        assertEquals(0, registry.size());
+    }
+
+    private TransactionReceipt receipt(EthHash hash) {
+        return new TransactionReceipt(hash, EthAddress.of("0x01"), EthAddress.of("0x02"), EthAddress.empty(), "", EthData.empty(), true);
+    }
+}
@@ -0,0 +1,91 @@
+package org.adridadou.ethereum.gasprice;
+
+import org.adridadou.ethereum.EthereumBackend;
+import org.adridadou.ethereum.event.EthereumEventHandler;
+import org.adridadou.ethereum.event.OnBlockParameters;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Created by davidroon on 19.04.17.
+ * This code is released under Apache 2 license
+ */
+public class GasPriceOracleTest {
+    private final EthereumBackend ethereum = mock(EthereumBackend.class);
+    private final EthereumEventHandler eventHandler = new EthereumEventHandler();
+    private final GasPriceStrategy strategy = mock(GasPriceStrategy.class);
+    private final List<Runnable> tasks = new ArrayList<>();
+    private final GasPriceOracle oracle = new GasPriceOracle(ethereum, eventHandler, tasks::add).strategy(strategy);
+
+    @Test
+    public void theInitialPriceIsOnlyComputedOnce() {
+        when(strategy.initialGasPrice(ethereum)).thenReturn(BigInteger.TEN);
+
+        assertEquals(BigInteger.TEN, oracle.getGasPrice());
+        assertEquals(BigInteger.TEN, oracle.getGasPrice());
+        verify(strategy, times(1)).initialGasPrice(ethereum);
+    }
+
+    @Test
+    public void thePriceIsRefreshedOncePerBlock() {
+        when(strategy.onBlock(any(), any())).thenReturn(BigInteger.ONE, BigInteger.valueOf(2));
+
+        newBlock(1);
+        runTasks();
+        assertEquals(BigInteger.ONE, oracle.getGasPrice());
+
+        newBlock(2);
+        runTasks();
+        assertEquals(BigInteger.valueOf(2), oracle.getGasPrice());
+        oracle.getGasPrice();
+
+        verify(strategy, times(2)).onBlock(any(), any());
+        verify(strategy, times(0)).initialGasPrice(any());
+    }
+
+    @Test
+    public void aBlockIsSkippedWhileThePreviousRefreshIsRunning() {
+        when(strategy.onBlock(any(), any())).thenReturn(BigInteger.ONE);
+
+        newBlock(1);
+        newBlock(2);
+        assertEquals(1, tasks.size());
+
+        runTasks();
+        newBlock(3);
+        assertEquals(1, tasks.size());
+    }
+
+    @Test
+    public void thePreviousPriceIsKeptWhenTheStrategyFails() {
+        when(strategy.onBlock(any(), any())).thenReturn(BigInteger.TEN).thenThrow(new RuntimeException("node down"));
+
+        newBlock(1);
+        runTasks();
+        newBlock(2);
+        runTasks();
+
+        assertEquals(BigInteger.TEN, oracle.getGasPrice());
+    }
+
+    private void newBlock(long number) {
+        eventHandler.onBlock(new OnBlockParameters(number, Collections.emptyList()));
+    }
+
+    private void runTasks() {
+        List<Runnable> current = new ArrayList<>(tasks);
+        tasks.clear();
+        current.forEach(Runnable::run);
+    }
+}
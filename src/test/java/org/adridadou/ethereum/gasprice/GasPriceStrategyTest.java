@@ -0,0 +1,83 @@
+package org.adridadou.ethereum.gasprice;
+
+import org.adridadou.ethereum.EthereumBackend;
+import org.adridadou.ethereum.event.OnBlockParameters;
+import org.adridadou.ethereum.event.TransactionReceipt;
+import org.adridadou.ethereum.values.EthAddress;
+import org.adridadou.ethereum.values.EthData;
+import org.adridadou.ethereum.values.EthHash;
+import org.adridadou.ethereum.values.EthValue;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Created by davidroon on 19.04.17.
+ * This code is released under Apache 2 license
+ */
+public class GasPriceStrategyTest {
+    private static final BigInteger NODE_GAS_PRICE = BigInteger.valueOf(20);
+
+    private final EthereumBackend ethereum = mock(EthereumBackend.class);
+
+    public GasPriceStrategyTest() {
+        when(ethereum.getGasPrice()).thenReturn(NODE_GAS_PRICE);
+    }
+
+    @Test
+    public void anEmptyWindowFallsBackToTheNodeGasPrice() {
+        PercentileGasPrice strategy = new PercentileGasPrice(2, 0.5);
+
+        assertEquals(NODE_GAS_PRICE, strategy.onBlock(ethereum, block(1)));
+        assertEquals(NODE_GAS_PRICE, strategy.onBlock(ethereum, block(2, 0)));
+    }
+
+    @Test
+    public void aSingleTransactionGivesItsPriceForAnyPercentile() {
+        assertEquals(BigInteger.valueOf(7), new PercentileGasPrice(1, 0).onBlock(ethereum, block(1, 7)));
+        assertEquals(BigInteger.valueOf(7), new PercentileGasPrice(1, 1).onBlock(ethereum, block(1, 7)));
+    }
+
+    @Test
+    public void thePercentileIsTakenOverTheWindow() {
+        PercentileGasPrice strategy = new PercentileGasPrice(2, 0.6);
+
+        assertEquals(BigInteger.valueOf(3), strategy.onBlock(ethereum, block(1, 5, 1, 3, 4, 2)));
+        //the window has 1 to 5 and 10, 0.6 * 6 = 3.6 -> the 4th price
+        assertEquals(BigInteger.valueOf(4), strategy.onBlock(ethereum, block(2, 10)));
+        //the first block has left the window: 10 and 20, 0.6 * 2 = 1.2 -> the 2nd price
+        assertEquals(BigInteger.valueOf(20), strategy.onBlock(ethereum, block(3, 20)));
+    }
+
+    @Test
+    public void theCapIsAppliedToTheInitialAndTheRefreshedPrice() {
+        CappedGasPrice strategy = new CappedGasPrice(new NodeGasPrice(), EthValue.wei(15));
+
+        assertEquals(BigInteger.valueOf(15), strategy.initialGasPrice(ethereum));
+        assertEquals(BigInteger.valueOf(15), strategy.onBlock(ethereum, block(1)));
+
+        when(ethereum.getGasPrice()).thenReturn(BigInteger.valueOf(12));
+        assertEquals(BigInteger.valueOf(12), strategy.onBlock(ethereum, block(2)));
+    }
+
+    @Test
+    public void aFixedPriceNeverChanges() {
+        FixedGasPrice strategy = new FixedGasPrice(EthValue.wei(42));
+
+        assertEquals(BigInteger.valueOf(42), strategy.initialGasPrice(ethereum));
+        assertEquals(BigInteger.valueOf(42), strategy.onBlock(ethereum, block(1, 1, 100)));
+    }
+
+    private OnBlockParameters block(long number, long... gasPrices) {
+        return new OnBlockParameters(number, Arrays.stream(gasPrices)
+                .mapToObj(gasPrice -> new TransactionReceipt(EthHash.empty(), EthAddress.empty(), EthAddress.empty(), EthAddress.empty(), "", EthData.empty(), true, BigInteger.ZERO, BigInteger.valueOf(gasPrice)))
+                .collect(Collectors.toList()));
+    }
+}
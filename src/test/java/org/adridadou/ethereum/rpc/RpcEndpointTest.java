@@ -0,0 +1,47 @@
+package org.adridadou.ethereum.rpc;
+
+import org.junit.Test;
+import org.web3j.protocol.Web3jService;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Created by davidroon on 19.04.17.
+ * This code is released under Apache 2 license
+ */
+public class RpcEndpointTest {
+    private final RpcEndpoint endpoint = new RpcEndpoint("http://localhost", mock(Web3jService.class), mock(JsonRpcBatchService.class));
+
+    @Test
+    public void onlyOneProbeGoesToANodeAfterItsEjection() {
+        endpoint.failure(0, 1, 100);
+        assertFalse(endpoint.tryAcquire(50));
+
+        assertTrue(endpoint.tryAcquire(100));
+        assertFalse(endpoint.isAvailable(100));
+        assertFalse(endpoint.tryAcquire(101));
+
+        //the probe fails: ejected again
+        endpoint.failure(102, 1, 100);
+        assertFalse(endpoint.tryAcquire(150));
+        assertTrue(endpoint.tryAcquire(202));
+        assertFalse(endpoint.tryAcquire(203));
+
+        //the probe succeeds: every request goes to the node again
+        endpoint.success(1_000_000);
+        assertTrue(endpoint.tryAcquire(204));
+        assertTrue(endpoint.tryAcquire(204));
+    }
+
+    @Test
+    public void aProbeEndedWithoutAnAnswerLetsTheNextOneThrough() {
+        endpoint.failure(0, 1, 100);
+        assertTrue(endpoint.tryAcquire(100));
+        assertFalse(endpoint.tryAcquire(100));
+
+        endpoint.release();
+        assertTrue(endpoint.tryAcquire(100));
+    }
+}
@@ -0,0 +1,76 @@
+package org.adridadou.ethereum.values;
+
+import org.ethereum.core.Transaction;
+import org.ethereum.crypto.ECKey;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Created by davidroon on 19.04.17.
+ * This code is released under Apache 2 license
+ */
+public class EthSignerTest {
+    private final ECKey key = mock(ECKey.class);
+    private final Set<Thread> signingThreads = ConcurrentHashMap.newKeySet();
+
+    public EthSignerTest() {
+        when(key.getAddress()).thenReturn(new byte[20]);
+    }
+
+    @Test
+    public void aBatchIsSignedOnTheExecutorAndKeepsItsOrder() {
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        List<Transaction> transactions = transactions(10 * EthSigner.SIGN_CHUNK_SIZE);
+
+        List<Transaction> signed = new EthSigner(key).signAll(transactions, executor);
+        executor.shutdown();
+
+        assertSame(transactions, signed);
+        transactions.forEach(tx -> verify(tx, times(1)).sign(key));
+        assertTrue("some chunks are signed by the executor", signingThreads.size() > 1);
+    }
+
+    @Test
+    public void theCallingThreadSignsWhatTheExecutorRejects() {
+        List<Transaction> transactions = transactions(3 * EthSigner.SIGN_CHUNK_SIZE);
+
+        new EthSigner(key).signAll(transactions, command -> {
+            throw new RejectedExecutionException();
+        });
+
+        transactions.forEach(tx -> verify(tx, times(1)).sign(key));
+        assertEquals(1, signingThreads.size());
+        assertTrue(signingThreads.contains(Thread.currentThread()));
+    }
+
+    private List<Transaction> transactions(int count) {
+        return IntStream.range(0, count).mapToObj(i -> {
+            Transaction tx = mock(Transaction.class);
+            doAnswer(invocation -> {
+                signingThreads.add(Thread.currentThread());
+                //long enough for the executor to take some chunks
+                Thread.sleep(5);
+                return null;
+            }).when(tx).sign(any(ECKey.class));
+            return tx;
+        }).collect(Collectors.toList());
+    }
+}